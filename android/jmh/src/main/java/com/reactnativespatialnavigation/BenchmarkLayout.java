@@ -0,0 +1,155 @@
+package com.reactnativespatialnavigation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Screen of size spatial objects below a "root" group, generated up front so that register() only does the
+ * work SpatialNavigationModule does per registration.
+ *
+ * - grid: one group with a square grid of cards
+ * - rowOfRows: one group per row of ROW_LENGTH cards, like the rails of a catalog screen
+ * - random: cards of random size and position spread over GROUP_COUNT groups, overlaps included
+ */
+public class BenchmarkLayout {
+  public static final String GRID = "grid";
+  public static final String ROW_OF_ROWS = "rowOfRows";
+  public static final String RANDOM = "random";
+
+  static final String ROOT_GROUP_ID = "root";
+  private static final int ROW_LENGTH = 20;
+  private static final int GROUP_COUNT = 16;
+  private static final int CARD_WIDTH = 200;
+  private static final int CARD_HEIGHT = 300;
+  private static final int GAP = 20;
+
+  private final String[] groupIds;
+  private final String[] ids;
+  // Index into groupIds per spatial object
+  private final int[] groupIndexes;
+  private final int[] xs;
+  private final int[] ys;
+  private final int[] widths;
+  private final int[] heights;
+
+  private BenchmarkLayout(int groupCount, int size) {
+    groupIds = new String[groupCount];
+    ids = new String[size];
+    groupIndexes = new int[size];
+    xs = new int[size];
+    ys = new int[size];
+    widths = new int[size];
+    heights = new int[size];
+  }
+
+  public static BenchmarkLayout create(String type, int size, long seed) {
+    switch (type) {
+      case GRID:
+        return createGrid(size);
+      case ROW_OF_ROWS:
+        return createRowOfRows(size);
+      case RANDOM:
+        return createRandom(size, seed);
+      default:
+        throw new IllegalArgumentException("Unknown layout: " + type);
+    }
+  }
+
+  private static BenchmarkLayout createGrid(int size) {
+    int columns = (int) Math.ceil(Math.sqrt(size));
+    BenchmarkLayout layout = new BenchmarkLayout(1, size);
+    layout.groupIds[0] = "grid";
+
+    for (int i = 0; i < size; i++) {
+      layout.set(i, 0, (i % columns) * (CARD_WIDTH + GAP), (i / columns) * (CARD_HEIGHT + GAP), CARD_WIDTH, CARD_HEIGHT);
+    }
+
+    return layout;
+  }
+
+  private static BenchmarkLayout createRowOfRows(int size) {
+    int rows = (size + ROW_LENGTH - 1) / ROW_LENGTH;
+    BenchmarkLayout layout = new BenchmarkLayout(rows, size);
+    for (int row = 0; row < rows; row++) {
+      layout.groupIds[row] = "row-" + row;
+    }
+
+    for (int i = 0; i < size; i++) {
+      int row = i / ROW_LENGTH;
+      layout.set(i, row, (i % ROW_LENGTH) * (CARD_WIDTH + GAP), row * (CARD_HEIGHT + GAP), CARD_WIDTH, CARD_HEIGHT);
+    }
+
+    return layout;
+  }
+
+  private static BenchmarkLayout createRandom(int size, long seed) {
+    Random random = new Random(seed);
+    // About as dense as the grid
+    int extent = (int) Math.ceil(Math.sqrt(size)) * (CARD_HEIGHT + GAP);
+    BenchmarkLayout layout = new BenchmarkLayout(GROUP_COUNT, size);
+    for (int group = 0; group < GROUP_COUNT; group++) {
+      layout.groupIds[group] = "group-" + group;
+    }
+
+    for (int i = 0; i < size; i++) {
+      layout.set(i, i % GROUP_COUNT, random.nextInt(extent), random.nextInt(extent), 100 + random.nextInt(200), 100 + random.nextInt(200));
+    }
+
+    return layout;
+  }
+
+  private void set(int index, int groupIndex, int x, int y, int width, int height) {
+    ids[index] = "card-" + index;
+    groupIndexes[index] = groupIndex;
+    xs[index] = x;
+    ys[index] = y;
+    widths[index] = width;
+    heights[index] = height;
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * Registers the groups, then every spatial object and adds it to its group, like a screen that mounts and
+   * whose views all resolve.
+   */
+  public SpatialRegistry<BenchmarkNode, SpatialNodeGroup<BenchmarkNode>> register() {
+    SpatialRegistry<BenchmarkNode, SpatialNodeGroup<BenchmarkNode>> registry = new SpatialRegistry<>();
+    registry.addGroup(createGroup(registry, ROOT_GROUP_ID, null));
+
+    List<SpatialNodeGroup<BenchmarkNode>> groups = new ArrayList<>(groupIds.length);
+    for (String groupId : groupIds) {
+      SpatialNodeGroup<BenchmarkNode> group = createGroup(registry, groupId, ROOT_GROUP_ID);
+      group.registerToParentGroup();
+      registry.addGroup(group);
+      groups.add(group);
+    }
+
+    for (int i = 0; i < ids.length; i++) {
+      SpatialNodeGroup<BenchmarkNode> group = groups.get(groupIndexes[i]);
+      BenchmarkNode spatialObject = new BenchmarkNode(ids[i], group.getId(), xs[i], ys[i], widths[i], heights[i]);
+      registry.addSpatialObject(spatialObject);
+      group.addChildSpatialObjectId(spatialObject);
+    }
+
+    return registry;
+  }
+
+  private static SpatialNodeGroup<BenchmarkNode> createGroup(
+    SpatialRegistry<BenchmarkNode, SpatialNodeGroup<BenchmarkNode>> registry,
+    String id,
+    String groupParentId
+  ) {
+    Map<String, String> nextGroupFocus = new HashMap<>();
+    for (String direction : Utils.DIRECTIONS) {
+      nextGroupFocus.put(direction, null);
+    }
+
+    return new SpatialNodeGroup<>(registry, id, groupParentId, false, null, null, true, nextGroupFocus);
+  }
+}
@@ -0,0 +1,56 @@
+package com.reactnativespatialnavigation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SpatialNode with a fixed layout, stands in for SpatialObject in the benchmarks.
+ */
+public class BenchmarkNode implements SpatialNode {
+  private final String id;
+  private final String groupId;
+  private final Map<String, Integer> layout = new HashMap<>();
+  private final Map<String, Boolean> nextFocusRestrictions = new HashMap<>();
+
+  public BenchmarkNode(String id, String groupId, int x, int y, int width, int height) {
+    this(id, groupId, x, y, width, height, 0);
+  }
+
+  // restrictions is the disableSecondary bit mask of NavigationRecorder: up 1, right 2, down 4, left 8
+  public BenchmarkNode(String id, String groupId, int x, int y, int width, int height, int restrictions) {
+    this.id = id;
+    this.groupId = groupId;
+
+    layout.put("height", height);
+    layout.put("width", width);
+    layout.put("x0", x);
+    layout.put("x1", x + width);
+    layout.put("y0", y);
+    layout.put("y1", y + height);
+
+    nextFocusRestrictions.put("disableSecondaryUp", (restrictions & 1) != 0);
+    nextFocusRestrictions.put("disableSecondaryRight", (restrictions & 2) != 0);
+    nextFocusRestrictions.put("disableSecondaryDown", (restrictions & 4) != 0);
+    nextFocusRestrictions.put("disableSecondaryLeft", (restrictions & 8) != 0);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public String getGroupId() {
+    return groupId;
+  }
+
+  @Override
+  public Map<String, Integer> getLayout() {
+    return layout;
+  }
+
+  @Override
+  public Map<String, Boolean> getNextFocusRestrictions() {
+    return nextFocusRestrictions;
+  }
+}
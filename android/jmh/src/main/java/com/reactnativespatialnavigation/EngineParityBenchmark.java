@@ -0,0 +1,148 @@
+package com.reactnativespatialnavigation;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs the native neighbor search over a layout fixture on a plain JVM, the counterpart of
+ * scripts/engine-parity.js which runs the JS engine over the same fixture and compares both results.
+ * Every spatial object of the fixture is focused in turn, the latency of each query is reported and the
+ * resolved neighbors are written as one line per object: id, up, right, down and left ("-" for none).
+ *
+ * Fixture format, one entry per line, # starts a comment:
+ *   threshold <nearestNeighborThreshold>
+ *   <id> <x> <y> <width> <height> [restrictions]
+ * where restrictions is the disableSecondary bit mask of NavigationRecorder (up 1, right 2, down 4, left 8).
+ *
+ * Latencies are kept as raw samples so that the percentiles are exact, computed the same way as the JS side.
+ *
+ * Usage: gradle :jmh:engineParity -Pfixture=fixture.txt -Presults=results.txt [-Piterations=10]
+ */
+public class EngineParityBenchmark {
+  private static final String[] DIRECTIONS = {"up", "right", "down", "left"};
+
+  private final Map<String, BenchmarkNode> spatialObjects = new LinkedHashMap<>();
+  // Nanoseconds per query
+  private long[] latencies = new long[0];
+  private Double nearestNeighborThreshold = 0.3;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: EngineParityBenchmark <fixture file> <results file> [iterations]");
+      System.exit(1);
+    }
+
+    EngineParityBenchmark benchmark = new EngineParityBenchmark();
+    try (BufferedReader reader = new BufferedReader(new FileReader(args[0]))) {
+      benchmark.readFixture(reader);
+    }
+
+    Map<String, Map<String, BenchmarkNode>> results = benchmark.run(args.length > 2 ? Integer.parseInt(args[2]) : 10);
+    try (PrintWriter writer = new PrintWriter(args[1], "UTF-8")) {
+      writeResults(results, writer);
+    }
+
+    System.out.println(benchmark.getReport());
+  }
+
+  public void readFixture(BufferedReader reader) throws IOException {
+    String line;
+    int lineNumber = 0;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      String[] fields = line.trim().split("\\s+");
+      if (fields[0].isEmpty() || fields[0].startsWith("#")) {
+        continue;
+      }
+
+      try {
+        if (fields[0].equals("threshold")) {
+          nearestNeighborThreshold = Double.parseDouble(fields[1]);
+          continue;
+        }
+
+        BenchmarkNode spatialObject = new BenchmarkNode(
+          fields[0],
+          "fixture",
+          Integer.parseInt(fields[1]),
+          Integer.parseInt(fields[2]),
+          Integer.parseInt(fields[3]),
+          Integer.parseInt(fields[4]),
+          fields.length > 5 ? Integer.parseInt(fields[5]) : 0
+        );
+
+        spatialObjects.put(spatialObject.getId(), spatialObject);
+      } catch (RuntimeException e) {
+        throw new IOException("Invalid fixture line " + lineNumber + ": " + line, e);
+      }
+    }
+  }
+
+  // Resolves the neighbors of every spatial object, each query runs iterations times and every run is recorded
+  public Map<String, Map<String, BenchmarkNode>> run(int iterations) {
+    Map<String, Map<String, BenchmarkNode>> results = new LinkedHashMap<>();
+    latencies = new long[spatialObjects.size() * iterations];
+    int sampleCount = 0;
+
+    for (BenchmarkNode focusedElement : spatialObjects.values()) {
+      Map<String, BenchmarkNode> nextFocus = null;
+      for (int i = 0; i < iterations; i++) {
+        long start = System.nanoTime();
+        nextFocus = Utils.getNearestNeighbor(focusedElement, spatialObjects, nearestNeighborThreshold);
+        latencies[sampleCount++] = System.nanoTime() - start;
+      }
+
+      results.put(focusedElement.getId(), nextFocus);
+    }
+
+    return results;
+  }
+
+  public static void writeResults(Map<String, Map<String, BenchmarkNode>> results, PrintWriter writer) {
+    for (Map.Entry<String, Map<String, BenchmarkNode>> result : results.entrySet()) {
+      StringBuilder line = new StringBuilder(result.getKey());
+      for (String direction : DIRECTIONS) {
+        BenchmarkNode target = result.getValue() != null ? result.getValue().get(direction) : null;
+        line.append(' ').append(target != null ? target.getId() : "-");
+      }
+      writer.println(line);
+    }
+  }
+
+  public String getReport() {
+    long[] sortedLatencies = latencies.clone();
+    Arrays.sort(sortedLatencies);
+
+    long sum = 0;
+    for (long latency : sortedLatencies) {
+      sum += latency;
+    }
+
+    int count = sortedLatencies.length;
+    return String.format(
+      "engine   objects  queries   mean(us)  p50(us)   p99(us)   max(us)%n%-8s %-8d %-9d %-9.1f %-9.1f %-9.1f %-9.1f",
+      "native",
+      spatialObjects.size(),
+      count,
+      count == 0 ? 0d : sum / 1000d / count,
+      percentile(sortedLatencies, 0.5) / 1000d,
+      percentile(sortedLatencies, 0.99) / 1000d,
+      count == 0 ? 0d : sortedLatencies[count - 1] / 1000d
+    );
+  }
+
+  // Nearest rank percentile, the same definition scripts/engine-parity.js uses
+  private static long percentile(long[] sortedLatencies, double percentile) {
+    if (sortedLatencies.length == 0) {
+      return 0;
+    }
+
+    int rank = (int) Math.ceil(percentile * sortedLatencies.length);
+    return sortedLatencies[Math.min(sortedLatencies.length - 1, Math.max(0, rank - 1))];
+  }
+}
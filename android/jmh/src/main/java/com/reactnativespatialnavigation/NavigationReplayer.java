@@ -0,0 +1,445 @@
+package com.reactnativespatialnavigation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Re-drives the navigation core with a log written by NavigationRecorder, on a plain JVM.
+ * Every event does the same core work SpatialNavigationModule does for it, and the latency and allocated
+ * bytes of each event are reported per event type. The fingerprint of all resolved next focus ids
+ * shows whether two engine versions navigate the same way.
+ *
+ * Usage: gradle :jmh:replay -Precording=capture.snrec [-Pthreshold=0.3] [-PcheckInvariants]
+ */
+public class NavigationReplayer {
+  private static final String[] EVENT_NAMES = {
+    "string", "registerGroup", "removeGroup", "registerSpatialObject", "attachSpatialObject", "removeSpatialObject", "layout", "focus"
+  };
+
+  private final SpatialRegistry<ReplayNode, SpatialNodeGroup<ReplayNode>> registry = new SpatialRegistry<>();
+  private final Double nearestNeighborThreshold;
+  private final List<String> strings = new ArrayList<>();
+  // Format version of the recording being replayed
+  private int version = NavigationRecorder.VERSION;
+  private final SpatialNavigationMetrics.Histogram[] latencies = new SpatialNavigationMetrics.Histogram[EVENT_NAMES.length];
+  private final long[] allocatedBytes = new long[EVENT_NAMES.length];
+  private final AllocationProbe allocationProbe = new AllocationProbe();
+  private @Nullable
+  String focusedId;
+  private long fingerprint = 17;
+  private long neighborSearches = 0;
+  private boolean shouldCheckInvariants = false;
+  private long invariantViolations = 0;
+  private @Nullable
+  String firstInvariantViolation;
+
+  public NavigationReplayer(Double nearestNeighborThreshold) {
+    this.nearestNeighborThreshold = nearestNeighborThreshold;
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = new SpatialNavigationMetrics.Histogram();
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: NavigationReplayer <capture file> [nearestNeighborThreshold] [--check-invariants]");
+      System.exit(1);
+    }
+
+    NavigationReplayer replayer = new NavigationReplayer(args.length > 1 ? Double.parseDouble(args[1]) : 0.3);
+    replayer.setCheckInvariants(args.length > 2 && "--check-invariants".equals(args[2]));
+    try (InputStream inputStream = new FileInputStream(args[0])) {
+      replayer.replay(inputStream);
+    }
+
+    System.out.println(replayer.getReport());
+  }
+
+  // Checks the registry invariants after every event, the check itself is not part of the measured latencies
+  public void setCheckInvariants(boolean shouldCheckInvariants) {
+    this.shouldCheckInvariants = shouldCheckInvariants;
+  }
+
+  public void replay(InputStream inputStream) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+
+    if (input.readInt() != NavigationRecorder.MAGIC) {
+      throw new IOException("Not a navigation recording");
+    }
+    version = input.readUnsignedByte();
+    if (version < 1 || version > NavigationRecorder.VERSION) {
+      throw new IOException("Unsupported navigation recording version: " + version);
+    }
+
+    while (true) {
+      int opcode;
+      try {
+        opcode = input.readUnsignedByte();
+      } catch (EOFException e) {
+        return;
+      }
+
+      // Recorded time since the previous event, replay runs back to back
+      readVarLong(input);
+
+      if (opcode == NavigationRecorder.OP_STRING) {
+        strings.add(input.readUTF());
+      } else {
+        replayEvent(opcode, input);
+      }
+    }
+  }
+
+  private void replayEvent(int opcode, DataInputStream input) throws IOException {
+    String id = readString(input);
+    long allocatedBefore = allocationProbe.getAllocatedBytes();
+    long start = System.nanoTime();
+
+    switch (opcode) {
+      case NavigationRecorder.OP_REGISTER_GROUP:
+        replayRegisterGroup(id, input);
+        break;
+      case NavigationRecorder.OP_REMOVE_GROUP:
+        replayRemoveGroup(id);
+        break;
+      case NavigationRecorder.OP_REGISTER_SPATIAL_OBJECT:
+        replayRegisterSpatialObject(id, input);
+        break;
+      case NavigationRecorder.OP_ATTACH_SPATIAL_OBJECT:
+        replayAttachSpatialObject(id);
+        break;
+      case NavigationRecorder.OP_REMOVE_SPATIAL_OBJECT:
+        replayRemoveSpatialObject(id);
+        break;
+      case NavigationRecorder.OP_LAYOUT:
+        replayLayout(id, input);
+        break;
+      case NavigationRecorder.OP_FOCUS:
+        replayFocus(id);
+        break;
+      default:
+        throw new IOException("Unknown opcode: " + opcode);
+    }
+
+    // Includes decoding the rest of the payload, which is small next to the engine work
+    latencies[opcode].record(System.nanoTime() - start);
+    long allocatedAfter = allocationProbe.getAllocatedBytes();
+    if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+      allocatedBytes[opcode] += allocatedAfter - allocatedBefore;
+    }
+
+    if (shouldCheckInvariants) {
+      List<String> violations = registry.findInvariantViolations();
+      if (!violations.isEmpty() && firstInvariantViolation == null) {
+        firstInvariantViolation = EVENT_NAMES[opcode] + " " + id + ": " + violations.get(0);
+      }
+      invariantViolations += violations.size();
+    }
+  }
+
+  private void replayRegisterGroup(String id, DataInputStream input) throws IOException {
+    String groupParentId = readString(input);
+    boolean hasTVPreferredFocus = input.readBoolean();
+    int preferredChildFocusIndex = (int) readVarLong(input);
+    String preferredChildFocusId = readString(input);
+    boolean shouldTrackChildren = input.readBoolean();
+    Map<String, String> nextGroupFocus = new HashMap<>();
+    for (String direction : NavigationRecorder.DIRECTIONS) {
+      nextGroupFocus.put(direction, readString(input));
+    }
+    // Layout hints were added in version 2
+    String layoutType = version >= 2 ? readString(input) : null;
+    int columnCount = version >= 2 ? (int) readVarLong(input) : 1;
+
+    SpatialNodeGroup<ReplayNode> group = new SpatialNodeGroup<>(
+      registry,
+      id,
+      groupParentId,
+      hasTVPreferredFocus,
+      preferredChildFocusIndex != -1 ? preferredChildFocusIndex : null,
+      preferredChildFocusId,
+      shouldTrackChildren,
+      nextGroupFocus
+    );
+    group.setLayoutHint(layoutType, columnCount);
+    if (groupParentId != null) {
+      group.registerToParentGroup();
+    }
+    registry.addGroup(group);
+  }
+
+  private void replayRemoveGroup(String id) {
+    SpatialNodeGroup<ReplayNode> group = registry.getGroup(id);
+    if (group == null) {
+      return;
+    }
+
+    group.unregisterToParentGroup();
+    for (String childId : new ArrayList<>(group.getSpatialChildIds().keySet())) {
+      replayRemoveSpatialObject(childId);
+    }
+    registry.removeGroup(id);
+  }
+
+  private void replayRegisterSpatialObject(String id, DataInputStream input) throws IOException {
+    String groupId = readString(input);
+    int restrictions = input.readUnsignedByte();
+    registry.addSpatialObject(new ReplayNode(id, groupId, restrictions));
+  }
+
+  private void replayAttachSpatialObject(String id) {
+    ReplayNode spatialObject = registry.getSpatialObject(id);
+    if (spatialObject == null) {
+      return;
+    }
+
+    SpatialNodeGroup<ReplayNode> group = registry.getGroup(spatialObject.getGroupId());
+    if (group != null) {
+      // A preferred child gets focused by the engine, which shows up as a recorded focus event
+      group.addChildSpatialObjectId(spatialObject);
+    } else {
+      // Orphaned objects are cleaned up by the engine when their view resolves
+      registry.removeSpatialObject(spatialObject);
+    }
+  }
+
+  private void replayRemoveSpatialObject(String id) {
+    ReplayNode spatialObject = registry.getSpatialObject(id);
+    if (spatialObject == null) {
+      return;
+    }
+
+    SpatialNodeGroup<ReplayNode> group = registry.getGroup(spatialObject.getGroupId());
+    if (group != null) {
+      group.removeChildSpatialObjectId(id);
+    }
+    registry.removeSpatialObject(spatialObject);
+  }
+
+  private void replayLayout(String id, DataInputStream input) throws IOException {
+    int x = (int) readVarLong(input);
+    int y = (int) readVarLong(input);
+    int width = (int) readVarLong(input);
+    int height = (int) readVarLong(input);
+
+    ReplayNode spatialObject = registry.getSpatialObject(id);
+    if (spatialObject == null) {
+      return;
+    }
+
+    Map<String, Integer> layout = spatialObject.getLayout();
+    layout.put("height", height);
+    layout.put("width", width);
+    layout.put("x0", x);
+    layout.put("x1", x + width);
+    layout.put("y0", y);
+    layout.put("y1", y + height);
+
+    SpatialNodeGroup<ReplayNode> group = registry.getGroup(spatialObject.getGroupId());
+    if (group != null) {
+      group.invalidateChildIndexes();
+    }
+
+    // Same as SpatialObject.updateLayout: the focused element is recalculated on every layout,
+    // and once more if the element itself is focused
+    runNextFocusCalculations(focusedId);
+    if (id.equals(focusedId)) {
+      runNextFocusCalculations(id);
+    }
+  }
+
+  private void replayFocus(String id) {
+    ReplayNode spatialObject = registry.getSpatialObject(id);
+    if (spatialObject == null) {
+      return;
+    }
+
+    SpatialNodeGroup<ReplayNode> group = registry.getGroup(spatialObject.getGroupId());
+    if (group != null) {
+      group.onChildFocus(id);
+    }
+
+    focusedId = id;
+    runNextFocusCalculations(id);
+  }
+
+  private void runNextFocusCalculations(@Nullable String spatialObjectId) {
+    ReplayNode focusedElement = spatialObjectId != null ? registry.getSpatialObject(spatialObjectId) : null;
+    if (focusedElement == null || registry.getGroup(focusedElement.getGroupId()) == null) {
+      return;
+    }
+
+    Map<String, ReplayNode> nextFocus =
+      Utils.getIndexedNeighbors(focusedElement, registry.getSpatialObjects(), registry.getGroups());
+    if (nextFocus.size() < NavigationRecorder.DIRECTIONS.length) {
+      Map<String, ReplayNode> indexedNeighbors = nextFocus;
+      Map<String, ReplayNode> nearestNeighbors =
+        Utils.getNearestNeighbor(focusedElement, registry.getSpatialObjects(), nearestNeighborThreshold);
+      nextFocus = Utils.overrideNearestNeighborIfNeeded(nearestNeighbors, focusedElement, registry.getGroups());
+      nextFocus.putAll(indexedNeighbors);
+    }
+
+    neighborSearches++;
+    for (String direction : NavigationRecorder.DIRECTIONS) {
+      ReplayNode next = nextFocus.get(direction);
+      fingerprint = 31 * fingerprint + (next != null ? next.getId().hashCode() : 0);
+    }
+  }
+
+  public long getFingerprint() {
+    return fingerprint;
+  }
+
+  public String getReport() {
+    StringBuilder report = new StringBuilder();
+    report.append("event                  count    mean(us)  p50(us)   p99(us)   max(us)   alloc/event(B)\n");
+
+    for (int i = 1; i < EVENT_NAMES.length; i++) {
+      Map<String, Object> snapshot = latencies[i].snapshot(false);
+      long count = (long) snapshot.get("count");
+      if (count == 0) {
+        continue;
+      }
+
+      report.append(String.format(
+        "%-22s %-8d %-9.1f %-9.1f %-9.1f %-9.1f %s%n",
+        EVENT_NAMES[i],
+        count,
+        (double) snapshot.get("mean") / 1000,
+        (double) snapshot.get("p50") / 1000,
+        (double) snapshot.get("p99") / 1000,
+        (double) snapshot.get("max") / 1000,
+        allocationProbe.isAvailable() ? String.valueOf(allocatedBytes[i] / count) : "n/a"
+      ));
+    }
+
+    report.append("neighbor searches: ").append(neighborSearches).append('\n');
+    if (shouldCheckInvariants) {
+      report.append("invariant violations: ").append(invariantViolations).append('\n');
+      if (firstInvariantViolation != null) {
+        report.append("first violation: ").append(firstInvariantViolation).append('\n');
+      }
+    }
+    report.append("fingerprint: ").append(Long.toHexString(fingerprint)).append('\n');
+    return report.toString();
+  }
+
+  public Map<String, Object> getResults() {
+    Map<String, Object> results = new LinkedHashMap<>();
+    for (int i = 1; i < EVENT_NAMES.length; i++) {
+      Map<String, Object> eventResults = latencies[i].snapshot(true);
+      eventResults.put("allocatedBytes", allocatedBytes[i]);
+      results.put(EVENT_NAMES[i], eventResults);
+    }
+    results.put("neighborSearches", neighborSearches);
+    if (shouldCheckInvariants) {
+      results.put("invariantViolations", invariantViolations);
+    }
+    results.put("fingerprint", Long.toHexString(fingerprint));
+    return results;
+  }
+
+  private @Nullable
+  String readString(DataInputStream input) throws IOException {
+    int index = (int) readVarLong(input);
+    return index == -1 ? null : strings.get(index);
+  }
+
+  private static long readVarLong(DataInputStream input) throws IOException {
+    long zigzag = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = input.readUnsignedByte();
+      zigzag |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+
+  public static class ReplayNode implements SpatialNode {
+    private final String id;
+    private final String groupId;
+    private final Map<String, Integer> layout = new HashMap<>();
+    private final Map<String, Boolean> nextFocusRestrictions = new HashMap<>();
+
+    public ReplayNode(String id, String groupId, int restrictions) {
+      this.id = id;
+      this.groupId = groupId;
+      nextFocusRestrictions.put("disableSecondaryUp", (restrictions & 1) != 0);
+      nextFocusRestrictions.put("disableSecondaryRight", (restrictions & 2) != 0);
+      nextFocusRestrictions.put("disableSecondaryDown", (restrictions & 4) != 0);
+      nextFocusRestrictions.put("disableSecondaryLeft", (restrictions & 8) != 0);
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public String getGroupId() {
+      return groupId;
+    }
+
+    @Override
+    public Map<String, Integer> getLayout() {
+      return layout;
+    }
+
+    @Override
+    public Map<String, Boolean> getNextFocusRestrictions() {
+      return nextFocusRestrictions;
+    }
+  }
+
+  /**
+   * Per thread allocated bytes through com.sun.management.ThreadMXBean, looked up reflectively since
+   * java.lang.management is not part of the Android SDK. Returns -1 where it is not available.
+   */
+  private static class AllocationProbe {
+    private @Nullable
+    Object threadMXBean;
+    private @Nullable
+    Method getThreadAllocatedBytes;
+
+    AllocationProbe() {
+      try {
+        threadMXBean = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null);
+        getThreadAllocatedBytes = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+      } catch (Exception e) {
+        threadMXBean = null;
+        getThreadAllocatedBytes = null;
+      }
+    }
+
+    boolean isAvailable() {
+      return getThreadAllocatedBytes != null;
+    }
+
+    long getAllocatedBytes() {
+      if (getThreadAllocatedBytes == null) {
+        return -1;
+      }
+
+      try {
+        return (long) getThreadAllocatedBytes.invoke(threadMXBean, Thread.currentThread().getId());
+      } catch (Exception e) {
+        return -1;
+      }
+    }
+  }
+}
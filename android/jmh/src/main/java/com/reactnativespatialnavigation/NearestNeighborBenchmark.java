@@ -0,0 +1,83 @@
+package com.reactnativespatialnavigation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One neighbor search of the focus pipeline, per layout and screen size. Every invocation focuses the next element
+ * of a fixed random sample, so a single position of the layout can't dominate the result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestNeighborBenchmark {
+  private static final int SAMPLE_SIZE = 256;
+  private static final Double NEAREST_NEIGHBOR_THRESHOLD = 0.3;
+
+  @Param({BenchmarkLayout.GRID, BenchmarkLayout.ROW_OF_ROWS, BenchmarkLayout.RANDOM})
+  public String layout;
+
+  @Param({"100", "1000", "10000", "100000"})
+  public int size;
+
+  private SpatialRegistry<BenchmarkNode, SpatialNodeGroup<BenchmarkNode>> registry;
+  private final List<BenchmarkNode> focusedElements = new ArrayList<>();
+  // Result of getNearestNeighbor for every element of focusedElements, the input of overrideNearestNeighborIfNeeded
+  private final List<Map<String, BenchmarkNode>> nearestNeighbors = new ArrayList<>();
+  private int next = 0;
+
+  @Setup
+  public void setUp() {
+    registry = BenchmarkLayout.create(layout, size, 42).register();
+
+    List<BenchmarkNode> spatialObjects = new ArrayList<>(registry.getSpatialObjects().values());
+    Random random = new Random(7);
+    for (int i = 0; i < SAMPLE_SIZE; i++) {
+      BenchmarkNode focusedElement = spatialObjects.get(random.nextInt(spatialObjects.size()));
+      focusedElements.add(focusedElement);
+      nearestNeighbors.add(Utils.getNearestNeighbor(focusedElement, registry.getSpatialObjects(), NEAREST_NEIGHBOR_THRESHOLD));
+    }
+  }
+
+  @Benchmark
+  public Map<String, BenchmarkNode> getNearestNeighbor() {
+    BenchmarkNode focusedElement = focusedElements.get(next);
+    next = (next + 1) % SAMPLE_SIZE;
+
+    return Utils.getNearestNeighbor(focusedElement, registry.getSpatialObjects(), NEAREST_NEIGHBOR_THRESHOLD);
+  }
+
+  @Benchmark
+  public Map<String, BenchmarkNode> getNearestNeighborWithDiagonals() {
+    BenchmarkNode focusedElement = focusedElements.get(next);
+    next = (next + 1) % SAMPLE_SIZE;
+
+    return Utils.getNearestNeighbor(focusedElement, registry.getSpatialObjects(), NEAREST_NEIGHBOR_THRESHOLD, true);
+  }
+
+  @Benchmark
+  public Map<String, BenchmarkNode> overrideNearestNeighborIfNeeded() {
+    int index = next;
+    next = (next + 1) % SAMPLE_SIZE;
+
+    return Utils.overrideNearestNeighborIfNeeded(nearestNeighbors.get(index), focusedElements.get(index), registry.getGroups());
+  }
+}
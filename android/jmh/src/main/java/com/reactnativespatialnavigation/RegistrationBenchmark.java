@@ -0,0 +1,45 @@
+package com.reactnativespatialnavigation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers a whole screen into an empty registry: its groups, then every spatial object joining its group.
+ * Divide size by the score for registrations per millisecond.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrationBenchmark {
+  @Param({BenchmarkLayout.GRID, BenchmarkLayout.ROW_OF_ROWS, BenchmarkLayout.RANDOM})
+  public String layout;
+
+  @Param({"100", "1000", "10000", "100000"})
+  public int size;
+
+  private BenchmarkLayout benchmarkLayout;
+
+  @Setup
+  public void setUp() {
+    benchmarkLayout = BenchmarkLayout.create(layout, size, 42);
+  }
+
+  @Benchmark
+  public SpatialRegistry<BenchmarkNode, SpatialNodeGroup<BenchmarkNode>> register() {
+    return benchmarkLayout.register();
+  }
+}
@@ -0,0 +1,168 @@
+package com.reactnativespatialnavigation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Writes the SpatialNavigationModule call stream to a compact binary log that NavigationReplayer can re-drive.
+ * Free of Android dependencies.
+ *
+ * Format: MAGIC, VERSION, then one record per event: opcode byte, microseconds since the previous record
+ * (varint) and the opcode's payload. Strings are interned: the first occurrence is written as a
+ * STRING record, later references only use its index. Ints are zigzag varints, -1 references null.
+ */
+public class NavigationRecorder implements Closeable {
+  public static final int MAGIC = 0x534e5243; // SNRC
+  public static final int VERSION = 2;
+
+  public static final byte OP_STRING = 0;
+  public static final byte OP_REGISTER_GROUP = 1;
+  public static final byte OP_REMOVE_GROUP = 2;
+  public static final byte OP_REGISTER_SPATIAL_OBJECT = 3;
+  // A spatial object's view got resolved and it registered to its group
+  public static final byte OP_ATTACH_SPATIAL_OBJECT = 4;
+  public static final byte OP_REMOVE_SPATIAL_OBJECT = 5;
+  public static final byte OP_LAYOUT = 6;
+  public static final byte OP_FOCUS = 7;
+
+  public static final String[] DIRECTIONS = {"up", "right", "down", "left"};
+  private static final String[] RESTRICTIONS = {"disableSecondaryUp", "disableSecondaryRight", "disableSecondaryDown", "disableSecondaryLeft"};
+
+  private final DataOutputStream output;
+  private final Map<String, Integer> stringIndexes = new HashMap<>();
+  private long lastRecordNanos;
+
+  public NavigationRecorder(OutputStream outputStream) throws IOException {
+    output = new DataOutputStream(new BufferedOutputStream(outputStream));
+    output.writeInt(MAGIC);
+    output.writeByte(VERSION);
+    lastRecordNanos = System.nanoTime();
+  }
+
+  public synchronized void recordRegisterGroup(SpatialNodeGroup<?> group) throws IOException {
+    int id = intern(group.getId());
+    int groupParentId = intern(group.getGroupParentId());
+    int preferredChildFocusId = intern(group.preferredChildFocusId);
+    int layoutType = intern(group.getLayoutType());
+    int[] nextGroupFocus = new int[DIRECTIONS.length];
+    for (int i = 0; i < DIRECTIONS.length; i++) {
+      nextGroupFocus[i] = intern(group.getNextGroupFocus().get(DIRECTIONS[i]));
+    }
+
+    beginRecord(OP_REGISTER_GROUP);
+    writeVarInt(id);
+    writeVarInt(groupParentId);
+    output.writeBoolean(group.hasTVPreferredFocus);
+    writeVarInt(group.preferredChildFocusIndex != null ? group.preferredChildFocusIndex : -1);
+    writeVarInt(preferredChildFocusId);
+    output.writeBoolean(group.shouldTrackChildren);
+    for (int nextGroupFocusId : nextGroupFocus) {
+      writeVarInt(nextGroupFocusId);
+    }
+    writeVarInt(layoutType);
+    writeVarInt(group.getColumnCount());
+  }
+
+  public synchronized void recordRemoveGroup(String groupId) throws IOException {
+    int id = intern(groupId);
+    beginRecord(OP_REMOVE_GROUP);
+    writeVarInt(id);
+  }
+
+  public synchronized void recordRegisterSpatialObject(SpatialNode spatialObject) throws IOException {
+    int id = intern(spatialObject.getId());
+    int groupId = intern(spatialObject.getGroupId());
+    int restrictions = 0;
+    for (int i = 0; i < RESTRICTIONS.length; i++) {
+      if (Boolean.TRUE.equals(spatialObject.getNextFocusRestrictions().get(RESTRICTIONS[i]))) {
+        restrictions |= 1 << i;
+      }
+    }
+
+    beginRecord(OP_REGISTER_SPATIAL_OBJECT);
+    writeVarInt(id);
+    writeVarInt(groupId);
+    output.writeByte(restrictions);
+  }
+
+  public synchronized void recordAttachSpatialObject(String spatialObjectId) throws IOException {
+    recordIdEvent(OP_ATTACH_SPATIAL_OBJECT, spatialObjectId);
+  }
+
+  public synchronized void recordRemoveSpatialObject(String spatialObjectId) throws IOException {
+    recordIdEvent(OP_REMOVE_SPATIAL_OBJECT, spatialObjectId);
+  }
+
+  public synchronized void recordLayout(SpatialNode spatialObject) throws IOException {
+    Map<String, Integer> layout = spatialObject.getLayout();
+    if (layout.isEmpty()) {
+      return;
+    }
+
+    int id = intern(spatialObject.getId());
+    beginRecord(OP_LAYOUT);
+    writeVarInt(id);
+    writeVarInt(layout.get("x0"));
+    writeVarInt(layout.get("y0"));
+    writeVarInt(layout.get("width"));
+    writeVarInt(layout.get("height"));
+  }
+
+  public synchronized void recordFocus(String spatialObjectId) throws IOException {
+    recordIdEvent(OP_FOCUS, spatialObjectId);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    output.close();
+  }
+
+  private void recordIdEvent(byte opcode, String spatialId) throws IOException {
+    int id = intern(spatialId);
+    beginRecord(opcode);
+    writeVarInt(id);
+  }
+
+  private void beginRecord(byte opcode) throws IOException {
+    long now = System.nanoTime();
+    output.writeByte(opcode);
+    writeVarLong((now - lastRecordNanos) / 1000);
+    lastRecordNanos = now;
+  }
+
+  private int intern(@Nullable String string) throws IOException {
+    if (string == null) {
+      return -1;
+    }
+
+    Integer index = stringIndexes.get(string);
+    if (index == null) {
+      index = stringIndexes.size();
+      stringIndexes.put(string, index);
+      beginRecord(OP_STRING);
+      output.writeUTF(string);
+    }
+
+    return index;
+  }
+
+  private void writeVarInt(int value) throws IOException {
+    writeVarLong(value);
+  }
+
+  private void writeVarLong(long value) throws IOException {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7FL) != 0) {
+      output.writeByte((int) ((zigzag & 0x7F) | 0x80));
+      zigzag >>>= 7;
+    }
+    output.writeByte((int) zigzag);
+  }
+}
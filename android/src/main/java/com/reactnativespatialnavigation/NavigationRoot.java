@@ -0,0 +1,111 @@
+package com.reactnativespatialnavigation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Named navigation scope, e.g. a modal or an overlay. Neighbor searches only look at the spatial objects
+ * of the focused object's root, and every root has its own index and cache version so changes in one root
+ * leave the cached results of the others untouched. Free of Android dependencies.
+ */
+public class NavigationRoot<T extends SpatialNode> {
+  public static final String DEFAULT_ID = "default";
+  private static final int INDEX_CELL_SIZE = 256;
+
+  private final String id;
+  private final ConcurrentHashMap<String, T> spatialObjects = new ConcurrentHashMap<>();
+  private final SpatialIndex<T> index = new SpatialIndex<>(INDEX_CELL_SIZE);
+  // Version of the root's state cached next focus results were calculated with
+  private volatile int version = 0;
+  private volatile @Nullable
+  String lastFocusedId;
+  // Set when the index was shed to save memory, it is rebuilt from the layouts on its next use
+  private boolean isIndexShed = false;
+  // Set when layouts of this root were shed to save memory, they are measured again before its next neighbor search
+  private volatile boolean hasShedLayouts = false;
+
+  public NavigationRoot(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public Map<String, T> getSpatialObjects() {
+    return spatialObjects;
+  }
+
+  public SpatialIndex<T> getIndex() {
+    synchronized (index) {
+      if (isIndexShed) {
+        isIndexShed = false;
+        for (T spatialObject : spatialObjects.values()) {
+          index.update(spatialObject);
+        }
+      }
+    }
+
+    return index;
+  }
+
+  public void shedIndex() {
+    synchronized (index) {
+      index.clear();
+      isIndexShed = true;
+    }
+  }
+
+  // Removes spatialObject from the index, without rebuilding a shed index first
+  public void unindex(T spatialObject) {
+    synchronized (index) {
+      if (!isIndexShed) {
+        index.remove(spatialObject);
+      }
+    }
+  }
+
+  public boolean isIndexShed() {
+    synchronized (index) {
+      return isIndexShed;
+    }
+  }
+
+  public boolean hasShedLayouts() {
+    return hasShedLayouts;
+  }
+
+  public void setHasShedLayouts(boolean hasShedLayouts) {
+    this.hasShedLayouts = hasShedLayouts;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  // Called whenever something changed in this root that could change its neighbor search results
+  public void invalidate() {
+    version++;
+  }
+
+  public @Nullable
+  String getLastFocusedId() {
+    return lastFocusedId;
+  }
+
+  public void setLastFocusedId(@Nullable String lastFocusedId) {
+    this.lastFocusedId = lastFocusedId;
+  }
+
+  public void addSpatialObject(T spatialObject) {
+    spatialObjects.put(spatialObject.getId(), spatialObject);
+  }
+
+  // Only removes the entry if it still belongs to this spatialObject
+  public void removeSpatialObject(T spatialObject) {
+    spatialObjects.remove(spatialObject.getId(), spatialObject);
+    index.remove(spatialObject);
+  }
+}
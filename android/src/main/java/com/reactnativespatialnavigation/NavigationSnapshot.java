@@ -0,0 +1,212 @@
+package com.reactnativespatialnavigation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Last known group tree, layouts and focus state of a screen, persisted to a memory-mapped file so the next
+ * launch can resolve neighbors and the first focus before every view reported its layout.
+ * Free of Android dependencies.
+ *
+ * Format: MAGIC, VERSION, group count, per group its id, parent id and last focused child id, spatial object
+ * count, per spatial object its id, group id, x0, y0, width and height, then the focused spatial object id.
+ * Strings are an int byte length (-1 for null) followed by UTF-8 bytes, numbers are big endian ints.
+ */
+public class NavigationSnapshot {
+  public static final int MAGIC = 0x534e5353; // SNSS
+  public static final int VERSION = 1;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // Group id -> {groupParentId, lastChildFocusedId}
+  private final Map<String, String[]> groups = new HashMap<>();
+  // Spatial object id -> group id
+  private final Map<String, String> spatialObjectGroupIds = new HashMap<>();
+  // Spatial object id -> {x0, y0, width, height}
+  private final Map<String, int[]> layouts = new HashMap<>();
+  private @Nullable
+  String focusedId;
+
+  public static <T extends SpatialNode, G extends SpatialNodeGroup<T>> NavigationSnapshot capture(
+    SpatialRegistry<T, G> registry,
+    @Nullable String focusedId
+  ) {
+    NavigationSnapshot snapshot = new NavigationSnapshot();
+
+    for (G group : registry.getGroups().values()) {
+      snapshot.groups.put(group.getId(), new String[]{group.getGroupParentId(), group.lastChildFocusedId});
+    }
+
+    for (T spatialObject : registry.getSpatialObjects().values()) {
+      Map<String, Integer> layout = spatialObject.getLayout();
+      if (layout.isEmpty()) {
+        continue;
+      }
+
+      snapshot.spatialObjectGroupIds.put(spatialObject.getId(), spatialObject.getGroupId());
+      snapshot.layouts.put(spatialObject.getId(), new int[]{layout.get("x0"), layout.get("y0"), layout.get("width"), layout.get("height")});
+    }
+
+    snapshot.focusedId = focusedId;
+    return snapshot;
+  }
+
+  public static NavigationSnapshot read(File file) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      FileChannel channel = randomAccessFile.getChannel();
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+        throw new IOException("Not a navigation snapshot: " + file);
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported navigation snapshot version: " + version);
+      }
+
+      NavigationSnapshot snapshot = new NavigationSnapshot();
+      try {
+        int groupCount = buffer.getInt();
+        for (int i = 0; i < groupCount; i++) {
+          String id = readString(buffer);
+          snapshot.groups.put(id, new String[]{readString(buffer), readString(buffer)});
+        }
+
+        int spatialObjectCount = buffer.getInt();
+        for (int i = 0; i < spatialObjectCount; i++) {
+          String id = readString(buffer);
+          snapshot.spatialObjectGroupIds.put(id, readString(buffer));
+          snapshot.layouts.put(id, new int[]{buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt()});
+        }
+
+        snapshot.focusedId = readString(buffer);
+      } catch (RuntimeException e) {
+        // Truncated or corrupted file
+        throw new IOException("Invalid navigation snapshot: " + file, e);
+      }
+
+      return snapshot;
+    }
+  }
+
+  public void write(File file) throws IOException {
+    int size = 12 + 4 + stringSize(focusedId);
+    for (Map.Entry<String, String[]> group : groups.entrySet()) {
+      size += stringSize(group.getKey()) + stringSize(group.getValue()[0]) + stringSize(group.getValue()[1]);
+    }
+    for (Map.Entry<String, String> spatialObject : spatialObjectGroupIds.entrySet()) {
+      size += stringSize(spatialObject.getKey()) + stringSize(spatialObject.getValue()) + 16;
+    }
+
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.setLength(size);
+      MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+
+      buffer.putInt(groups.size());
+      for (Map.Entry<String, String[]> group : groups.entrySet()) {
+        writeString(buffer, group.getKey());
+        writeString(buffer, group.getValue()[0]);
+        writeString(buffer, group.getValue()[1]);
+      }
+
+      buffer.putInt(spatialObjectGroupIds.size());
+      for (Map.Entry<String, String> spatialObject : spatialObjectGroupIds.entrySet()) {
+        writeString(buffer, spatialObject.getKey());
+        writeString(buffer, spatialObject.getValue());
+        for (int value : layouts.get(spatialObject.getKey())) {
+          buffer.putInt(value);
+        }
+      }
+
+      writeString(buffer, focusedId);
+      buffer.force();
+    }
+  }
+
+  // Rough retained size, every id read from the file is its own String
+  public long estimateBytes() {
+    long bytes = Utils.estimateHashMapBytes(groups.size()) + Utils.estimateHashMapBytes(spatialObjectGroupIds.size())
+      + Utils.estimateHashMapBytes(layouts.size());
+    for (Map.Entry<String, String[]> group : groups.entrySet()) {
+      bytes += 24 + estimateStringBytes(group.getKey()) + estimateStringBytes(group.getValue()[0]) + estimateStringBytes(group.getValue()[1]);
+    }
+    for (Map.Entry<String, String> spatialObject : spatialObjectGroupIds.entrySet()) {
+      bytes += 32 + estimateStringBytes(spatialObject.getKey()) + estimateStringBytes(spatialObject.getValue());
+    }
+
+    return bytes;
+  }
+
+  private static long estimateStringBytes(@Nullable String string) {
+    return string != null ? 40 + 2L * string.length() : 0;
+  }
+
+  public int getGroupCount() {
+    return groups.size();
+  }
+
+  public int getSpatialObjectCount() {
+    return layouts.size();
+  }
+
+  public @Nullable
+  String getFocusedId() {
+    return focusedId;
+  }
+
+  public @Nullable
+  String getLastChildFocusedId(String groupId) {
+    String[] group = groups.get(groupId);
+    return group != null ? group[1] : null;
+  }
+
+  // {x0, y0, width, height} the spatial object had in groupId, null if it was not laid out or moved to another group
+  public @Nullable
+  int[] getLayout(String spatialObjectId, String groupId) {
+    return groupId.equals(spatialObjectGroupIds.get(spatialObjectId)) ? layouts.get(spatialObjectId) : null;
+  }
+
+  private static int stringSize(@Nullable String string) {
+    return 4 + (string != null ? string.getBytes(UTF_8).length : 0);
+  }
+
+  private static void writeString(ByteBuffer buffer, @Nullable String string) {
+    if (string == null) {
+      buffer.putInt(-1);
+      return;
+    }
+
+    byte[] bytes = string.getBytes(UTF_8);
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static @Nullable
+  String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+
+    // A corrupted length must not allocate past the end of the file
+    if (length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+}
@@ -0,0 +1,225 @@
+package com.reactnativespatialnavigation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Precomputed next focus ids of the spatial objects of a fixed layout screen, together with the layouts they
+ * were computed with. An entry is only used while the focused object and its targets still have their
+ * recorded layout. Free of Android dependencies.
+ *
+ * Format: MAGIC, VERSION, string count and strings, layout count and per layout the string index of the id
+ * followed by x0, y0, width and height, entry count and per entry the string index of the id followed by the
+ * string indexes of its up, right, down and left targets. Numbers are zigzag varints.
+ */
+public class NextFocusTable {
+  public static final int MAGIC = 0x534e4654; // SNFT
+  public static final int VERSION = 1;
+  private static final String[] DIRECTIONS = {"up", "right", "down", "left"};
+
+  // Spatial object id -> {x0, y0, width, height}
+  private final Map<String, int[]> layouts = new HashMap<>();
+  // Spatial object id -> target ids in DIRECTIONS order
+  private final Map<String, String[]> entries = new LinkedHashMap<>();
+
+  public int size() {
+    return entries.size();
+  }
+
+  // Rough retained size, ids are shared with the spatial objects
+  public long estimateBytes() {
+    return Utils.estimateHashMapBytes(layouts.size()) + 32L * layouts.size()
+      + Utils.estimateHashMapBytes(entries.size()) + 40L * entries.size();
+  }
+
+  public boolean contains(String spatialObjectId) {
+    return entries.containsKey(spatialObjectId);
+  }
+
+  // Adds the next focus of spatialObject, as resolved by the neighbor search
+  public <T extends SpatialNode> void put(T spatialObject, Map<String, T> nextFocus) {
+    String[] targetIds = new String[DIRECTIONS.length];
+    putLayout(spatialObject);
+
+    for (int i = 0; i < DIRECTIONS.length; i++) {
+      T target = nextFocus.get(DIRECTIONS[i]);
+      if (target != null) {
+        targetIds[i] = target.getId();
+        putLayout(target);
+      }
+    }
+
+    entries.put(spatialObject.getId(), targetIds);
+  }
+
+  /**
+   * Next focus of focusedElement keyed by direction, or null if it has no entry or if it or one of its targets
+   * doesn't have its recorded layout anymore. Directions without a target are left out.
+   */
+  public @Nullable
+  <T extends SpatialNode> Map<String, T> get(T focusedElement, Map<String, T> spatialObjects) {
+    String[] targetIds = entries.get(focusedElement.getId());
+    if (targetIds == null || !hasRecordedLayout(focusedElement)) {
+      return null;
+    }
+
+    Map<String, T> nextFocus = new HashMap<>();
+    for (int i = 0; i < DIRECTIONS.length; i++) {
+      if (targetIds[i] == null) {
+        continue;
+      }
+
+      T target = spatialObjects.get(targetIds[i]);
+      if (target == null || !hasRecordedLayout(target)) {
+        return null;
+      }
+
+      nextFocus.put(DIRECTIONS[i], target);
+    }
+
+    return nextFocus;
+  }
+
+  private boolean hasRecordedLayout(SpatialNode spatialObject) {
+    int[] recordedLayout = layouts.get(spatialObject.getId());
+    Map<String, Integer> layout = spatialObject.getLayout();
+
+    return recordedLayout != null && !layout.isEmpty()
+      && recordedLayout[0] == layout.get("x0")
+      && recordedLayout[1] == layout.get("y0")
+      && recordedLayout[2] == layout.get("width")
+      && recordedLayout[3] == layout.get("height");
+  }
+
+  private void putLayout(SpatialNode spatialObject) {
+    Map<String, Integer> layout = spatialObject.getLayout();
+    if (!layout.isEmpty()) {
+      layouts.put(spatialObject.getId(), new int[]{layout.get("x0"), layout.get("y0"), layout.get("width"), layout.get("height")});
+    }
+  }
+
+  public byte[] toByteArray() {
+    List<String> strings = new ArrayList<>();
+    Map<String, Integer> stringIndexes = new HashMap<>();
+    for (String id : layouts.keySet()) {
+      intern(id, strings, stringIndexes);
+    }
+    for (Map.Entry<String, String[]> entry : entries.entrySet()) {
+      intern(entry.getKey(), strings, stringIndexes);
+      for (String targetId : entry.getValue()) {
+        intern(targetId, strings, stringIndexes);
+      }
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(MAGIC);
+      output.writeByte(VERSION);
+
+      writeVarInt(output, strings.size());
+      for (String string : strings) {
+        output.writeUTF(string);
+      }
+
+      writeVarInt(output, layouts.size());
+      for (Map.Entry<String, int[]> layout : layouts.entrySet()) {
+        writeVarInt(output, stringIndexes.get(layout.getKey()));
+        for (int value : layout.getValue()) {
+          writeVarInt(output, value);
+        }
+      }
+
+      writeVarInt(output, entries.size());
+      for (Map.Entry<String, String[]> entry : entries.entrySet()) {
+        writeVarInt(output, stringIndexes.get(entry.getKey()));
+        for (String targetId : entry.getValue()) {
+          writeVarInt(output, targetId != null ? stringIndexes.get(targetId) : -1);
+        }
+      }
+    } catch (IOException e) {
+      // Writing to memory doesn't fail
+      throw new IllegalStateException(e);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  public static NextFocusTable fromByteArray(byte[] bytes) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+    if (input.readInt() != MAGIC) {
+      throw new IOException("Not a next focus table");
+    }
+    int version = input.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported next focus table version: " + version);
+    }
+
+    NextFocusTable table = new NextFocusTable();
+    try {
+      String[] strings = new String[readVarInt(input)];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = input.readUTF();
+      }
+
+      int layoutCount = readVarInt(input);
+      for (int i = 0; i < layoutCount; i++) {
+        String id = strings[readVarInt(input)];
+        table.layouts.put(id, new int[]{readVarInt(input), readVarInt(input), readVarInt(input), readVarInt(input)});
+      }
+
+      int entryCount = readVarInt(input);
+      for (int i = 0; i < entryCount; i++) {
+        String id = strings[readVarInt(input)];
+        String[] targetIds = new String[DIRECTIONS.length];
+        for (int j = 0; j < DIRECTIONS.length; j++) {
+          int index = readVarInt(input);
+          targetIds[j] = index >= 0 ? strings[index] : null;
+        }
+        table.entries.put(id, targetIds);
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Invalid next focus table", e);
+    }
+
+    return table;
+  }
+
+  private static void intern(@Nullable String string, List<String> strings, Map<String, Integer> stringIndexes) {
+    if (string != null && !stringIndexes.containsKey(string)) {
+      stringIndexes.put(string, strings.size());
+      strings.add(string);
+    }
+  }
+
+  private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+    int zigzag = (value << 1) ^ (value >> 31);
+    while ((zigzag & ~0x7F) != 0) {
+      output.writeByte((zigzag & 0x7F) | 0x80);
+      zigzag >>>= 7;
+    }
+    output.writeByte(zigzag);
+  }
+
+  private static int readVarInt(DataInputStream input) throws IOException {
+    int zigzag = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = input.readUnsignedByte();
+      zigzag |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+    }
+
+    throw new IOException("Malformed varint");
+  }
+}
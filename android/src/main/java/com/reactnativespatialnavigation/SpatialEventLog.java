@@ -0,0 +1,125 @@
+package com.reactnativespatialnavigation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size ring buffer of primitive event records, always on.
+ * Writers claim a sequence number with a single atomic increment and publish the record by storing
+ * its sequence number last, so writing never locks or allocates. Readers skip records that were
+ * overwritten while being read.
+ * Fields are kept in atomic arrays rather than plain ones: the writer's ordered stores keep them after
+ * the -1 marker, and the reader's volatile loads keep them before the sequence re-check, which plain
+ * array accesses are free to be reordered around.
+ */
+public class SpatialEventLog {
+  public static final int FOCUS = 1;
+  public static final int BLUR = 2;
+  public static final int LAYOUT = 3;
+  public static final int LAYOUT_CHANGE = 4;
+  public static final int NEIGHBOR_SEARCH = 5;
+  public static final int NEXT_FOCUS_WRITTEN = 6;
+  public static final int REGISTER_SPATIAL_OBJECT = 7;
+  public static final int REMOVE_SPATIAL_OBJECT = 8;
+  public static final int REGISTER_GROUP = 9;
+  public static final int REMOVE_GROUP = 10;
+  public static final int VIEW_RESOLVED = 11;
+  public static final int VIEW_DETACHED = 12;
+  public static final int GROUP_FOCUS = 13;
+  public static final int GROUP_BLUR = 14;
+
+  private static final String[] TYPE_NAMES = {
+    "unknown", "focus", "blur", "layout", "layoutChange", "neighborSearch", "nextFocusWritten", "registerSpatialObject",
+    "removeSpatialObject", "registerGroup", "removeGroup", "viewResolved", "viewDetached", "groupFocus", "groupBlur"
+  };
+
+  private final int mask;
+  private final AtomicIntegerArray types;
+  private final AtomicIntegerArray slots;
+  private final AtomicLongArray timestamps;
+  private final AtomicLongArray durations;
+  // Sequence number of the record stored at each index, -1 while it is being written
+  private final AtomicLongArray sequences;
+  private final AtomicLong cursor = new AtomicLong();
+
+  // capacity is rounded up to a power of two
+  public SpatialEventLog(int capacity) {
+    int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+    mask = size - 1;
+    types = new AtomicIntegerArray(size);
+    slots = new AtomicIntegerArray(size);
+    timestamps = new AtomicLongArray(size);
+    durations = new AtomicLongArray(size);
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, -1);
+    }
+  }
+
+  public static String getTypeName(int type) {
+    return type > 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : TYPE_NAMES[0];
+  }
+
+  // slot is the spatial object's nodeHandle or the group's slot, timestamp and duration are in nanoseconds
+  public void write(int type, int slot, long timestamp, long duration) {
+    long sequence = cursor.getAndIncrement();
+    int index = (int) (sequence & mask);
+
+    sequences.set(index, -1);
+    types.lazySet(index, type);
+    slots.lazySet(index, slot);
+    timestamps.lazySet(index, timestamp);
+    durations.lazySet(index, duration);
+    sequences.lazySet(index, sequence);
+  }
+
+  public void write(int type, int slot) {
+    write(type, slot, System.nanoTime(), 0);
+  }
+
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  // Oldest to newest
+  public List<Record> read() {
+    long end = cursor.get();
+    long start = Math.max(0, end - getCapacity());
+    List<Record> records = new ArrayList<>((int) (end - start));
+
+    for (long sequence = start; sequence < end; sequence++) {
+      int index = (int) (sequence & mask);
+      if (sequences.get(index) != sequence) {
+        continue;
+      }
+
+      Record record = new Record(sequence, types.get(index), slots.get(index), timestamps.get(index), durations.get(index));
+
+      // Overwritten while reading
+      if (sequences.get(index) == sequence) {
+        records.add(record);
+      }
+    }
+
+    return records;
+  }
+
+  public static class Record {
+    public final long sequence;
+    public final int type;
+    public final int slot;
+    public final long timestamp;
+    public final long duration;
+
+    Record(long sequence, int type, int slot, long timestamp, long duration) {
+      this.sequence = sequence;
+      this.type = type;
+      this.slot = slot;
+      this.timestamp = timestamp;
+      this.duration = duration;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.reactnativespatialnavigation;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Single set of listeners shared by every SpatialObject.
+ * Focus changes are observed once per root through a global focus listener, and views are mapped
+ * back to their SpatialObject through their id, which React Native sets to the view's nodeHandle.
+ */
+public class SpatialFocusObserver implements
+  ViewTreeObserver.OnGlobalFocusChangeListener,
+  View.OnLayoutChangeListener,
+  View.OnAttachStateChangeListener,
+  ViewTreeObserver.OnScrollChangedListener {
+  public static final String TAG = Utils.generateTag("SpatialFocusObserver");
+  private final SpatialNavigationModule spatialNavigationModule;
+  // Root view -> tree observer the global focus listener was added to
+  private final Map<View, ViewTreeObserver> observedRoots = new WeakHashMap<>();
+
+  public SpatialFocusObserver(SpatialNavigationModule spatialNavigationModule) {
+    this.spatialNavigationModule = spatialNavigationModule;
+  }
+
+  public void observe(View view) {
+    view.addOnLayoutChangeListener(this);
+    view.addOnAttachStateChangeListener(this);
+    view.setOnKeyListener(spatialNavigationModule.getKeyHandler());
+    observeRoot(view);
+  }
+
+  public void unobserve(View view) {
+    view.removeOnLayoutChangeListener(this);
+    view.removeOnAttachStateChangeListener(this);
+    view.setOnKeyListener(null);
+  }
+
+  private void observeRoot(View view) {
+    // A detached view only has a floating tree observer, which gets merged into the window's one
+    // on attach. Wait for onViewAttachedToWindow so the listener is only added once per root.
+    if (view.getWindowToken() == null) {
+      return;
+    }
+
+    View root = view.getRootView();
+    ViewTreeObserver treeObserver = root.getViewTreeObserver();
+    ViewTreeObserver observed = observedRoots.get(root);
+
+    if (observed != treeObserver || !treeObserver.isAlive()) {
+      treeObserver.addOnGlobalFocusChangeListener(this);
+      treeObserver.addOnScrollChangedListener(this);
+      observedRoots.put(root, treeObserver);
+    }
+  }
+
+  private @Nullable
+  SpatialObject getSpatialObject(@Nullable View view) {
+    if (view == null) {
+      return null;
+    }
+
+    return spatialNavigationModule.getSpatialObjectByNodeHandle(view.getId());
+  }
+
+  @Override
+  public void onGlobalFocusChanged(View oldFocus, View newFocus) {
+    SpatialObject blurred = getSpatialObject(oldFocus);
+    if (blurred != null) {
+      spatialNavigationModule.getEventLog().write(SpatialEventLog.BLUR, blurred.getNodeHandle());
+      blurred.onBlur();
+    }
+
+    SpatialObject focused = getSpatialObject(newFocus);
+    if (focused != null) {
+      focused.onFocus();
+    }
+
+    // Focus changes commonly start scale and slide animations
+    spatialNavigationModule.getLayoutRefresher().trackFocusChange(blurred, focused);
+  }
+
+  @Override
+  public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+    spatialNavigationModule.getEventLog().write(SpatialEventLog.LAYOUT_CHANGE, v.getId());
+
+    SpatialObject spatialObject = getSpatialObject(v);
+    if (spatialObject != null) {
+      spatialNavigationModule.getLayoutRefresher().track(spatialObject);
+    }
+  }
+
+  // Scrolling moves the viewport, culled neighbor searches have to run again
+  @Override
+  public void onScrollChanged() {
+    if (spatialNavigationModule.isViewportCullingEnabled()) {
+      spatialNavigationModule.invalidateNextFocus();
+    }
+  }
+
+  @Override
+  public void onViewAttachedToWindow(View v) {
+    observeRoot(v);
+  }
+
+  @Override
+  public void onViewDetachedFromWindow(View v) {
+    spatialNavigationModule.getEventLog().write(SpatialEventLog.VIEW_DETACHED, v.getId());
+    spatialNavigationModule.retireCollectedSpatialObjects();
+  }
+}
@@ -0,0 +1,203 @@
+package com.reactnativespatialnavigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Uniform grid over the layouts of spatial objects, answers range queries without scanning every object.
+ * Free of Android dependencies. Objects are indexed under every cell their layout overlaps.
+ */
+public class SpatialIndex<T extends SpatialNode> {
+  private final int cellSize;
+  // Cell key -> objects overlapping the cell
+  private Map<Long, Set<T>> cells = new HashMap<>();
+  // Object -> bounds it is currently indexed with, {x0, y0, x1, y1}
+  private Map<T, int[]> indexedBounds = new HashMap<>();
+  // Cell range covered by indexed objects, bounds the search of findNearest
+  private int minCellX = Integer.MAX_VALUE;
+  private int minCellY = Integer.MAX_VALUE;
+  private int maxCellX = Integer.MIN_VALUE;
+  private int maxCellY = Integer.MIN_VALUE;
+
+  public SpatialIndex(int cellSize) {
+    this.cellSize = cellSize;
+  }
+
+  public synchronized int size() {
+    return indexedBounds.size();
+  }
+
+  // Replaces the maps rather than clearing them so their tables are released too
+  public synchronized void clear() {
+    cells = new HashMap<>();
+    indexedBounds = new HashMap<>();
+    minCellX = Integer.MAX_VALUE;
+    minCellY = Integer.MAX_VALUE;
+    maxCellX = Integer.MIN_VALUE;
+    maxCellY = Integer.MIN_VALUE;
+  }
+
+  // Rough retained size, every cell holds a LinkedHashSet and every object its bounds
+  public synchronized long estimateBytes() {
+    long bytes = Utils.estimateHashMapBytes(cells.size()) + Utils.estimateHashMapBytes(indexedBounds.size());
+    for (Set<T> cell : cells.values()) {
+      bytes += 16 + Utils.estimateHashMapBytes(cell.size()) + 8L * cell.size();
+    }
+
+    return bytes + 32L * indexedBounds.size();
+  }
+
+  // Indexes the current layout of spatialObject, objects without a layout are removed from the index
+  public synchronized void update(T spatialObject) {
+    Map<String, Integer> layout = spatialObject.getLayout();
+    if (layout.isEmpty()) {
+      remove(spatialObject);
+      return;
+    }
+
+    int[] bounds = {layout.get("x0"), layout.get("y0"), layout.get("x1"), layout.get("y1")};
+    int[] previousBounds = indexedBounds.get(spatialObject);
+    if (previousBounds != null && Arrays.equals(previousBounds, bounds)) {
+      return;
+    }
+
+    remove(spatialObject);
+    indexedBounds.put(spatialObject, bounds);
+
+    for (int cellX = toCell(bounds[0]); cellX <= toLastCell(bounds[0], bounds[2]); cellX++) {
+      for (int cellY = toCell(bounds[1]); cellY <= toLastCell(bounds[1], bounds[3]); cellY++) {
+        Set<T> cell = cells.get(toKey(cellX, cellY));
+        if (cell == null) {
+          cell = new LinkedHashSet<>();
+          cells.put(toKey(cellX, cellY), cell);
+        }
+        cell.add(spatialObject);
+
+        minCellX = Math.min(minCellX, cellX);
+        minCellY = Math.min(minCellY, cellY);
+        maxCellX = Math.max(maxCellX, cellX);
+        maxCellY = Math.max(maxCellY, cellY);
+      }
+    }
+  }
+
+  public synchronized void remove(T spatialObject) {
+    int[] bounds = indexedBounds.remove(spatialObject);
+    if (bounds == null) {
+      return;
+    }
+
+    for (int cellX = toCell(bounds[0]); cellX <= toLastCell(bounds[0], bounds[2]); cellX++) {
+      for (int cellY = toCell(bounds[1]); cellY <= toLastCell(bounds[1], bounds[3]); cellY++) {
+        Set<T> cell = cells.get(toKey(cellX, cellY));
+        if (cell != null) {
+          cell.remove(spatialObject);
+          if (cell.isEmpty()) {
+            cells.remove(toKey(cellX, cellY));
+          }
+        }
+      }
+    }
+  }
+
+  // {x0, y0, x1, y1} of the cells that ever held an object, null if nothing was indexed
+  public synchronized @Nullable
+  int[] getIndexedArea() {
+    if (minCellX > maxCellX) {
+      return null;
+    }
+
+    return new int[]{minCellX * cellSize, minCellY * cellSize, (maxCellX + 1) * cellSize, (maxCellY + 1) * cellSize};
+  }
+
+  // Objects whose layout intersects the rect
+  public synchronized List<T> query(int x0, int y0, int x1, int y1) {
+    Set<T> result = new LinkedHashSet<>();
+
+    for (int cellX = toCell(x0); cellX <= toLastCell(x0, x1); cellX++) {
+      for (int cellY = toCell(y0); cellY <= toLastCell(y0, y1); cellY++) {
+        Set<T> cell = cells.get(toKey(cellX, cellY));
+        if (cell == null) {
+          continue;
+        }
+
+        for (T spatialObject : cell) {
+          int[] bounds = indexedBounds.get(spatialObject);
+          if (bounds[0] < x1 && bounds[2] > x0 && bounds[1] < y1 && bounds[3] > y0) {
+            result.add(spatialObject);
+          }
+        }
+      }
+    }
+
+    return new ArrayList<>(result);
+  }
+
+  /**
+   * Object whose center is closest to the center of the rect, preferring objects that intersect it.
+   * The rect grows by a cell on every side until something is found or the indexed area is covered.
+   */
+  public synchronized @Nullable
+  T findNearest(int x0, int y0, int x1, int y1) {
+    if (indexedBounds.isEmpty()) {
+      return null;
+    }
+
+    long centerX2 = (long) x0 + x1;
+    long centerY2 = (long) y0 + y1;
+    int growth = 0;
+
+    while (true) {
+      List<T> candidates = query(x0 - growth, y0 - growth, x1 + growth, y1 + growth);
+      if (!candidates.isEmpty()) {
+        T nearest = null;
+        long nearestDistance = Long.MAX_VALUE;
+
+        for (T candidate : candidates) {
+          int[] bounds = indexedBounds.get(candidate);
+          long dx = bounds[0] + bounds[2] - centerX2;
+          long dy = bounds[1] + bounds[3] - centerY2;
+          long distance = dx * dx + dy * dy;
+
+          if (distance < nearestDistance) {
+            nearest = candidate;
+            nearestDistance = distance;
+          }
+        }
+
+        return nearest;
+      }
+
+      boolean coversIndexedArea = toCell(x0 - growth) <= minCellX && toCell(y0 - growth) <= minCellY
+        && toCell(x1 + growth - 1) >= maxCellX && toCell(y1 + growth - 1) >= maxCellY;
+      if (coversIndexedArea) {
+        return null;
+      }
+
+      growth += cellSize;
+    }
+  }
+
+  private int toCell(int coordinate) {
+    // Rounds towards negative infinity, Math.floorDiv needs API 24
+    return coordinate >= 0 ? coordinate / cellSize : -((-(coordinate + 1)) / cellSize) - 1;
+  }
+
+  // Last cell of the [start, end) range, empty ranges still cover the cell of start
+  private int toLastCell(int start, int end) {
+    return toCell(Math.max(start, end - 1));
+  }
+
+  // Long.hashCode of the packed cells is cellX ^ cellY, which collides along every diagonal of a grid.
+  // Multiplying by an odd constant keeps keys unique and spreads both cells over the hash.
+  private static long toKey(int cellX, int cellY) {
+    return (((long) cellX << 32) | (cellY & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+  }
+}
@@ -0,0 +1,155 @@
+package com.reactnativespatialnavigation;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Focuses the preferred child of a group with hasTVPreferredFocus once the mount burst of its navigation root settled,
+ * instead of as soon as the child registers. The child is focused after settleFrames frames without registrations
+ * or layout updates in the navigation root, so its first neighbor search already sees the layouts of its siblings.
+ * Each navigation root gets at most one initial focus, the latest preferred child scheduled in it. It is dropped when
+ * focus is requested or a D-pad key goes down in the root before it settled.
+ * Only used on the UI thread.
+ */
+public class SpatialInitialFocusResolver implements Choreographer.FrameCallback {
+  private static final String TAG = Utils.generateTag("SpatialInitialFocusResolver");
+  // Screens that keep registering, e.g. a streamed catalog, still get their initial focus after about half a second
+  private static final int MAX_SETTLE_FRAMES = 30;
+
+  private final SpatialNavigationModule spatialNavigationModule;
+  // Navigation root id -> preferred child waiting for the root to settle
+  private final Map<String, PendingFocus> pendingFocuses = new LinkedHashMap<>();
+  // Registrations and layout updates per navigation root, compared between frames
+  private final Map<String, Integer> activityCounts = new HashMap<>();
+  private volatile int settleFrames = 3;
+  private boolean isFrameScheduled = false;
+
+  public SpatialInitialFocusResolver(SpatialNavigationModule spatialNavigationModule) {
+    this.spatialNavigationModule = spatialNavigationModule;
+  }
+
+  // 0 focuses the preferred child as soon as it registers
+  public void setSettleFrames(int settleFrames) {
+    this.settleFrames = Math.max(0, settleFrames);
+  }
+
+  public void schedule(SpatialGroup group, SpatialObject preferredChild) {
+    if (settleFrames == 0) {
+      preferredChild.focus();
+      return;
+    }
+
+    String navigationRootId = group.getNavigationRootId();
+    if (spatialNavigationModule.isFocusRestored(navigationRootId)) {
+      Log.d(TAG, "Snapshot focus stands over preferred child: " + preferredChild.getId());
+      return;
+    }
+
+    PendingFocus pendingFocus = new PendingFocus(preferredChild, navigationRootId, getActivityCount(navigationRootId));
+    PendingFocus replaced = pendingFocuses.put(navigationRootId, pendingFocus);
+    if (replaced != null) {
+      // Keeps counting towards MAX_SETTLE_FRAMES, screens that keep adding preferred children still get focus
+      pendingFocus.frames = replaced.frames;
+    }
+    scheduleFrame();
+  }
+
+  // Focus was requested in the navigation root, its initial focus would take it away
+  public void cancel(String navigationRootId) {
+    PendingFocus pendingFocus = pendingFocuses.remove(navigationRootId);
+    if (pendingFocus != null) {
+      Log.d(TAG, "Focus moved before the preferred child settled: " + pendingFocus.preferredChild.getId());
+    }
+  }
+
+  public void onActivity(String navigationRootId) {
+    if (pendingFocuses.isEmpty()) {
+      return;
+    }
+
+    activityCounts.put(navigationRootId, getActivityCount(navigationRootId) + 1);
+  }
+
+  public void clear() {
+    pendingFocuses.clear();
+    activityCounts.clear();
+    if (isFrameScheduled) {
+      Choreographer.getInstance().removeFrameCallback(this);
+      isFrameScheduled = false;
+    }
+  }
+
+  private int getActivityCount(String navigationRootId) {
+    Integer activityCount = activityCounts.get(navigationRootId);
+    return activityCount != null ? activityCount : 0;
+  }
+
+  private void scheduleFrame() {
+    if (!isFrameScheduled) {
+      isFrameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    isFrameScheduled = false;
+
+    // Focused after the loop, focusing cancels the pending focus of the root
+    List<PendingFocus> settledFocuses = new ArrayList<>();
+    Iterator<PendingFocus> iterator = pendingFocuses.values().iterator();
+    while (iterator.hasNext()) {
+      PendingFocus pendingFocus = iterator.next();
+      int activityCount = getActivityCount(pendingFocus.navigationRootId);
+
+      pendingFocus.frames++;
+      if (activityCount != pendingFocus.activityCount) {
+        pendingFocus.activityCount = activityCount;
+        pendingFocus.quietFrames = 0;
+      } else {
+        pendingFocus.quietFrames++;
+      }
+
+      if (pendingFocus.quietFrames < settleFrames && pendingFocus.frames < MAX_SETTLE_FRAMES) {
+        continue;
+      }
+
+      iterator.remove();
+      settledFocuses.add(pendingFocus);
+    }
+
+    for (PendingFocus pendingFocus : settledFocuses) {
+      spatialNavigationModule.getMetrics().recordInitialFocus(pendingFocus.frames);
+      if (!pendingFocus.preferredChild.focusNow()) {
+        Log.d(TAG, "Preferred child is gone: " + pendingFocus.preferredChild.getId());
+      }
+    }
+
+    if (pendingFocuses.isEmpty()) {
+      activityCounts.clear();
+    } else {
+      scheduleFrame();
+    }
+  }
+
+  private static class PendingFocus {
+    final SpatialObject preferredChild;
+    final String navigationRootId;
+    int activityCount;
+    int quietFrames = 0;
+    int frames = 0;
+
+    PendingFocus(SpatialObject preferredChild, String navigationRootId, int activityCount) {
+      this.preferredChild = preferredChild;
+      this.navigationRootId = navigationRootId;
+      this.activityCount = activityCount;
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package com.reactnativespatialnavigation;
+
+import android.view.Choreographer;
+import android.view.KeyEvent;
+import android.view.View;
+
+import javax.annotation.Nullable;
+
+/**
+ * Fast traversal for held D-pad keys.
+ * Auto-repeated key downs only advance a pending target along the cached neighbor chain, focus is
+ * committed once per frame so the full focus pipeline runs at most once per frame instead of once per repeat.
+ * Disabled by default, toggled through the enableFastTraversal option of init().
+ * Also moves focus for the diagonal D-pad keys of game pads when enableDiagonalNavigation is set, Android has
+ * no focus search for those.
+ */
+public class SpatialKeyHandler implements View.OnKeyListener, Choreographer.FrameCallback {
+  public static final String TAG = Utils.generateTag("SpatialKeyHandler");
+  // Neighbors resolved ahead of the committed focus so the next repeats hit the cache
+  private static final int LOOKAHEAD_STEPS = 3;
+  private final SpatialNavigationModule spatialNavigationModule;
+  private volatile boolean isFastTraversalEnabled = false;
+  private @Nullable
+  SpatialObject pendingTarget;
+  private @Nullable
+  String pendingDirection;
+  private boolean isCommitScheduled = false;
+
+  public SpatialKeyHandler(SpatialNavigationModule spatialNavigationModule) {
+    this.spatialNavigationModule = spatialNavigationModule;
+  }
+
+  public void setFastTraversalEnabled(boolean enabled) {
+    isFastTraversalEnabled = enabled;
+  }
+
+  public static @Nullable
+  String getDirection(int keyCode) {
+    switch (keyCode) {
+      case KeyEvent.KEYCODE_DPAD_UP:
+        return "up";
+      case KeyEvent.KEYCODE_DPAD_RIGHT:
+        return "right";
+      case KeyEvent.KEYCODE_DPAD_DOWN:
+        return "down";
+      case KeyEvent.KEYCODE_DPAD_LEFT:
+        return "left";
+      case KeyEvent.KEYCODE_DPAD_UP_RIGHT:
+        return "upRight";
+      case KeyEvent.KEYCODE_DPAD_DOWN_RIGHT:
+        return "downRight";
+      case KeyEvent.KEYCODE_DPAD_DOWN_LEFT:
+        return "downLeft";
+      case KeyEvent.KEYCODE_DPAD_UP_LEFT:
+        return "upLeft";
+      default:
+        return null;
+    }
+  }
+
+  private static boolean isDiagonal(String direction) {
+    for (String diagonalDirection : Utils.DIAGONAL_DIRECTIONS) {
+      if (diagonalDirection.equals(direction)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  // Spatial object that gets focus when moving from spatialObject in direction, from the neighbor cache when valid
+  public @Nullable
+  SpatialObject resolveTarget(SpatialObject spatialObject, String direction) {
+    if (!spatialObject.isLayoutMeasured()) {
+      spatialObject.updateLayout();
+    }
+
+    SpatialObject target = spatialNavigationModule.resolveNextFocus(spatialObject).get(direction);
+    if (target == null || target == spatialObject || target.isRemoved() || target.getView() == null) {
+      return null;
+    }
+
+    return target;
+  }
+
+  @Override
+  public boolean onKey(View v, int keyCode, KeyEvent event) {
+    String direction = getDirection(keyCode);
+    if (direction == null) {
+      return false;
+    }
+
+    if (event.getAction() == KeyEvent.ACTION_UP) {
+      commitPendingTarget();
+      return false;
+    }
+
+    // The user is navigating, the initial focus of the root is no longer wanted
+    SpatialObject focused = spatialNavigationModule.getSpatialObjectByNodeHandle(v.getId());
+    if (focused != null) {
+      spatialNavigationModule.getInitialFocusResolver().cancel(focused.getNavigationRootId());
+    }
+
+    if (isDiagonal(direction)) {
+      return onDiagonalKey(v, direction, event);
+    }
+
+    if (!isFastTraversalEnabled || event.getAction() != KeyEvent.ACTION_DOWN || event.getRepeatCount() == 0) {
+      return false;
+    }
+
+    // Direction changed while a target was pending, land there first
+    if (pendingTarget != null && !direction.equals(pendingDirection)) {
+      commitPendingTarget();
+    }
+
+    SpatialObject from = pendingTarget != null ? pendingTarget : spatialNavigationModule.getSpatialObjectByNodeHandle(v.getId());
+    if (from == null) {
+      return false;
+    }
+
+    SpatialObject target = resolveTarget(from, direction);
+    if (target == null) {
+      // Edge of the layout, nothing to move to but the pending target still has to land
+      return pendingTarget != null;
+    }
+
+    pendingTarget = target;
+    pendingDirection = direction;
+    spatialNavigationModule.getMetrics().recordFastTraversalStep();
+    scheduleCommit();
+    return true;
+  }
+
+  /**
+   * Key events of the window before the view hierarchy gets them, see SpatialKeyInterceptor.
+   * Key downs move focus from focusedView right away, repeats still go through fast traversal when it is enabled.
+   * Returns false when focus did not move so the event is dispatched as usual.
+   */
+  public boolean onInterceptedKey(View focusedView, KeyEvent event) {
+    String direction = getDirection(event.getKeyCode());
+    if (direction == null || event.getAction() != KeyEvent.ACTION_DOWN) {
+      // Key ups are passed on to onKey of the focused view, which commits the pending target
+      return false;
+    }
+
+    if (isDiagonal(direction)) {
+      return onDiagonalKey(focusedView, direction, event);
+    }
+
+    if (isFastTraversalEnabled && event.getRepeatCount() > 0) {
+      return onKey(focusedView, event.getKeyCode(), event);
+    }
+
+    commitPendingTarget();
+    SpatialObject from = spatialNavigationModule.getSpatialObjectByNodeHandle(focusedView.getId());
+    SpatialObject target = from != null ? resolveTarget(from, direction) : null;
+    boolean hasMoved = target != null && target.focusNow();
+    spatialNavigationModule.getMetrics().recordInterceptedKey(hasMoved);
+    return hasMoved;
+  }
+
+  // Diagonals are never auto-repeated through the pending target, every key down moves focus right away
+  private boolean onDiagonalKey(View v, String direction, KeyEvent event) {
+    if (!spatialNavigationModule.isDiagonalNavigationEnabled() || event.getAction() != KeyEvent.ACTION_DOWN) {
+      return false;
+    }
+
+    commitPendingTarget();
+    SpatialObject from = spatialNavigationModule.getSpatialObjectByNodeHandle(v.getId());
+    SpatialObject target = from != null ? resolveTarget(from, direction) : null;
+    if (target != null) {
+      target.focusNow();
+    }
+
+    return true;
+  }
+
+  private void scheduleCommit() {
+    if (!isCommitScheduled) {
+      isCommitScheduled = true;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    isCommitScheduled = false;
+    commitPendingTarget();
+  }
+
+  private void commitPendingTarget() {
+    if (isCommitScheduled) {
+      Choreographer.getInstance().removeFrameCallback(this);
+      isCommitScheduled = false;
+    }
+
+    SpatialObject target = pendingTarget;
+    String direction = pendingDirection;
+    pendingTarget = null;
+    pendingDirection = null;
+
+    if (target == null || direction == null || !target.focusNow()) {
+      return;
+    }
+
+    spatialNavigationModule.getMetrics().recordFastTraversalCommit();
+
+    SpatialObject next = target;
+    for (int i = 0; i < LOOKAHEAD_STEPS && next != null; i++) {
+      next = resolveTarget(next, direction);
+    }
+  }
+}
@@ -0,0 +1,232 @@
+package com.reactnativespatialnavigation;
+
+import android.os.Build;
+import android.view.ActionMode;
+import android.view.KeyEvent;
+import android.view.KeyboardShortcutGroup;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
+import android.view.SearchEvent;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+import android.view.accessibility.AccessibilityEvent;
+
+import androidx.annotation.RequiresApi;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Wraps the callback of the activity's window to handle D-pad key downs before the view hierarchy sees them.
+ * The target is resolved synchronously from the engine and focused right away, so moving focus never depends on
+ * the next focus ids that are written to a view after it got focus. Keys that don't move focus are dispatched as usual.
+ * Key downs that move focus never reach the ReactRootView, their onHWKeyEvent for the TV event handler of React Native
+ * is emitted here instead. Views and key listeners in the hierarchy don't see them.
+ * Enabled through the enableKeyInterception option of init(), only used on the UI thread.
+ */
+public class SpatialKeyInterceptor implements Window.Callback {
+  private final Window.Callback wrapped;
+  private final Window window;
+  private final SpatialNavigationModule spatialNavigationModule;
+
+  private SpatialKeyInterceptor(Window.Callback wrapped, Window window, SpatialNavigationModule spatialNavigationModule) {
+    this.wrapped = wrapped;
+    this.window = window;
+    this.spatialNavigationModule = spatialNavigationModule;
+  }
+
+  public static void install(Window window, SpatialNavigationModule spatialNavigationModule) {
+    Window.Callback callback = window.getCallback();
+    if (callback != null && !(callback instanceof SpatialKeyInterceptor)) {
+      window.setCallback(new SpatialKeyInterceptor(callback, window, spatialNavigationModule));
+    }
+  }
+
+  public static void uninstall(Window window) {
+    Window.Callback callback = window.getCallback();
+    if (callback instanceof SpatialKeyInterceptor) {
+      window.setCallback(((SpatialKeyInterceptor) callback).wrapped);
+    }
+  }
+
+  @Override
+  public boolean dispatchKeyEvent(KeyEvent event) {
+    View focusedView = window.getDecorView().findFocus();
+    if (focusedView != null && spatialNavigationModule.getKeyHandler().onInterceptedKey(focusedView, event)) {
+      emitHWKeyEvent(event, focusedView.getId());
+      return true;
+    }
+
+    return wrapped.dispatchKeyEvent(event);
+  }
+
+  // Same payload as ReactAndroidHWInputDeviceHelper, tag is the view that had focus when the key went down
+  private void emitHWKeyEvent(KeyEvent event, int focusedViewId) {
+    String eventType = getHWKeyEventType(event.getKeyCode());
+    if (eventType == null) {
+      return;
+    }
+
+    WritableMap params = Arguments.createMap();
+    params.putString("eventType", eventType);
+    params.putInt("eventKeyAction", event.getAction());
+    if (focusedViewId != View.NO_ID) {
+      params.putInt("tag", focusedViewId);
+    }
+
+    spatialNavigationModule.getReactContext()
+      .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+      .emit("onHWKeyEvent", params);
+  }
+
+  // Only the D-pad keys React Native reports, the diagonals have no event type there
+  private static @Nullable
+  String getHWKeyEventType(int keyCode) {
+    switch (keyCode) {
+      case KeyEvent.KEYCODE_DPAD_UP:
+        return "up";
+      case KeyEvent.KEYCODE_DPAD_RIGHT:
+        return "right";
+      case KeyEvent.KEYCODE_DPAD_DOWN:
+        return "down";
+      case KeyEvent.KEYCODE_DPAD_LEFT:
+        return "left";
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public boolean dispatchKeyShortcutEvent(KeyEvent event) {
+    return wrapped.dispatchKeyShortcutEvent(event);
+  }
+
+  @Override
+  public boolean dispatchTouchEvent(MotionEvent event) {
+    return wrapped.dispatchTouchEvent(event);
+  }
+
+  @Override
+  public boolean dispatchTrackballEvent(MotionEvent event) {
+    return wrapped.dispatchTrackballEvent(event);
+  }
+
+  @Override
+  public boolean dispatchGenericMotionEvent(MotionEvent event) {
+    return wrapped.dispatchGenericMotionEvent(event);
+  }
+
+  @Override
+  public boolean dispatchPopulateAccessibilityEvent(AccessibilityEvent event) {
+    return wrapped.dispatchPopulateAccessibilityEvent(event);
+  }
+
+  @Override
+  public @Nullable
+  View onCreatePanelView(int featureId) {
+    return wrapped.onCreatePanelView(featureId);
+  }
+
+  @Override
+  public boolean onCreatePanelMenu(int featureId, Menu menu) {
+    return wrapped.onCreatePanelMenu(featureId, menu);
+  }
+
+  @Override
+  public boolean onPreparePanel(int featureId, View view, Menu menu) {
+    return wrapped.onPreparePanel(featureId, view, menu);
+  }
+
+  @Override
+  public boolean onMenuOpened(int featureId, Menu menu) {
+    return wrapped.onMenuOpened(featureId, menu);
+  }
+
+  @Override
+  public boolean onMenuItemSelected(int featureId, MenuItem item) {
+    return wrapped.onMenuItemSelected(featureId, item);
+  }
+
+  @Override
+  public void onWindowAttributesChanged(WindowManager.LayoutParams attrs) {
+    wrapped.onWindowAttributesChanged(attrs);
+  }
+
+  @Override
+  public void onContentChanged() {
+    wrapped.onContentChanged();
+  }
+
+  @Override
+  public void onWindowFocusChanged(boolean hasFocus) {
+    wrapped.onWindowFocusChanged(hasFocus);
+  }
+
+  @Override
+  public void onAttachedToWindow() {
+    wrapped.onAttachedToWindow();
+  }
+
+  @Override
+  public void onDetachedFromWindow() {
+    wrapped.onDetachedFromWindow();
+  }
+
+  @Override
+  public void onPanelClosed(int featureId, Menu menu) {
+    wrapped.onPanelClosed(featureId, menu);
+  }
+
+  @Override
+  public boolean onSearchRequested() {
+    return wrapped.onSearchRequested();
+  }
+
+  @RequiresApi(api = Build.VERSION_CODES.M)
+  @Override
+  public boolean onSearchRequested(SearchEvent searchEvent) {
+    return wrapped.onSearchRequested(searchEvent);
+  }
+
+  @Override
+  public @Nullable
+  ActionMode onWindowStartingActionMode(ActionMode.Callback callback) {
+    return wrapped.onWindowStartingActionMode(callback);
+  }
+
+  @RequiresApi(api = Build.VERSION_CODES.M)
+  @Override
+  public @Nullable
+  ActionMode onWindowStartingActionMode(ActionMode.Callback callback, int type) {
+    return wrapped.onWindowStartingActionMode(callback, type);
+  }
+
+  @Override
+  public void onActionModeStarted(ActionMode mode) {
+    wrapped.onActionModeStarted(mode);
+  }
+
+  @Override
+  public void onActionModeFinished(ActionMode mode) {
+    wrapped.onActionModeFinished(mode);
+  }
+
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  @Override
+  public void onProvideKeyboardShortcuts(List<KeyboardShortcutGroup> data, @Nullable Menu menu, int deviceId) {
+    wrapped.onProvideKeyboardShortcuts(data, menu, deviceId);
+  }
+
+  @RequiresApi(api = Build.VERSION_CODES.O)
+  @Override
+  public void onPointerCaptureChanged(boolean hasCapture) {
+    wrapped.onPointerCaptureChanged(hasCapture);
+  }
+}
@@ -0,0 +1,158 @@
+package com.reactnativespatialnavigation;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Follows the transformed bounds of views that may be animating, after a layout change or a focus change,
+ * and writes them back to their SpatialObject according to its layoutRefreshPolicy:
+ * "frame" stores the bounds of every frame they changed in, "settled" only once they stopped changing.
+ * Only used on the UI thread.
+ */
+public class SpatialLayoutRefresher implements Choreographer.FrameCallback {
+  public static final String POLICY_FRAME = "frame";
+  public static final String POLICY_SETTLED = "settled";
+  // Frames the bounds have to stay the same before an animation counts as settled
+  private static final int SETTLE_FRAMES = 2;
+  // Looping animations never settle, stop following them after about 2 seconds at 60fps
+  private static final int MAX_TRACKED_FRAMES = 120;
+
+  private final SpatialNavigationModule spatialNavigationModule;
+  private final Map<SpatialObject, TrackedLayout> trackedLayouts = new LinkedHashMap<>();
+  private boolean isFrameScheduled = false;
+
+  public SpatialLayoutRefresher(SpatialNavigationModule spatialNavigationModule) {
+    this.spatialNavigationModule = spatialNavigationModule;
+  }
+
+  public void track(SpatialObject spatialObject) {
+    TrackedLayout trackedLayout = trackedLayouts.get(spatialObject);
+    if (trackedLayout != null) {
+      // Follow a restarted animation for another full window
+      trackedLayout.frames = 0;
+    } else {
+      trackedLayouts.put(spatialObject, new TrackedLayout());
+    }
+
+    scheduleFrame();
+  }
+
+  // Tracks the focused spatial object and the siblings that can move along with it, e.g. a rail sliding to it.
+  // Only the siblings on screen are followed, long rails would otherwise walk every tile each frame. The others are
+  // refreshed when they get focus or their own layout changes
+  public void trackFocusChange(@Nullable SpatialObject blurred, @Nullable SpatialObject focused) {
+    if (blurred != null) {
+      track(blurred);
+    }
+
+    if (focused == null) {
+      return;
+    }
+
+    track(focused);
+    SpatialGroup group = spatialNavigationModule.getGroup(focused.getGroupId());
+    if (group == null) {
+      return;
+    }
+
+    for (String childId : new ArrayList<>(group.getSpatialChildIds().keySet())) {
+      SpatialObject sibling = spatialNavigationModule.getSpatialObject(childId);
+      if (sibling != null && sibling != focused && sibling.isOnScreen()) {
+        track(sibling);
+      }
+    }
+  }
+
+  public void clear() {
+    trackedLayouts.clear();
+    if (isFrameScheduled) {
+      Choreographer.getInstance().removeFrameCallback(this);
+      isFrameScheduled = false;
+    }
+  }
+
+  private void scheduleFrame() {
+    if (!isFrameScheduled) {
+      isFrameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    isFrameScheduled = false;
+    boolean hasCommitted = false;
+    int samples = 0;
+    int[] bounds = new int[4];
+
+    Iterator<Map.Entry<SpatialObject, TrackedLayout>> iterator = trackedLayouts.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<SpatialObject, TrackedLayout> entry = iterator.next();
+      SpatialObject spatialObject = entry.getKey();
+      TrackedLayout trackedLayout = entry.getValue();
+
+      if (spatialObject.isRemoved() || !spatialObject.sampleLayout(bounds)) {
+        iterator.remove();
+        continue;
+      }
+
+      samples++;
+      trackedLayout.frames++;
+      if (trackedLayout.update(bounds)) {
+        trackedLayout.stableFrames = 0;
+      } else {
+        trackedLayout.stableFrames++;
+      }
+
+      boolean isSettled = trackedLayout.stableFrames >= SETTLE_FRAMES;
+      boolean isTimedOut = trackedLayout.frames >= MAX_TRACKED_FRAMES;
+      boolean shouldCommit = isSettled || isTimedOut
+        || (POLICY_FRAME.equals(spatialObject.getLayoutRefreshPolicy()) && trackedLayout.stableFrames == 0);
+
+      if (shouldCommit && spatialObject.refreshLayout()) {
+        hasCommitted = true;
+        spatialNavigationModule.getMetrics().recordLayoutRefreshCommit();
+      }
+
+      if (isSettled || isTimedOut) {
+        iterator.remove();
+      }
+    }
+
+    spatialNavigationModule.getMetrics().recordLayoutRefreshSamples(samples);
+
+    // Once per frame, however many layouts changed
+    if (hasCommitted) {
+      spatialNavigationModule.recalculateNextFocusNodeHandles();
+    }
+
+    if (!trackedLayouts.isEmpty()) {
+      scheduleFrame();
+    }
+  }
+
+  private static class TrackedLayout {
+    private final int[] bounds = {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+    private int stableFrames = 0;
+    private int frames = 0;
+
+    // Stores the sampled bounds, returns whether they differ from the previous sample
+    boolean update(int[] sampledBounds) {
+      boolean hasChanged = false;
+      for (int i = 0; i < bounds.length; i++) {
+        if (bounds[i] != sampledBounds[i]) {
+          bounds[i] = sampledBounds[i];
+          hasChanged = true;
+        }
+      }
+
+      return hasChanged;
+    }
+  }
+}
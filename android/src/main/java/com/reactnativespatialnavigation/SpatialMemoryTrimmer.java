@@ -0,0 +1,61 @@
+package com.reactnativespatialnavigation;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+
+import com.facebook.react.bridge.UiThreadUtil;
+
+/**
+ * Sheds the engine's caches when the system asks the app to trim memory, least valuable tier first.
+ * Every tier also sheds the tiers before it, and everything shed is rebuilt lazily the next time it is needed.
+ */
+public class SpatialMemoryTrimmer implements ComponentCallbacks2 {
+  // Next focus results of objects that are not focused, mostly filled ahead of key presses, and the warm start snapshot
+  public static final int TIER_SPECULATIVE = 1;
+  // Next focus tables and spatial indexes of the navigation roots that are not active
+  public static final int TIER_OFF_ROOT_TABLES = 2;
+  // Layouts of the spatial objects that are not on screen
+  public static final int TIER_OFF_SCREEN_LAYOUTS = 3;
+
+  private final SpatialNavigationModule spatialNavigationModule;
+
+  public SpatialMemoryTrimmer(SpatialNavigationModule spatialNavigationModule) {
+    this.spatialNavigationModule = spatialNavigationModule;
+  }
+
+  public static int getTier(int level) {
+    switch (level) {
+      case TRIM_MEMORY_RUNNING_MODERATE:
+      case TRIM_MEMORY_UI_HIDDEN:
+        return TIER_SPECULATIVE;
+      case TRIM_MEMORY_RUNNING_LOW:
+      case TRIM_MEMORY_BACKGROUND:
+        return TIER_OFF_ROOT_TABLES;
+      case TRIM_MEMORY_RUNNING_CRITICAL:
+      case TRIM_MEMORY_MODERATE:
+      case TRIM_MEMORY_COMPLETE:
+        return TIER_OFF_SCREEN_LAYOUTS;
+      default:
+        // Levels added after COMPLETE are at least as severe
+        return level > TRIM_MEMORY_COMPLETE ? TIER_OFF_SCREEN_LAYOUTS : 0;
+    }
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    int tier = getTier(level);
+    if (tier > 0) {
+      // Caches are only touched on the UI thread
+      UiThreadUtil.runOnUiThread(() -> spatialNavigationModule.shedCaches(tier));
+    }
+  }
+
+  @Override
+  public void onLowMemory() {
+    UiThreadUtil.runOnUiThread(() -> spatialNavigationModule.shedCaches(TIER_OFF_SCREEN_LAYOUTS));
+  }
+
+  @Override
+  public void onConfigurationChanged(Configuration newConfig) {
+  }
+}
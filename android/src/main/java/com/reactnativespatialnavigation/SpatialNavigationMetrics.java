@@ -0,0 +1,277 @@
+package com.reactnativespatialnavigation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Low overhead counters and latency histograms for the focus pipeline.
+ * Recording only touches primitive fields, values are meant to be written and read on the UI thread.
+ */
+public class SpatialNavigationMetrics {
+  private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+  // Names of the SpatialMemoryTrimmer tiers, indexed by tier
+  public static final String[] CACHE_TIER_NAMES = {"none", "speculative", "offRootTables", "offScreenLayouts"};
+
+  private final Histogram neighborSearchTime = new Histogram();
+  private final Histogram candidatesScanned = new Histogram();
+  private final Histogram uiBlockResolutionDelay = new Histogram();
+  private final Histogram focusToNextFocusWritten = new Histogram();
+
+  private long recalculations = 0;
+  private long recalculationWindowStart = 0;
+  private long recalculationWindowCount = 0;
+  private long recalculationsPerSecond = 0;
+  private long peakRecalculationsPerSecond = 0;
+  private long fastTraversalSteps = 0;
+  private long fastTraversalCommits = 0;
+  private long culledSearches = 0;
+  private long viewportFallbacks = 0;
+  private final Histogram culledCandidates = new Histogram();
+  private long nextFocusTableHits = 0;
+  private long nextFocusTableMisses = 0;
+  // Indexed by SpatialMemoryTrimmer tier
+  private final long[] trims = new long[CACHE_TIER_NAMES.length];
+  private long trimmedBytes = 0;
+  private long[] cacheMemory = new long[CACHE_TIER_NAMES.length];
+  private long layoutRefreshSamples = 0;
+  private long layoutRefreshCommits = 0;
+  private long queuedRegistrations = 0;
+  private long interceptedKeyMoves = 0;
+  private final Histogram initialFocusSettleFrames = new Histogram();
+  private long reusedRegistrations = 0;
+  private long replacedRegistrations = 0;
+  private long interceptedKeyPassThroughs = 0;
+  private long maxRegistrationQueueDepth = 0;
+  private final Histogram registrationChunkTime = new Histogram();
+  private final Histogram registrationChunkSize = new Histogram();
+
+  public void recordNeighborSearch(long durationNanos, int candidateCount) {
+    neighborSearchTime.record(durationNanos);
+    candidatesScanned.record(candidateCount);
+  }
+
+  public void recordUIBlockResolutionDelay(long durationNanos) {
+    uiBlockResolutionDelay.record(durationNanos);
+  }
+
+  public void recordFocusToNextFocusWritten(long durationNanos) {
+    focusToNextFocusWritten.record(durationNanos);
+  }
+
+  // A key repeat that moved the pending fast traversal target
+  public void recordFastTraversalStep() {
+    fastTraversalSteps++;
+  }
+
+  // A fast traversal target that actually got focus
+  public void recordFastTraversalCommit() {
+    fastTraversalCommits++;
+  }
+
+  // A neighbor search that only looked at the viewport, culledCount objects were left out
+  public void recordViewportCulling(int culledCount) {
+    culledSearches++;
+    culledCandidates.record(culledCount);
+  }
+
+  // A culled neighbor search that had to look off-screen
+  public void recordViewportFallback() {
+    viewportFallbacks++;
+  }
+
+  // A lookup in a precomputed NextFocusTable, misses fall back to the neighbor search
+  public void recordNextFocusTableLookup(boolean isHit) {
+    if (isHit) {
+      nextFocusTableHits++;
+    } else {
+      nextFocusTableMisses++;
+    }
+  }
+
+  // Caches shed up to tier on a trim memory request, freeing an estimated freedBytes
+  public void recordTrim(int tier, long freedBytes) {
+    trims[tier]++;
+    trimmedBytes += freedBytes;
+  }
+
+  // Estimated bytes shedding each tier would release, indexed by tier
+  public void setCacheMemory(long[] cacheMemory) {
+    this.cacheMemory = cacheMemory;
+  }
+
+  // Transformed bounds read by SpatialLayoutRefresher in one frame
+  public void recordLayoutRefreshSamples(int sampleCount) {
+    layoutRefreshSamples += sampleCount;
+  }
+
+  // Transformed bounds written back to a SpatialObject by SpatialLayoutRefresher
+  public void recordLayoutRefreshCommit() {
+    layoutRefreshCommits++;
+  }
+
+  // Registrations queued by SpatialRegistrationQueue, depth is the queue size afterwards
+  public void recordRegistrationsQueued(int count, int depth) {
+    queuedRegistrations += count;
+    maxRegistrationQueueDepth = Math.max(maxRegistrationQueueDepth, depth);
+  }
+
+  // A frame budgeted chunk of the registration queue that added size spatial objects
+  public void recordRegistrationChunk(int size, long durationNanos) {
+    registrationChunkSize.record(size);
+    registrationChunkTime.record(durationNanos);
+  }
+
+  // A D-pad key down seen by SpatialKeyInterceptor, passed on to the view hierarchy when focus did not move
+  public void recordInterceptedKey(boolean hasMoved) {
+    if (hasMoved) {
+      interceptedKeyMoves++;
+    } else {
+      interceptedKeyPassThroughs++;
+    }
+  }
+
+  // A preferred child focused by SpatialInitialFocusResolver, frames it waited for its navigation root to settle
+  public void recordInitialFocus(int frames) {
+    initialFocusSettleFrames.record(frames);
+  }
+
+  // A registration of an id that is already registered, reused when it was applied to the existing SpatialObject
+  public void recordUpsert(boolean isReused) {
+    if (isReused) {
+      reusedRegistrations++;
+    } else {
+      replacedRegistrations++;
+    }
+  }
+
+  public void recordRecalculation(long nowNanos) {
+    recalculations++;
+
+    if (nowNanos - recalculationWindowStart >= RATE_WINDOW_NANOS) {
+      // Only a window that ended less than a window ago says something about the current rate
+      recalculationsPerSecond = nowNanos - recalculationWindowStart < 2 * RATE_WINDOW_NANOS ? recalculationWindowCount : 0;
+      recalculationWindowStart = nowNanos;
+      recalculationWindowCount = 0;
+    }
+
+    recalculationWindowCount++;
+    peakRecalculationsPerSecond = Math.max(peakRecalculationsPerSecond, recalculationWindowCount);
+  }
+
+  public Map<String, Object> snapshot() {
+    Map<String, Object> recalculationMetrics = new LinkedHashMap<>();
+    recalculationMetrics.put("count", recalculations);
+    recalculationMetrics.put("perSecond", recalculationsPerSecond);
+    recalculationMetrics.put("peakPerSecond", peakRecalculationsPerSecond);
+
+    Map<String, Object> fastTraversalMetrics = new LinkedHashMap<>();
+    fastTraversalMetrics.put("steps", fastTraversalSteps);
+    fastTraversalMetrics.put("commits", fastTraversalCommits);
+
+    Map<String, Object> viewportCullingMetrics = new LinkedHashMap<>();
+    viewportCullingMetrics.put("searches", culledSearches);
+    viewportCullingMetrics.put("fallbacks", viewportFallbacks);
+    viewportCullingMetrics.put("culledCandidates", culledCandidates.snapshot(false));
+
+    Map<String, Object> nextFocusTableMetrics = new LinkedHashMap<>();
+    nextFocusTableMetrics.put("hits", nextFocusTableHits);
+    nextFocusTableMetrics.put("misses", nextFocusTableMisses);
+
+    Map<String, Object> memoryMetrics = new LinkedHashMap<>();
+    Map<String, Object> trimMetrics = new LinkedHashMap<>();
+    Map<String, Object> cacheMemoryMetrics = new LinkedHashMap<>();
+    for (int tier = 1; tier < CACHE_TIER_NAMES.length; tier++) {
+      trimMetrics.put(CACHE_TIER_NAMES[tier], trims[tier]);
+      cacheMemoryMetrics.put(CACHE_TIER_NAMES[tier], cacheMemory[tier]);
+    }
+    memoryMetrics.put("bytes", cacheMemoryMetrics);
+    memoryMetrics.put("trims", trimMetrics);
+    memoryMetrics.put("trimmedBytes", trimmedBytes);
+
+    Map<String, Object> layoutRefreshMetrics = new LinkedHashMap<>();
+    layoutRefreshMetrics.put("samples", layoutRefreshSamples);
+    layoutRefreshMetrics.put("commits", layoutRefreshCommits);
+
+    Map<String, Object> streamingRegistrationMetrics = new LinkedHashMap<>();
+    streamingRegistrationMetrics.put("queued", queuedRegistrations);
+    streamingRegistrationMetrics.put("maxQueueDepth", maxRegistrationQueueDepth);
+    streamingRegistrationMetrics.put("chunkTime", registrationChunkTime.snapshot(true));
+    streamingRegistrationMetrics.put("chunkSize", registrationChunkSize.snapshot(false));
+
+    Map<String, Object> keyInterceptionMetrics = new LinkedHashMap<>();
+    keyInterceptionMetrics.put("moves", interceptedKeyMoves);
+    keyInterceptionMetrics.put("passThroughs", interceptedKeyPassThroughs);
+
+    Map<String, Object> upsertMetrics = new LinkedHashMap<>();
+    upsertMetrics.put("reused", reusedRegistrations);
+    upsertMetrics.put("replaced", replacedRegistrations);
+
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("neighborSearchTime", neighborSearchTime.snapshot(true));
+    metrics.put("candidatesScanned", candidatesScanned.snapshot(false));
+    metrics.put("uiBlockResolutionDelay", uiBlockResolutionDelay.snapshot(true));
+    metrics.put("focusToNextFocusWritten", focusToNextFocusWritten.snapshot(true));
+    metrics.put("recalculations", recalculationMetrics);
+    metrics.put("fastTraversal", fastTraversalMetrics);
+    metrics.put("viewportCulling", viewportCullingMetrics);
+    metrics.put("nextFocusTable", nextFocusTableMetrics);
+    metrics.put("memory", memoryMetrics);
+    metrics.put("layoutRefresh", layoutRefreshMetrics);
+    metrics.put("streamingRegistration", streamingRegistrationMetrics);
+    metrics.put("keyInterception", keyInterceptionMetrics);
+    metrics.put("initialFocusSettleFrames", initialFocusSettleFrames.snapshot(false));
+    metrics.put("upserts", upsertMetrics);
+    return metrics;
+  }
+
+  /**
+   * Log2 bucketed histogram, bucket 0 holds 0 and bucket i the values in [2^(i-1), 2^i).
+   * Percentiles are reported as the upper bound of their bucket, capped at the max recorded value.
+   */
+  static class Histogram {
+    private static final int BUCKET_COUNT = 64;
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    void record(long value) {
+      long clamped = Math.max(0, value);
+      buckets[BUCKET_COUNT - Long.numberOfLeadingZeros(clamped)]++;
+      count++;
+      sum += clamped;
+      max = Math.max(max, clamped);
+    }
+
+    long percentile(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+
+      long rank = (long) Math.ceil(percentile * count);
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        seen += buckets[i];
+        if (seen >= rank) {
+          long upperBound = i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+          return Math.min(upperBound, max);
+        }
+      }
+
+      return max;
+    }
+
+    // Durations are recorded in nanoseconds and reported in milliseconds
+    Map<String, Object> snapshot(boolean isDuration) {
+      double scale = isDuration ? 1_000_000d : 1d;
+      Map<String, Object> snapshot = new LinkedHashMap<>();
+      snapshot.put("count", count);
+      snapshot.put("mean", count == 0 ? 0d : sum / scale / count);
+      snapshot.put("p50", percentile(0.5) / scale);
+      snapshot.put("p90", percentile(0.9) / scale);
+      snapshot.put("p99", percentile(0.99) / scale);
+      snapshot.put("max", max / scale);
+      return snapshot;
+    }
+  }
+}
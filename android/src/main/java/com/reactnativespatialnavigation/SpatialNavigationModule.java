@@ -1,44 +1,164 @@
 package com.reactnativespatialnavigation;
 
+import android.app.Activity;
+import android.os.SystemClock;
+import android.util.Base64;
 import android.util.Log;
+import android.view.View;
+import android.view.ViewParent;
 
 import androidx.annotation.NonNull;
 
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.module.annotations.ReactModule;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.uimanager.NativeViewHierarchyManager;
 
 import java.beans.PropertyChangeSupport;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Nullable;
 
 @ReactModule(name = SpatialNavigationModule.NAME)
-public class SpatialNavigationModule extends ReactContextBaseJavaModule {
+public class SpatialNavigationModule extends ReactContextBaseJavaModule implements LifecycleEventListener {
   public static final String NAME = "SpatialNavigation";
   public static final String TAG = Utils.generateTag("SpatialNavigationModule");
+  // How long getMetrics reuses the estimate of the off-screen layouts, measuring it checks the visibility of every view
+  private static final long OFF_SCREEN_LAYOUT_ESTIMATE_TTL_MS = 5000;
   private final ReactContext reactContext;
-  private final LinkedHashMap<String, SpatialGroup> groups = new LinkedHashMap<>();
-  private final ConcurrentHashMap<String, SpatialObject> spatialObjects = new ConcurrentHashMap<>();
+  private final SpatialRegistry<SpatialObject, SpatialGroup> registry = new SpatialRegistry<>();
+  // nodeHandle (native view id) -> SpatialObject, used to map focused views back to their SpatialObject
+  private final ConcurrentHashMap<Integer, SpatialObject> spatialObjectsByNodeHandle = new ConcurrentHashMap<>();
+  private final SpatialFocusObserver focusObserver;
+  // SpatialObject views that got garbage collected without the SpatialObject being removed
+  private final ReferenceQueue<View> collectedViews = new ReferenceQueue<>();
   private @Nullable
   String focusSpatialObjectId;
   private @Nullable
   String focusGroupId;
-  private final Double nearestNeighborThreshold = 0.3;
+  private volatile Double nearestNeighborThreshold = 0.3;
+  private final SpatialNavigationMetrics metrics = new SpatialNavigationMetrics();
+  // Layout bytes TIER_OFF_SCREEN_LAYOUTS would release and when they were measured, 0 if they need measuring again.
+  // Only used on the UI thread
+  private long offScreenLayoutBytes = 0;
+  private long offScreenLayoutBytesMeasuredAt = 0;
+  private final SpatialEventLog eventLog = new SpatialEventLog(4096);
+  // When the current focus landed, cleared once its next focus ids are written
+  private long focusChangedAtNanos = 0;
+  // Cookie of the FOCUS_TO_NEXT_FOCUS_WRITTEN async trace section
+  private int focusTraceCookie = 0;
+  private final SpatialKeyHandler keyHandler;
+  private final SpatialMemoryTrimmer memoryTrimmer;
+  private final SpatialLayoutRefresher layoutRefresher;
+  private final SpatialRegistrationQueue registrationQueue;
+  private final SpatialInitialFocusResolver initialFocusResolver;
+  // Removed spatial objects whose cleanUp waits for the rest of the JS batch, only used on the native modules thread.
+  // Re-renders remove and register the same id in one batch, the registration then reuses the object, see addSpatialObject
+  private final Map<String, SpatialObject> pendingRemovals = new HashMap<>();
+  private boolean isRemovalFlushScheduled = false;
+  private final ConcurrentHashMap<String, NavigationRoot<SpatialObject>> navigationRoots = new ConcurrentHashMap<>();
+  // Pushed navigation root ids, the last one is active
+  private final ArrayDeque<String> navigationRootStack = new ArrayDeque<>(Collections.singletonList(NavigationRoot.DEFAULT_ID));
+  // Only spatial objects in the viewport of the focused view's root, grown by viewportMargin, are searched first
+  private volatile boolean isViewportCullingEnabled = false;
+  private volatile int viewportMargin = 100;
+  // Also resolves the diagonal neighbors, focused by the diagonal D-pad keys of game pads
+  private volatile boolean isDiagonalNavigationEnabled = false;
+  // Emits spatialLikelyNextFocus once the next focus of a newly focused spatial object is written
+  private volatile boolean isLikelyNextFocusEnabled = false;
+  // Queues registrations and adds them in frame budgeted chunks, see SpatialRegistrationQueue
+  private volatile boolean isStreamingRegistrationEnabled = false;
+  // Resolves D-pad key downs synchronously at the window, see SpatialKeyInterceptor
+  private volatile boolean isKeyInterceptionEnabled = false;
+  // Layouts and focus state of the last session of the current screen, consulted while its views report in
+  private volatile @Nullable
+  NavigationSnapshot snapshot;
+  // Writes saved snapshots off the UI thread, one at a time
+  private final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor();
+  private volatile @Nullable
+  NavigationRecorder recorder;
+  private @Nullable
+  File recordingFile;
   private final PropertyChangeSupport support;
 
   public SpatialNavigationModule(ReactApplicationContext reactContext) {
     super(reactContext);
     this.reactContext = reactContext;
     support = new PropertyChangeSupport(this);
+    focusObserver = new SpatialFocusObserver(this);
+    keyHandler = new SpatialKeyHandler(this);
+    memoryTrimmer = new SpatialMemoryTrimmer(this);
+    layoutRefresher = new SpatialLayoutRefresher(this);
+    registrationQueue = new SpatialRegistrationQueue(this);
+    initialFocusResolver = new SpatialInitialFocusResolver(this);
+    reactContext.getApplicationContext().registerComponentCallbacks(memoryTrimmer);
+    reactContext.addLifecycleEventListener(this);
+  }
+
+  // A recreated activity comes with a new window, the key interceptor has to be installed again
+  @Override
+  public void onHostResume() {
+    updateKeyInterceptor();
+  }
+
+  @Override
+  public void onHostPause() {
+  }
+
+  @Override
+  public void onHostDestroy() {
+  }
+
+  private void updateKeyInterceptor() {
+    UiThreadUtil.runOnUiThread(() -> {
+      Activity activity = reactContext.getCurrentActivity();
+      if (activity == null || activity.getWindow() == null) {
+        return;
+      }
+
+      if (isKeyInterceptionEnabled) {
+        SpatialKeyInterceptor.install(activity.getWindow(), this);
+      } else {
+        SpatialKeyInterceptor.uninstall(activity.getWindow());
+      }
+    });
+  }
+
+  @Override
+  public void onCatalystInstanceDestroy() {
+    reactContext.getApplicationContext().unregisterComponentCallbacks(memoryTrimmer);
+    // Snapshots already queued are still written
+    snapshotWriter.shutdown();
+    // Choreographer callbacks belong to the UI thread
+    UiThreadUtil.runOnUiThread(() -> {
+      layoutRefresher.clear();
+      registrationQueue.cancelDrain();
+      initialFocusResolver.clear();
+    });
   }
 
   @Override
@@ -48,8 +168,58 @@ public class SpatialNavigationModule extends ReactContextBaseJavaModule {
   }
 
   @ReactMethod
-  public void init(Promise promise) {
-    Log.d(NAME, "Init success - todo: extend functionality");
+  public void init(ReadableMap options, Promise promise) {
+    if (options.hasKey("enableTracing")) {
+      SpatialTrace.setEnabled(options.getBoolean("enableTracing"));
+    }
+
+    if (options.hasKey("enableFastTraversal")) {
+      keyHandler.setFastTraversalEnabled(options.getBoolean("enableFastTraversal"));
+    }
+
+    if (options.hasKey("enableViewportCulling")) {
+      isViewportCullingEnabled = options.getBoolean("enableViewportCulling");
+    }
+
+    if (options.hasKey("viewportMargin")) {
+      viewportMargin = options.getInt("viewportMargin");
+    }
+
+    if (options.hasKey("enableDiagonalNavigation")) {
+      isDiagonalNavigationEnabled = options.getBoolean("enableDiagonalNavigation");
+    }
+
+    if (options.hasKey("enableLikelyNextFocusEvents")) {
+      isLikelyNextFocusEnabled = options.getBoolean("enableLikelyNextFocusEvents");
+    }
+
+    if (options.hasKey("enableKeyInterception")) {
+      isKeyInterceptionEnabled = options.getBoolean("enableKeyInterception");
+      updateKeyInterceptor();
+    }
+
+    if (options.hasKey("initialFocusSettleFrames")) {
+      initialFocusResolver.setSettleFrames(options.getInt("initialFocusSettleFrames"));
+    }
+
+    if (options.hasKey("enableStreamingRegistration")) {
+      isStreamingRegistrationEnabled = options.getBoolean("enableStreamingRegistration");
+    }
+
+    if (options.hasKey("registrationQueueCapacity")) {
+      registrationQueue.setCapacity(options.getInt("registrationQueueCapacity"));
+    }
+
+    if (options.hasKey("registrationFrameBudgetMs")) {
+      registrationQueue.setFrameBudgetMs(options.getDouble("registrationFrameBudgetMs"));
+    }
+
+    if (options.hasKey("nearestNeighborThreshold")) {
+      nearestNeighborThreshold = options.getDouble("nearestNeighborThreshold");
+    }
+
+    invalidateNextFocus();
+
     promise.resolve("success");
   }
 
@@ -57,10 +227,18 @@ public class SpatialNavigationModule extends ReactContextBaseJavaModule {
   public void registerGroup(ReadableMap params, Promise promise) {
     SpatialGroup newGroup = new SpatialGroup(params, this);
 
+    NavigationSnapshot snapshot = this.snapshot;
+    String lastChildFocusedId = snapshot != null ? snapshot.getLastChildFocusedId(newGroup.getId()) : null;
+    if (lastChildFocusedId != null) {
+      newGroup.updateLastChildFocused(lastChildFocusedId);
+    }
+
     support.addPropertyChangeListener(newGroup);
-    this.groups.put(params.getString("id"), newGroup);
+    this.registry.addGroup(newGroup);
+    getNavigationRoot(newGroup.getNavigationRootId()).invalidate();
+    eventLog.write(SpatialEventLog.REGISTER_GROUP, newGroup.getSlot());
+    record(recorder -> recorder.recordRegisterGroup(newGroup));
 
-    logState("registerGroup");
     promise.resolve(params.getString("id"));
   }
 
@@ -75,34 +253,325 @@ public class SpatialNavigationModule extends ReactContextBaseJavaModule {
 
     support.removePropertyChangeListener(groupToBeRemoved);
     groupToBeRemoved.unregisterToParentGroup();
-    this.getGroups().remove(groupId);
+    groupToBeRemoved.cleanUpChildren();
+    registrationQueue.removeGroup(groupId);
+    this.registry.removeGroup(groupId);
+    getNavigationRoot(groupToBeRemoved.getNavigationRootId()).invalidate();
+    eventLog.write(SpatialEventLog.REMOVE_GROUP, groupToBeRemoved.getSlot());
+    record(recorder -> recorder.recordRemoveGroup(groupId));
+    retireCollectedSpatialObjects();
 
-    logState("removeGroup");
     promise.resolve(groupId);
   }
 
   @ReactMethod
   public void registerSpatialObject(ReadableMap spatialObjectParams, Promise promise) {
-    this.spatialObjects.put(spatialObjectParams
-      .getString("id"), new SpatialObject(spatialObjectParams, this));
+    if (isStreamingRegistrationEnabled) {
+      registrationQueue.enqueue(Collections.singletonList(spatialObjectParams), promise, spatialObjectParams.getString("id"));
+      return;
+    }
 
-    logState("registerSpatialObject");
+    addSpatialObject(spatialObjectParams);
     promise.resolve(spatialObjectParams.getString("id"));
   }
 
+  // Resolves the number of registrations once they are queued, later than that when the registration queue is full.
+  // Rejected when another batch is still waiting for room, see SpatialRegistrationQueue
+  @ReactMethod
+  public void registerSpatialObjects(ReadableArray spatialObjectsParams, Promise promise) {
+    List<ReadableMap> registrations = new ArrayList<>(spatialObjectsParams.size());
+    for (int i = 0; i < spatialObjectsParams.size(); i++) {
+      registrations.add(spatialObjectsParams.getMap(i));
+    }
+
+    if (isStreamingRegistrationEnabled) {
+      registrationQueue.enqueue(registrations, promise, registrations.size());
+      return;
+    }
+
+    for (ReadableMap spatialObjectParams : registrations) {
+      addSpatialObject(spatialObjectParams);
+    }
+    promise.resolve(registrations.size());
+  }
+
+  public void addSpatialObject(ReadableMap spatialObjectParams) {
+    addSpatialObject(spatialObjectParams, null);
+  }
+
+  // Outside of a JS batch the view is resolved with the nativeViewHierarchyManager of the batch it was mounted in
+  public void addSpatialObject(ReadableMap spatialObjectParams, @Nullable NativeViewHierarchyManager nativeViewHierarchyManager) {
+    retireCollectedSpatialObjects();
+
+    SpatialObject registered = getSpatialObject(spatialObjectParams.getString("id"));
+    if (registered != null && !registered.isRemoved()) {
+      pendingRemovals.remove(registered.getId());
+      boolean isUpdated = registered.update(spatialObjectParams);
+      UiThreadUtil.runOnUiThread(() -> metrics.recordUpsert(isUpdated));
+      if (isUpdated) {
+        return;
+      }
+
+      registered.cleanUp();
+    }
+
+    SpatialObject spatialObject = new SpatialObject(spatialObjectParams, this, nativeViewHierarchyManager);
+
+    // Seeded before the object is published so the UI thread never sees a half written layout
+    NavigationSnapshot snapshot = this.snapshot;
+    int[] seededLayout = snapshot != null ? snapshot.getLayout(spatialObject.getId(), spatialObject.getGroupId()) : null;
+    if (seededLayout != null) {
+      spatialObject.seedLayout(seededLayout);
+    }
+
+    this.registry.addSpatialObject(spatialObject);
+    getNavigationRoot(spatialObject.getNavigationRootId()).addSpatialObject(spatialObject);
+    eventLog.write(SpatialEventLog.REGISTER_SPATIAL_OBJECT, spatialObject.getNodeHandle());
+    record(recorder -> recorder.recordRegisterSpatialObject(spatialObject));
+    this.spatialObjectsByNodeHandle.put(spatialObject.getNodeHandle(), spatialObject);
+    SpatialTrace.setCounter(SpatialTrace.COUNTER_SPATIAL_OBJECTS, this.getSpatialObjects().size());
+  }
+
   @ReactMethod
   public void removeSpatialObject(final String spatialObjectId, Promise promise) {
     SpatialObject spatialObjectToBeRemoved = this.getSpatialObject(spatialObjectId);
-    if (spatialObjectToBeRemoved == null) {
+    if (spatialObjectToBeRemoved == null && registrationQueue.remove(spatialObjectId)) {
+      promise.resolve(spatialObjectId);
+    } else if (spatialObjectToBeRemoved == null) {
       Log.w(TAG, "!!!!! removeSpatialObject - No spatialObject found with this id: " + spatialObjectId);
       promise.reject("NOT FOUND", "Not Spatial Object found with id" + spatialObjectId);
     } else {
-      spatialObjectToBeRemoved.cleanUp();
-      this.getSpatialObjects().remove(spatialObjectId);
+      pendingRemovals.put(spatialObjectId, spatialObjectToBeRemoved);
+      scheduleRemovalFlush();
       promise.resolve(spatialObjectId);
     }
   }
 
+  // Runs after the calls that are already queued, which includes the rest of the current JS batch
+  private void scheduleRemovalFlush() {
+    if (!isRemovalFlushScheduled) {
+      isRemovalFlushScheduled = true;
+      reactContext.runOnNativeModulesQueueThread(this::flushPendingRemovals);
+    }
+  }
+
+  private void flushPendingRemovals() {
+    isRemovalFlushScheduled = false;
+    for (SpatialObject spatialObject : pendingRemovals.values()) {
+      // Also removed with its group in the meantime
+      if (!spatialObject.isRemoved()) {
+        spatialObject.cleanUp();
+      }
+    }
+    pendingRemovals.clear();
+  }
+
+  @ReactMethod
+  public void getMetrics(Promise promise) {
+    // Metrics are recorded on the UI thread
+    UiThreadUtil.runOnUiThread(() -> {
+      metrics.setCacheMemory(getCacheMemory());
+      promise.resolve(toWritableMap(metrics.snapshot()));
+    });
+  }
+
+  /**
+   * Resolves a description of every inconsistency between the group tree and the registered spatial objects.
+   * Runs on the native modules thread where groups are registered and removed, queued behind the removals of the
+   * current batch so they are not reported while their flush is pending.
+   */
+  @ReactMethod
+  public void getInvariantViolations(Promise promise) {
+    reactContext.runOnNativeModulesQueueThread(() -> {
+      WritableArray violations = Arguments.createArray();
+      for (String violation : registry.findInvariantViolations()) {
+        violations.pushString(violation);
+      }
+
+      promise.resolve(violations);
+    });
+  }
+
+  @ReactMethod
+  public void dumpTrace(Promise promise) {
+    WritableArray records = Arguments.createArray();
+    for (SpatialEventLog.Record record : eventLog.read()) {
+      WritableMap recordMap = Arguments.createMap();
+      recordMap.putString("type", SpatialEventLog.getTypeName(record.type));
+      recordMap.putInt("slot", record.slot);
+      recordMap.putDouble("timestamp", record.timestamp / 1_000_000d);
+      recordMap.putDouble("duration", record.duration / 1_000_000d);
+      records.pushMap(recordMap);
+    }
+
+    // Resolves slots of the currently registered spatial objects (nodeHandle) and groups to their id
+    WritableMap spatialObjectSlots = Arguments.createMap();
+    for (SpatialObject spatialObject : this.getSpatialObjects().values()) {
+      spatialObjectSlots.putString(String.valueOf(spatialObject.getNodeHandle()), spatialObject.getId());
+    }
+    WritableMap groupSlots = Arguments.createMap();
+    for (SpatialGroup group : this.getGroups().values()) {
+      groupSlots.putString(String.valueOf(group.getSlot()), group.getId());
+    }
+
+    WritableMap trace = Arguments.createMap();
+    trace.putArray("records", records);
+    trace.putMap("spatialObjectSlots", spatialObjectSlots);
+    trace.putMap("groupSlots", groupSlots);
+    promise.resolve(trace);
+  }
+
+  @ReactMethod
+  public void startRecording(String recordingName, Promise promise) {
+    File directory = new File(reactContext.getFilesDir(), "spatial-navigation-recordings");
+    File file = new File(directory, recordingName + ".snrec");
+
+    try {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Could not create " + directory);
+      }
+
+      stopRecording();
+      recordingFile = file;
+      recorder = new NavigationRecorder(new FileOutputStream(file));
+      promise.resolve(file.getAbsolutePath());
+    } catch (IOException e) {
+      promise.reject("RECORDING FAILED", e);
+    }
+  }
+
+  /**
+   * Resolves the next focus of every laid out spatial object of groupId and its descendants, encoded as a
+   * base64 NextFocusTable that loadNextFocusTable can apply on later runs of a fixed layout screen.
+   */
+  @ReactMethod
+  public void exportNextFocusTable(String groupId, Promise promise) {
+    UiThreadUtil.runOnUiThread(() -> {
+      if (getGroup(groupId) == null) {
+        promise.reject("NOT FOUND", "No group found with this id: " + groupId);
+        return;
+      }
+
+      List<SpatialObject> spatialObjects = new ArrayList<>();
+      collectSpatialObjects(groupId, spatialObjects);
+
+      NextFocusTable nextFocusTable = new NextFocusTable();
+      for (SpatialObject spatialObject : spatialObjects) {
+        if (spatialObject.isLayoutMeasured()) {
+          nextFocusTable.put(spatialObject, resolveNextFocus(spatialObject));
+        }
+      }
+
+      promise.resolve(Base64.encodeToString(nextFocusTable.toByteArray(), Base64.NO_WRAP));
+    });
+  }
+
+  // Spatial objects of groupId and its descendants use the table instead of the neighbor search while their layout matches
+  @ReactMethod
+  public void loadNextFocusTable(String groupId, String encodedTable, Promise promise) {
+    NextFocusTable nextFocusTable;
+    try {
+      nextFocusTable = NextFocusTable.fromByteArray(Base64.decode(encodedTable, Base64.NO_WRAP));
+    } catch (IOException | IllegalArgumentException e) {
+      promise.reject("INVALID TABLE", e);
+      return;
+    }
+
+    UiThreadUtil.runOnUiThread(() -> {
+      SpatialGroup group = getGroup(groupId);
+      if (group == null) {
+        promise.reject("NOT FOUND", "No group found with this id: " + groupId);
+        return;
+      }
+
+      group.setNextFocusTable(nextFocusTable);
+      getNavigationRoot(group.getNavigationRootId()).invalidate();
+
+      List<SpatialObject> spatialObjects = new ArrayList<>();
+      collectSpatialObjects(groupId, spatialObjects);
+      for (SpatialObject spatialObject : spatialObjects) {
+        applyNextFocusTable(spatialObject);
+      }
+
+      promise.resolve(nextFocusTable.size());
+    });
+  }
+
+  // Persists the current group tree, layouts and focus for screenKey, resolves the path of the snapshot.
+  // Captured on the UI thread, written on snapshotWriter
+  @ReactMethod
+  public void saveNavigationSnapshot(String screenKey, Promise promise) {
+    UiThreadUtil.runOnUiThread(() -> {
+      NavigationSnapshot capturedSnapshot = NavigationSnapshot.capture(registry, focusSpatialObjectId);
+      snapshotWriter.execute(() -> writeNavigationSnapshot(capturedSnapshot, getSnapshotFile(screenKey), promise));
+    });
+  }
+
+  // Written next to file and renamed, loadNavigationSnapshot never sees a partly written snapshot
+  private void writeNavigationSnapshot(NavigationSnapshot capturedSnapshot, File file, Promise promise) {
+    File partialFile = new File(file.getPath() + ".partial");
+
+    try {
+      if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+        throw new IOException("Could not create " + file.getParentFile());
+      }
+
+      capturedSnapshot.write(partialFile);
+      if (!partialFile.renameTo(file)) {
+        throw new IOException("Could not rename " + partialFile + " to " + file);
+      }
+      promise.resolve(file.getAbsolutePath());
+    } catch (IOException e) {
+      partialFile.delete();
+      promise.reject("SNAPSHOT FAILED", e);
+    }
+  }
+
+  /**
+   * Loads the snapshot of screenKey, call before the screen registers its groups. Spatial objects registered
+   * afterwards start with their last known layout and the last focused object gets focus as soon as its view
+   * resolves. Resolves null if there is no snapshot for screenKey.
+   */
+  @ReactMethod
+  public void loadNavigationSnapshot(String screenKey, Promise promise) {
+    File file = getSnapshotFile(screenKey);
+    if (!file.isFile()) {
+      snapshot = null;
+      promise.resolve(null);
+      return;
+    }
+
+    try {
+      NavigationSnapshot loadedSnapshot = NavigationSnapshot.read(file);
+      snapshot = loadedSnapshot;
+
+      WritableMap result = Arguments.createMap();
+      result.putInt("groups", loadedSnapshot.getGroupCount());
+      result.putInt("spatialObjects", loadedSnapshot.getSpatialObjectCount());
+      promise.resolve(result);
+    } catch (IOException e) {
+      snapshot = null;
+      Log.w(TAG, "loadNavigationSnapshot - discarding snapshot: " + e.getMessage());
+      file.delete();
+      promise.reject("SNAPSHOT FAILED", e);
+    }
+  }
+
+  private File getSnapshotFile(String screenKey) {
+    return new File(new File(reactContext.getFilesDir(), "spatial-navigation-snapshots"), screenKey + ".snsnap");
+  }
+
+  @ReactMethod
+  public void stopRecording(Promise promise) {
+    File file = recordingFile;
+
+    if (stopRecording() && file != null) {
+      promise.resolve(file.getAbsolutePath());
+    } else {
+      promise.reject("NOT RECORDING", "No recording in progress");
+    }
+  }
+
   @ReactMethod
   public void setFocusToGroup(String groupId) {
     this.setNativeFocusToGroup(groupId);
@@ -114,28 +583,332 @@ public class SpatialNavigationModule extends ReactContextBaseJavaModule {
     this.setNativeFocusToSpatialElement(spatialObjectId);
   }
 
+  // Makes navigationRootId the active root and moves focus into it, the previous root keeps its state
+  @ReactMethod
+  public void pushNavigationRoot(String navigationRootId, Promise promise) {
+    synchronized (navigationRootStack) {
+      navigationRootStack.addLast(navigationRootId);
+    }
+
+    focusNavigationRoot(getNavigationRoot(navigationRootId));
+    promise.resolve(navigationRootId);
+  }
+
+  // Returns to the previous root and restores its last focus, resolves the id of the root that is active afterwards
+  @ReactMethod
+  public void popNavigationRoot(Promise promise) {
+    String activeNavigationRootId;
+    synchronized (navigationRootStack) {
+      if (navigationRootStack.size() <= 1) {
+        promise.reject("NOT FOUND", "No navigation root to pop");
+        return;
+      }
+
+      navigationRootStack.removeLast();
+      activeNavigationRootId = navigationRootStack.peekLast();
+    }
+
+    focusNavigationRoot(getNavigationRoot(activeNavigationRootId));
+    promise.resolve(activeNavigationRootId);
+  }
+
+  // Moves focus a root view width or height in direction, resolves the id of the spatial object that has focus
+  @ReactMethod
+  public void moveFocusByPage(String direction, Promise promise) {
+    UiThreadUtil.runOnUiThread(() -> {
+      SpatialObject focusedSpatialObject = getFocusedSpatialObject();
+      View view = focusedSpatialObject != null ? focusedSpatialObject.getView() : null;
+      if (view == null) {
+        promise.resolve(null);
+        return;
+      }
+
+      NavigationRoot<SpatialObject> navigationRoot = getNavigationRoot(focusedSpatialObject.getNavigationRootId());
+      if (navigationRoot.hasShedLayouts()) {
+        restoreLayouts(navigationRoot);
+      }
+
+      if (focusedSpatialObject.getLayout().isEmpty()) {
+        promise.resolve(null);
+        return;
+      }
+
+      Map<String, Integer> layout = focusedSpatialObject.getLayout();
+      View rootView = view.getRootView();
+      int offsetX = 0;
+      int offsetY = 0;
+
+      switch (direction) {
+        case "up":
+          offsetY = -rootView.getHeight();
+          break;
+        case "right":
+          offsetX = rootView.getWidth();
+          break;
+        case "down":
+          offsetY = rootView.getHeight();
+          break;
+        case "left":
+          offsetX = -rootView.getWidth();
+          break;
+        default:
+          promise.reject("INVALID_DIRECTION", "Unknown direction: " + direction);
+          return;
+      }
+
+      SpatialObject target = navigationRoot.getIndex().findNearest(
+        layout.get("x0") + offsetX,
+        layout.get("y0") + offsetY,
+        layout.get("x1") + offsetX,
+        layout.get("y1") + offsetY
+      );
+
+      // Past the end of the content the nearest object can be next to or behind the focused one
+      boolean isAhead = target != null && (
+        offsetY < 0 && target.getLayout().get("y1") <= layout.get("y0")
+          || offsetX > 0 && target.getLayout().get("x0") >= layout.get("x1")
+          || offsetY > 0 && target.getLayout().get("y0") >= layout.get("y1")
+          || offsetX < 0 && target.getLayout().get("x1") <= layout.get("x0")
+      );
+
+      if (!isAhead || !target.focusNow()) {
+        promise.resolve(focusedSpatialObject.getId());
+        return;
+      }
+
+      promise.resolve(target.getId());
+    });
+  }
+
+  // rect has x, y, width and height in the coordinates of spatial object layouts, resolves null if nothing got focus
+  @ReactMethod
+  public void focusNearestInRect(ReadableMap rect, Promise promise) {
+    int x = rect.getInt("x");
+    int y = rect.getInt("y");
+    int width = rect.getInt("width");
+    int height = rect.getInt("height");
+
+    UiThreadUtil.runOnUiThread(() -> {
+      NavigationRoot<SpatialObject> navigationRoot = getActiveNavigationRoot();
+      if (navigationRoot.hasShedLayouts()) {
+        restoreLayouts(navigationRoot);
+      }
+
+      SpatialObject target = navigationRoot.getIndex().findNearest(x, y, x + width, y + height);
+
+      if (target == null || !target.focusNow()) {
+        promise.resolve(null);
+        return;
+      }
+
+      promise.resolve(target.getId());
+    });
+  }
+
+  /**
+   * Resolves the next focus ids of every spatial object in ids, keyed by id, from the same neighbor cache
+   * the focus pipeline uses. Directions without a neighbor are null, unknown or removed ids map to null.
+   */
+  @ReactMethod
+  public void getNeighbors(ReadableArray ids, Promise promise) {
+    UiThreadUtil.runOnUiThread(() -> {
+      WritableMap neighborsById = Arguments.createMap();
+
+      for (int i = 0; i < ids.size(); i++) {
+        String id = ids.getString(i);
+        SpatialObject spatialObject = getSpatialObject(id);
+        if (spatialObject == null || spatialObject.isRemoved()) {
+          neighborsById.putNull(id);
+          continue;
+        }
+
+        WritableMap neighbors = Arguments.createMap();
+        for (Map.Entry<String, SpatialObject> entry : resolveNextFocus(spatialObject).entrySet()) {
+          SpatialObject target = entry.getValue();
+          // Directions without a neighbor resolve to the spatial object itself
+          if (target == null || target == spatialObject || target.isRemoved()) {
+            neighbors.putNull(entry.getKey());
+          } else {
+            neighbors.putString(entry.getKey(), target.getId());
+          }
+        }
+
+        neighborsById.putMap(id, neighbors);
+      }
+
+      promise.resolve(neighborsById);
+    });
+  }
+
   public ReactContext getReactContext() {
     return this.reactContext;
   }
 
+  public SpatialEventLog getEventLog() {
+    return this.eventLog;
+  }
+
+  public NavigationRoot<SpatialObject> getNavigationRoot(String navigationRootId) {
+    NavigationRoot<SpatialObject> navigationRoot = navigationRoots.get(navigationRootId);
+    if (navigationRoot == null) {
+      navigationRoots.putIfAbsent(navigationRootId, new NavigationRoot<>(navigationRootId));
+      navigationRoot = navigationRoots.get(navigationRootId);
+    }
+
+    return navigationRoot;
+  }
+
+  public NavigationRoot<SpatialObject> getActiveNavigationRoot() {
+    synchronized (navigationRootStack) {
+      return getNavigationRoot(navigationRootStack.peekLast());
+    }
+  }
+
+  public SpatialNavigationMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  public boolean isRecording() {
+    return recorder != null;
+  }
+
+  // Adds an event to the recording in progress, if any. Recording stops on the first write failure.
+  public void record(RecorderAction action) {
+    NavigationRecorder currentRecorder = recorder;
+    if (currentRecorder == null) {
+      return;
+    }
+
+    try {
+      action.record(currentRecorder);
+    } catch (IOException e) {
+      Log.e(TAG, "record - stopping recording, write failed", e);
+      stopRecording();
+    }
+  }
+
+  private synchronized boolean stopRecording() {
+    NavigationRecorder currentRecorder = recorder;
+    if (currentRecorder == null) {
+      return false;
+    }
+
+    recorder = null;
+    recordingFile = null;
+    try {
+      currentRecorder.close();
+    } catch (IOException e) {
+      Log.e(TAG, "stopRecording - could not close recording", e);
+    }
+
+    return true;
+  }
+
+  public interface RecorderAction {
+    void record(NavigationRecorder recorder) throws IOException;
+  }
+
+  public SpatialKeyHandler getKeyHandler() {
+    return this.keyHandler;
+  }
+
+  public @Nullable
+  SpatialObject getFocusedSpatialObject() {
+    return focusSpatialObjectId != null ? getSpatialObject(focusSpatialObjectId) : null;
+  }
+
+  public SpatialInitialFocusResolver getInitialFocusResolver() {
+    return this.initialFocusResolver;
+  }
+
+  public SpatialRegistrationQueue getRegistrationQueue() {
+    return this.registrationQueue;
+  }
+
+  public SpatialLayoutRefresher getLayoutRefresher() {
+    return this.layoutRefresher;
+  }
+
+  public SpatialFocusObserver getFocusObserver() {
+    return this.focusObserver;
+  }
+
+  public SpatialRegistry<SpatialObject, SpatialGroup> getRegistry() {
+    return this.registry;
+  }
+
   public Map<String, SpatialGroup> getGroups() {
-    return this.groups;
+    return this.registry.getGroups();
   }
 
   public Map<String, SpatialObject> getSpatialObjects() {
-    return this.spatialObjects;
+    return this.registry.getSpatialObjects();
   }
 
   public @Nullable
   SpatialGroup getGroup(String groupId) {
-    return this.getGroups().get(groupId);
+    return this.registry.getGroup(groupId);
   }
 
   public SpatialObject getSpatialObject(String spatialObjectId) {
-    return this.spatialObjects.get(spatialObjectId);
+    return this.registry.getSpatialObject(spatialObjectId);
+  }
+
+  public @Nullable
+  SpatialObject getSpatialObjectByNodeHandle(int nodeHandle) {
+    return this.spatialObjectsByNodeHandle.get(nodeHandle);
+  }
+
+  // Called on the UI thread once the view of spatialObject resolved and it joined its group
+  public void onSpatialObjectAttached(SpatialObject spatialObject) {
+    NavigationSnapshot snapshot = this.snapshot;
+
+    if (snapshot != null && focusSpatialObjectId == null && spatialObject.getId().equals(snapshot.getFocusedId())) {
+      spatialObject.focus();
+    }
+  }
+
+  // The focused spatial object of navigationRootId got its focus back from the snapshot
+  public boolean isFocusRestored(String navigationRootId) {
+    NavigationSnapshot snapshot = this.snapshot;
+    SpatialObject focused = getFocusedSpatialObject();
+
+    return snapshot != null && focused != null && focused.getId().equals(snapshot.getFocusedId())
+      && focused.getNavigationRootId().equals(navigationRootId);
+  }
+
+  public void unregisterSpatialObject(SpatialObject spatialObject) {
+    this.registry.removeSpatialObject(spatialObject);
+    this.spatialObjectsByNodeHandle.remove(spatialObject.getNodeHandle(), spatialObject);
+    NavigationRoot<SpatialObject> navigationRoot = getNavigationRoot(spatialObject.getNavigationRootId());
+    navigationRoot.removeSpatialObject(spatialObject);
+    navigationRoot.invalidate();
+    SpatialTrace.setCounter(SpatialTrace.COUNTER_SPATIAL_OBJECTS, this.getSpatialObjects().size());
+  }
+
+  public ReferenceQueue<View> getCollectedViews() {
+    return this.collectedViews;
+  }
+
+  // Removes a SpatialObject whose native view is gone without JS having removed it
+  public void retireSpatialObject(SpatialObject spatialObject) {
+    if (!spatialObject.isRemoved()) {
+      Log.w(TAG, "retireSpatialObject - native view is gone: " + spatialObject.getId());
+      spatialObject.cleanUp();
+    }
+  }
+
+  public void retireCollectedSpatialObjects() {
+    Reference<? extends View> reference;
+    while ((reference = collectedViews.poll()) != null) {
+      if (reference instanceof SpatialObject.ViewReference) {
+        retireSpatialObject(((SpatialObject.ViewReference) reference).spatialObject);
+      }
+    }
   }
 
   public void setFocusSpatialObjectId(String spatialObjectId, String groupId) {
+    SpatialTrace.beginSection(SpatialTrace.PROPERTY_CHANGE);
     support.firePropertyChange(
       "focusState",
       new HashMap<String, String>() {{
@@ -147,6 +920,7 @@ public class SpatialNavigationModule extends ReactContextBaseJavaModule {
         put("groupId", groupId);
       }}
     );
+    SpatialTrace.endSection();
 
     this.focusSpatialObjectId = spatialObjectId;
     this.focusGroupId = groupId;
@@ -154,37 +928,548 @@ public class SpatialNavigationModule extends ReactContextBaseJavaModule {
 
   public void updateFocus(String spatialObjectId, String groupId) {
     // todo: add logic to blur prev group or call onFocus on next group
+    if (focusChangedAtNanos != 0) {
+      SpatialTrace.endAsyncSection(SpatialTrace.FOCUS_TO_NEXT_FOCUS_WRITTEN, focusTraceCookie);
+    }
+    this.focusChangedAtNanos = System.nanoTime();
+    SpatialTrace.beginAsyncSection(SpatialTrace.FOCUS_TO_NEXT_FOCUS_WRITTEN, ++focusTraceCookie);
+    SpatialObject previousSpatialObject = focusSpatialObjectId != null ? getSpatialObject(focusSpatialObjectId) : null;
     this.setFocusSpatialObjectId(spatialObjectId, groupId);
 
+    SpatialObject spatialObject = getSpatialObject(spatialObjectId);
+    if (spatialObject != null) {
+      getNavigationRoot(spatialObject.getNavigationRootId()).setLastFocusedId(spatialObjectId);
+    }
+
+    if (isLikelyNextFocusEnabled && previousSpatialObject != null && spatialObject != null) {
+      recordMove(previousSpatialObject, spatialObject);
+    }
+
+  }
+
+  // Counts the direction of a key press that moved focus, in the group focus moved away from
+  private void recordMove(SpatialObject from, SpatialObject to) {
+    Map<String, SpatialObject> lastNextFocus = from.getLastNextFocus();
+    SpatialGroup group = getGroup(from.getGroupId());
+    if (lastNextFocus == null || group == null) {
+      return;
+    }
+
+    for (Map.Entry<String, SpatialObject> entry : lastNextFocus.entrySet()) {
+      if (entry.getValue() == to) {
+        group.recordMove(entry.getKey());
+        return;
+      }
+    }
+  }
+
+  // Reachable targets of focusedElement, most likely first, based on the moves counted in its group
+  private void emitLikelyNextFocus(SpatialObject focusedElement, Map<String, SpatialObject> nextFocus) {
+    SpatialGroup group = getGroup(focusedElement.getGroupId());
+    if (group == null) {
+      return;
+    }
+
+    Map<SpatialObject, Double> probabilities = new HashMap<>();
+    // Most likely direction leading to each target, several can lead to the same one, e.g. a group's preferred child
+    Map<SpatialObject, String> directions = new HashMap<>();
+    Map<SpatialObject, Double> directionProbabilities = new HashMap<>();
+    for (Map.Entry<String, SpatialObject> entry : nextFocus.entrySet()) {
+      SpatialObject target = entry.getValue();
+      if (target == null || target == focusedElement || target.isRemoved()) {
+        continue;
+      }
+
+      double probability = group.getMoveProbability(entry.getKey(), nextFocus.size());
+      Double directionProbability = directionProbabilities.get(target);
+      if (directionProbability == null || probability > directionProbability) {
+        directions.put(target, entry.getKey());
+        directionProbabilities.put(target, probability);
+      }
+
+      Double targetProbability = probabilities.get(target);
+      probabilities.put(target, targetProbability != null ? targetProbability + probability : probability);
+    }
+
+    List<SpatialObject> targets = new ArrayList<>(probabilities.keySet());
+    Collections.sort(targets, (a, b) -> Double.compare(probabilities.get(b), probabilities.get(a)));
+
+    WritableArray rankedTargets = Arguments.createArray();
+    for (SpatialObject target : targets) {
+      WritableMap rankedTarget = Arguments.createMap();
+      rankedTarget.putString("id", target.getId());
+      rankedTarget.putString("direction", directions.get(target));
+      rankedTarget.putDouble("probability", probabilities.get(target));
+      rankedTargets.pushMap(rankedTarget);
+    }
+
+    WritableMap params = Arguments.createMap();
+    params.putString("id", focusedElement.getId());
+    params.putArray("targets", rankedTargets);
+
+    // Behind the focus work already queued, this is only a hint for prefetching
+    UiThreadUtil.runOnUiThread(() -> {
+      if (focusedElement.getId().equals(focusSpatialObjectId)) {
+        reactContext
+          .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+          .emit("spatialLikelyNextFocus", params);
+      }
+    });
   }
 
   public void setNativeFocusToGroup(String groupId) {
     SpatialGroup group = this.getGroup(groupId);
 
     if (group == null) {
-      throw new Error(TAG + " - setNativeFocusToGroup: group not found: " + groupId);
+      Log.w(TAG, "!!!!! setNativeFocusToGroup - No group found with this id: " + groupId);
+      return;
     }
 
     group.focus();
   }
 
+  // Focuses the last focused spatial object of the root, or its first top level group
+  private boolean focusNavigationRoot(NavigationRoot<SpatialObject> navigationRoot) {
+    String lastFocusedId = navigationRoot.getLastFocusedId();
+    SpatialObject lastFocused = lastFocusedId != null ? getSpatialObject(lastFocusedId) : null;
+    if (lastFocused != null && !lastFocused.isRemoved() && lastFocused.getView() != null) {
+      lastFocused.focus();
+      return true;
+    }
+
+    for (SpatialGroup group : getGroups().values()) {
+      SpatialGroup parentGroup = group.getGroupParentId() != null ? getGroup(group.getGroupParentId()) : null;
+      boolean isTopLevel = parentGroup == null || !parentGroup.getNavigationRootId().equals(navigationRoot.getId());
+
+      if (isTopLevel && group.getNavigationRootId().equals(navigationRoot.getId())) {
+        group.focus();
+        return true;
+      }
+    }
+
+    return false;
+  }
+
   public void setNativeFocusToSpatialElement(String spatialObjectId) {
     SpatialObject spatialObject = this.getSpatialObject(spatialObjectId);
 
     if (spatialObject == null) {
-      throw new Error(TAG + " - setNativeFocusToSpatialElement: spatialObject not found: " + spatialObjectId);
+      Log.w(TAG, "!!!!! setNativeFocusToSpatialElement - No spatialObject found with this id: " + spatialObjectId);
+      return;
     }
 
     spatialObject.focus();
   }
 
+  /**
+   * Resolves the spatial objects that get focus when moving up, right, down or left from focusedElement.
+   * Only spatial objects of focusedElement's navigation root are considered. Results are cached on the
+   * spatial object until its root is invalidated. Must be called on the UI thread.
+   */
+  public Map<String, SpatialObject> resolveNextFocus(SpatialObject focusedElement) {
+    NavigationRoot<SpatialObject> navigationRoot = getNavigationRoot(focusedElement.getNavigationRootId());
+    if (navigationRoot.hasShedLayouts()) {
+      restoreLayouts(navigationRoot);
+    }
+
+    int version = navigationRoot.getVersion();
+    Map<String, SpatialObject> cachedNextFocus = focusedElement.getCachedNextFocus(version);
+    if (cachedNextFocus != null) {
+      return cachedNextFocus;
+    }
+
+    Map<String, SpatialObject> spatialObjects = navigationRoot.getSpatialObjects();
+    // Tables only hold the four main directions
+    NextFocusTable nextFocusTable = isDiagonalNavigationEnabled ? null : getNextFocusTable(focusedElement);
+    if (nextFocusTable != null) {
+      Map<String, SpatialObject> tableNextFocus = nextFocusTable.get(focusedElement, spatialObjects);
+      metrics.recordNextFocusTableLookup(tableNextFocus != null);
+
+      if (tableNextFocus != null) {
+        // Nothing to move to, focus stays as with the neighbor search
+        for (String direction : Utils.DIRECTIONS) {
+          if (tableNextFocus.get(direction) == null) {
+            tableNextFocus.put(direction, focusedElement);
+          }
+        }
+        focusedElement.setCachedNextFocus(tableNextFocus, version);
+        return tableNextFocus;
+      }
+    }
+
+    long searchStart = System.nanoTime();
+    SpatialIndex<SpatialObject> index = navigationRoot.getIndex();
+    Map<String, SpatialObject> nextFocusSpatialObjects = Utils.getIndexedNeighbors(focusedElement, spatialObjects, this.getGroups());
+    // Inside groups with a layout hint only the directions leading out of the group need the geometry search
+    boolean isResolvedByIndex = nextFocusSpatialObjects.size() == 4 && !isDiagonalNavigationEnabled;
+    int candidatesScanned = 0;
+
+    if (!isResolvedByIndex) {
+      Map<String, SpatialObject> indexedNeighbors = nextFocusSpatialObjects;
+      Map<String, SpatialObject> candidates = getVisibleCandidates(focusedElement, spatialObjects, index);
+      candidatesScanned = candidates.size();
+
+      Map<String, SpatialObject> nearestNeighbors = calculateNearestNeighbor(focusedElement, candidates);
+
+      // Fall back to the off-screen objects for the directions where nothing visible qualifies
+      if (candidates != spatialObjects && nearestNeighbors.containsValue(null)) {
+        Map<String, SpatialObject> offScreenCandidates = getOffScreenCandidates(focusedElement, nearestNeighbors, index);
+        Map<String, SpatialObject> offScreenNeighbors = calculateNearestNeighbor(focusedElement, offScreenCandidates);
+        candidatesScanned += offScreenCandidates.size();
+        metrics.recordViewportFallback();
+
+        for (Map.Entry<String, SpatialObject> entry : offScreenNeighbors.entrySet()) {
+          if (nearestNeighbors.get(entry.getKey()) == null) {
+            nearestNeighbors.put(entry.getKey(), entry.getValue());
+          }
+        }
+      }
+
+      SpatialTrace.beginSection(SpatialTrace.OVERRIDE_NEAREST_NEIGHBOR);
+      nextFocusSpatialObjects = Utils.overrideNearestNeighborIfNeeded(nearestNeighbors, focusedElement, this.getGroups());
+      nextFocusSpatialObjects.putAll(indexedNeighbors);
+      SpatialTrace.endSection();
+    }
+
+    SpatialTrace.setCounter(SpatialTrace.COUNTER_CANDIDATES_SCANNED, candidatesScanned);
+    long searchDuration = System.nanoTime() - searchStart;
+    metrics.recordNeighborSearch(searchDuration, candidatesScanned);
+    eventLog.write(SpatialEventLog.NEIGHBOR_SEARCH, focusedElement.getNodeHandle(), searchStart, searchDuration);
+
+    // A layout can't be resolved without its own layout, don't cache until it has one
+    if (isResolvedByIndex || !focusedElement.getLayout().isEmpty()) {
+      focusedElement.setCachedNextFocus(nextFocusSpatialObjects, version);
+    }
+
+    return nextFocusSpatialObjects;
+  }
+
+  // Table of the closest group of spatialObject that has an entry for it
+  private @Nullable
+  NextFocusTable getNextFocusTable(SpatialObject spatialObject) {
+    SpatialGroup group = getGroup(spatialObject.getGroupId());
+
+    while (group != null) {
+      NextFocusTable nextFocusTable = group.getNextFocusTable();
+      if (nextFocusTable != null && nextFocusTable.contains(spatialObject.getId())) {
+        return nextFocusTable;
+      }
+
+      group = group.getGroupParentId() != null ? getGroup(group.getGroupParentId()) : null;
+    }
+
+    return null;
+  }
+
+  // Writes the precomputed next focus of spatialObject to its view, if its table still matches the layout
+  public void applyNextFocusTable(SpatialObject spatialObject) {
+    NextFocusTable nextFocusTable = getNextFocusTable(spatialObject);
+    if (nextFocusTable == null) {
+      return;
+    }
+
+    Map<String, SpatialObject> nextFocus =
+      nextFocusTable.get(spatialObject, getNavigationRoot(spatialObject.getNavigationRootId()).getSpatialObjects());
+    // Directions without a target keep what the view has
+    if (nextFocus != null) {
+      spatialObject.setNativeViewNextFocusPros(
+        getNodeHandle(nextFocus.get("up")),
+        getNodeHandle(nextFocus.get("right")),
+        getNodeHandle(nextFocus.get("down")),
+        getNodeHandle(nextFocus.get("left"))
+      );
+    }
+  }
+
+  private static @Nullable
+  Integer getNodeHandle(@Nullable SpatialObject spatialObject) {
+    return spatialObject != null ? spatialObject.getNodeHandle() : null;
+  }
+
+  // Drops the NextFocusTable that holds the next focus of spatialObject, it no longer matches
+  public void dropNextFocusTable(SpatialObject spatialObject) {
+    SpatialGroup group = getGroup(spatialObject.getGroupId());
+
+    while (group != null) {
+      NextFocusTable nextFocusTable = group.getNextFocusTable();
+      if (nextFocusTable != null && nextFocusTable.contains(spatialObject.getId())) {
+        group.setNextFocusTable(null);
+        return;
+      }
+
+      group = group.getGroupParentId() != null ? getGroup(group.getGroupParentId()) : null;
+    }
+  }
+
+  // Spatial objects of groupId and its descendant groups
+  private void collectSpatialObjects(String groupId, List<SpatialObject> spatialObjects) {
+    SpatialGroup group = getGroup(groupId);
+    if (group == null) {
+      return;
+    }
+
+    for (String spatialObjectId : group.getSpatialChildIds().keySet()) {
+      SpatialObject spatialObject = getSpatialObject(spatialObjectId);
+      if (spatialObject != null) {
+        spatialObjects.add(spatialObject);
+      }
+    }
+
+    for (String childGroupId : group.getGroupChildIds().keySet()) {
+      collectSpatialObjects(childGroupId, spatialObjects);
+    }
+  }
+
+  private Map<String, SpatialObject> calculateNearestNeighbor(SpatialObject focusedElement, Map<String, SpatialObject> candidates) {
+    SpatialTrace.beginSection(SpatialTrace.CALCULATE_NEAREST_NEIGHBOR);
+    Map<String, SpatialObject> nearestNeighbors =
+      Utils.getNearestNeighbor(focusedElement, candidates, nearestNeighborThreshold, isDiagonalNavigationEnabled);
+    SpatialTrace.endSection();
+
+    return nearestNeighbors;
+  }
+
+  // Spatial objects in the viewport of focusedElement's root, or all spatial objects if culling is off or there is no
+  // viewport. Only objects in the same scroll container as focusedElement are culled, the viewport is placed with its
+  // scroll offsets
+  private Map<String, SpatialObject> getVisibleCandidates(SpatialObject focusedElement, Map<String, SpatialObject> spatialObjects, SpatialIndex<SpatialObject> index) {
+    View view = focusedElement.getView();
+    if (!isViewportCullingEnabled || view == null) {
+      return spatialObjects;
+    }
+
+    View rootView = view.getRootView();
+    if (rootView == null || rootView.getWidth() == 0 || rootView.getHeight() == 0) {
+      return spatialObjects;
+    }
+
+    // Layouts ignore scrolling, move the viewport by the scroll offsets of the focused view's scroll containers instead
+    int scrollX = 0;
+    int scrollY = 0;
+    ViewParent parent = view.getParent();
+    while (parent instanceof View) {
+      View parentView = (View) parent;
+      scrollX += parentView.getScrollX();
+      scrollY += parentView.getScrollY();
+      parent = parentView.getParent();
+    }
+
+    int margin = viewportMargin;
+    int scrollContainer = focusedElement.getScrollContainer();
+    Map<String, SpatialObject> candidates = new HashMap<>();
+    // Other scroll containers have their own offsets, a rail scrolled sideways can't be culled with the viewport
+    for (SpatialObject spatialObject : spatialObjects.values()) {
+      if (spatialObject.getScrollContainer() != scrollContainer) {
+        candidates.put(spatialObject.getId(), spatialObject);
+      }
+    }
+    for (SpatialObject spatialObject : index.query(
+      scrollX - margin,
+      scrollY - margin,
+      scrollX + rootView.getWidth() + margin,
+      scrollY + rootView.getHeight() + margin
+    )) {
+      candidates.put(spatialObject.getId(), spatialObject);
+    }
+
+    metrics.recordViewportCulling(spatialObjects.size() - candidates.size());
+    return candidates;
+  }
+
+  // Spatial objects on the side of focusedElement of every direction without a visible neighbor
+  private Map<String, SpatialObject> getOffScreenCandidates(SpatialObject focusedElement, Map<String, SpatialObject> nearestNeighbors, SpatialIndex<SpatialObject> index) {
+    Map<String, SpatialObject> candidates = new HashMap<>();
+    Map<String, Integer> layout = focusedElement.getLayout();
+    int[] area = index.getIndexedArea();
+    if (area == null || layout.isEmpty()) {
+      return candidates;
+    }
+
+    for (Map.Entry<String, SpatialObject> entry : nearestNeighbors.entrySet()) {
+      if (entry.getValue() != null) {
+        continue;
+      }
+
+      // Diagonals are the quadrant where the half planes of their two directions intersect
+      String direction = entry.getKey();
+      int[] halfPlane = area.clone();
+      if (direction.startsWith("up")) {
+        halfPlane[3] = layout.get("y0");
+      }
+      if (direction.equals("right") || direction.endsWith("Right")) {
+        halfPlane[0] = layout.get("x1");
+      }
+      if (direction.startsWith("down")) {
+        halfPlane[1] = layout.get("y1");
+      }
+      if (direction.equals("left") || direction.endsWith("Left")) {
+        halfPlane[2] = layout.get("x0");
+      }
+
+      if (halfPlane[0] >= halfPlane[2] || halfPlane[1] >= halfPlane[3]) {
+        continue;
+      }
+
+      for (SpatialObject spatialObject : index.query(halfPlane[0], halfPlane[1], halfPlane[2], halfPlane[3])) {
+        candidates.put(spatialObject.getId(), spatialObject);
+      }
+    }
+
+    return candidates;
+  }
+
+  public boolean isViewportCullingEnabled() {
+    return isViewportCullingEnabled;
+  }
+
+  public boolean isDiagonalNavigationEnabled() {
+    return isDiagonalNavigationEnabled;
+  }
+
+  /**
+   * Drops the caches of tier and of every tier below it, see SpatialMemoryTrimmer. The focused spatial object
+   * and its next focus are kept. Must be called on the UI thread.
+   */
+  public void shedCaches(int tier) {
+    NavigationRoot<SpatialObject> activeNavigationRoot = getActiveNavigationRoot();
+    // Only what is actually dropped is counted, emptied maps keep their tables
+    long releasedBytes = 0;
+
+    for (SpatialObject spatialObject : getSpatialObjects().values()) {
+      if (spatialObject.getId().equals(focusSpatialObjectId)) {
+        continue;
+      }
+
+      Map<String, SpatialObject> lastNextFocus = spatialObject.getLastNextFocus();
+      if (lastNextFocus != null) {
+        releasedBytes += Utils.estimateHashMapBytes(lastNextFocus.size());
+      }
+      spatialObject.clearCachedNextFocus();
+
+      boolean isOffRoot = !spatialObject.getNavigationRootId().equals(activeNavigationRoot.getId());
+      if (tier >= SpatialMemoryTrimmer.TIER_OFF_SCREEN_LAYOUTS && (isOffRoot || !spatialObject.isOnScreen())) {
+        long releasedLayoutBytes = spatialObject.shedLayout();
+        if (releasedLayoutBytes > 0) {
+          releasedBytes += releasedLayoutBytes;
+          getNavigationRoot(spatialObject.getNavigationRootId()).setHasShedLayouts(true);
+        }
+      }
+    }
+
+    NavigationSnapshot snapshot = this.snapshot;
+    if (snapshot != null) {
+      releasedBytes += snapshot.estimateBytes();
+      this.snapshot = null;
+    }
+
+    if (tier >= SpatialMemoryTrimmer.TIER_OFF_ROOT_TABLES) {
+      for (SpatialGroup group : getGroups().values()) {
+        NextFocusTable nextFocusTable = group.getNextFocusTable();
+        if (nextFocusTable != null && !group.getNavigationRootId().equals(activeNavigationRoot.getId())) {
+          releasedBytes += nextFocusTable.estimateBytes();
+          group.setNextFocusTable(null);
+        }
+      }
+
+      for (NavigationRoot<SpatialObject> navigationRoot : navigationRoots.values()) {
+        if (navigationRoot != activeNavigationRoot && !navigationRoot.isIndexShed()) {
+          releasedBytes += navigationRoot.getIndex().estimateBytes();
+          navigationRoot.shedIndex();
+        }
+      }
+    }
+
+    invalidateNextFocus();
+    offScreenLayoutBytesMeasuredAt = 0;
+
+    metrics.recordTrim(tier, releasedBytes);
+    Log.d(TAG, "Shed caches up to " + SpatialNavigationMetrics.CACHE_TIER_NAMES[tier] + ", freed ~" + releasedBytes + " bytes");
+  }
+
+  // Measures the layouts of navigationRoot that were shed, before the neighbor search or an index query needs them
+  private void restoreLayouts(NavigationRoot<SpatialObject> navigationRoot) {
+    navigationRoot.setHasShedLayouts(false);
+    for (SpatialObject spatialObject : navigationRoot.getSpatialObjects().values()) {
+      spatialObject.restoreLayout();
+    }
+    navigationRoot.invalidate();
+  }
+
+  /**
+   * Estimated bytes each tier of SpatialMemoryTrimmer would release, indexed by tier. Checking which views are
+   * off screen walks every view, that part is only measured again once it is OFF_SCREEN_LAYOUT_ESTIMATE_TTL_MS old.
+   */
+  private long[] getCacheMemory() {
+    long[] cacheMemory = new long[SpatialNavigationMetrics.CACHE_TIER_NAMES.length];
+    NavigationRoot<SpatialObject> activeNavigationRoot = getActiveNavigationRoot();
+    long now = SystemClock.uptimeMillis();
+    boolean shouldMeasureOffScreenLayouts = offScreenLayoutBytesMeasuredAt == 0
+      || now - offScreenLayoutBytesMeasuredAt > OFF_SCREEN_LAYOUT_ESTIMATE_TTL_MS;
+    long offScreenLayoutBytes = 0;
+
+    for (SpatialObject spatialObject : getSpatialObjects().values()) {
+      if (spatialObject.getId().equals(focusSpatialObjectId)) {
+        continue;
+      }
+
+      Map<String, SpatialObject> lastNextFocus = spatialObject.getLastNextFocus();
+      if (lastNextFocus != null) {
+        cacheMemory[SpatialMemoryTrimmer.TIER_SPECULATIVE] += Utils.estimateHashMapBytes(lastNextFocus.size());
+      }
+
+      if (shouldMeasureOffScreenLayouts && !spatialObject.getLayout().isEmpty()) {
+        boolean isOffRoot = !spatialObject.getNavigationRootId().equals(activeNavigationRoot.getId());
+        if (isOffRoot || !spatialObject.isOnScreen()) {
+          offScreenLayoutBytes += spatialObject.estimateSheddableLayoutBytes();
+        }
+      }
+    }
+
+    if (shouldMeasureOffScreenLayouts) {
+      this.offScreenLayoutBytes = offScreenLayoutBytes;
+      offScreenLayoutBytesMeasuredAt = now;
+    }
+    cacheMemory[SpatialMemoryTrimmer.TIER_OFF_SCREEN_LAYOUTS] = this.offScreenLayoutBytes;
+
+    NavigationSnapshot snapshot = this.snapshot;
+    if (snapshot != null) {
+      cacheMemory[SpatialMemoryTrimmer.TIER_SPECULATIVE] += snapshot.estimateBytes();
+    }
+
+    for (SpatialGroup group : getGroups().values()) {
+      NextFocusTable nextFocusTable = group.getNextFocusTable();
+      if (nextFocusTable != null && !group.getNavigationRootId().equals(activeNavigationRoot.getId())) {
+        cacheMemory[SpatialMemoryTrimmer.TIER_OFF_ROOT_TABLES] += nextFocusTable.estimateBytes();
+      }
+    }
+
+    for (NavigationRoot<SpatialObject> navigationRoot : navigationRoots.values()) {
+      if (navigationRoot != activeNavigationRoot && !navigationRoot.isIndexShed()) {
+        cacheMemory[SpatialMemoryTrimmer.TIER_OFF_ROOT_TABLES] += navigationRoot.getIndex().estimateBytes();
+      }
+    }
+
+    return cacheMemory;
+  }
+
+  // Called whenever something changed that could change the result of resolveNextFocus in any root
+  public void invalidateNextFocus() {
+    for (NavigationRoot<SpatialObject> navigationRoot : navigationRoots.values()) {
+      navigationRoot.invalidate();
+    }
+  }
+
   public void getNextFocusNodeHandles(SpatialObject focusedElement) {
     UiThreadUtil.runOnUiThread(() -> {
-//      LinkedHashMap<String, SpatialObject> test = new LinkedHashMap<>(this.spatialObjects);
-      Map<String, SpatialObject> nearestNeighbors =
-        Utils.getNearestNeighbor(focusedElement, spatialObjects, nearestNeighborThreshold);
+      // Removed while this calculation was queued
+      if (focusedElement.isRemoved()) {
+        return;
+      }
+
+      SpatialTrace.beginSection(SpatialTrace.GET_NEXT_FOCUS_NODE_HANDLES);
+      metrics.recordRecalculation(System.nanoTime());
 
-      Map<String, SpatialObject> nextFocusSpatialObjects = Utils.overrideNearestNeighborIfNeeded(nearestNeighbors, focusedElement, this.getGroups());
+      Map<String, SpatialObject> nextFocusSpatialObjects = resolveNextFocus(focusedElement);
 
       SpatialObject nextFocusUp = nextFocusSpatialObjects.get("up");
       SpatialObject nextFocusRight = nextFocusSpatialObjects.get("right");
@@ -192,12 +1477,26 @@ public class SpatialNavigationModule extends ReactContextBaseJavaModule {
       SpatialObject nextFocusLeft = nextFocusSpatialObjects.get("left");
 
 
+      SpatialTrace.beginSection(SpatialTrace.SET_NEXT_FOCUS_PROPS);
       focusedElement.setNativeViewNextFocusPros(
         nextFocusUp.getNodeHandle(),
         nextFocusRight.getNodeHandle(),
         nextFocusDown.getNodeHandle(),
         nextFocusLeft.getNodeHandle()
       );
+      SpatialTrace.endSection();
+      eventLog.write(SpatialEventLog.NEXT_FOCUS_WRITTEN, focusedElement.getNodeHandle());
+
+      if (focusChangedAtNanos != 0 && focusedElement.getId().equals(focusSpatialObjectId)) {
+        metrics.recordFocusToNextFocusWritten(System.nanoTime() - focusChangedAtNanos);
+        SpatialTrace.endAsyncSection(SpatialTrace.FOCUS_TO_NEXT_FOCUS_WRITTEN, focusTraceCookie);
+        focusChangedAtNanos = 0;
+
+        if (isLikelyNextFocusEnabled) {
+          emitLikelyNextFocus(focusedElement, nextFocusSpatialObjects);
+        }
+      }
+      SpatialTrace.endSection();
     });
   }
 
@@ -211,33 +1510,25 @@ public class SpatialNavigationModule extends ReactContextBaseJavaModule {
     }
   };
 
-  public void logState(String label) {
-    if (false) {
-      Map<String, Object> logMap = new HashMap<String, Object>() {{
-        put("focusSpatialObjectId", focusSpatialObjectId);
-      }};
+  private static WritableMap toWritableMap(Map<String, Object> map) {
+    WritableMap writableMap = Arguments.createMap();
 
-      Log.d(TAG, "*************************** Logging SpatialNavigation state: " + label);
-      Log.d(TAG, "" + logMap);
-      logGroupsState();
-      logSpatialObjectSate();
-      Log.d(TAG, "########################### End Log");
-    }
-  }
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      Object value = entry.getValue();
 
-  private synchronized void logGroupsState() {
-    Log.d(TAG, "*************************** Logging GROUP STATE $$$$$$$$$$$$$$$$$$$: ");
-    for (Map.Entry<String, SpatialGroup> entry : groups.entrySet()) {
-      entry.getValue().logGroupState();
+      if (value instanceof Map) {
+        writableMap.putMap(entry.getKey(), toWritableMap((Map<String, Object>) value));
+      } else if (value instanceof Number) {
+        writableMap.putDouble(entry.getKey(), ((Number) value).doubleValue());
+      } else if (value instanceof Boolean) {
+        writableMap.putBoolean(entry.getKey(), (Boolean) value);
+      } else if (value == null) {
+        writableMap.putNull(entry.getKey());
+      } else {
+        writableMap.putString(entry.getKey(), value.toString());
+      }
     }
-    Log.d(TAG, "*************************** END GROUP STATE --------------------: ");
-  }
 
-  private synchronized void logSpatialObjectSate() {
-    Log.d(TAG, "*************************** Logging SPATIAL OBJECT STATE $$$$$$$$$$$$$$$$$$$: ");
-    for (Map.Entry<String, SpatialObject> entry : spatialObjects.entrySet()) {
-      entry.getValue().logState();
-    }
-    Log.d(TAG, "*************************** END SPATIAL OBJECT STATE --------------------: ");
+    return writableMap;
   }
 }
@@ -0,0 +1,19 @@
+package com.reactnativespatialnavigation;
+
+import java.util.Map;
+
+/**
+ * A focusable element as seen by the navigation core (Utils, SpatialNodeGroup, SpatialRegistry).
+ * Implementations must not require Android so the core can run on a plain JVM.
+ */
+public interface SpatialNode {
+  String getId();
+
+  String getGroupId();
+
+  // x0, x1, y0, y1, width and height - empty until the element has been laid out
+  Map<String, Integer> getLayout();
+
+  // disableSecondaryUp, disableSecondaryRight, disableSecondaryDown and disableSecondaryLeft
+  Map<String, Boolean> getNextFocusRestrictions();
+}
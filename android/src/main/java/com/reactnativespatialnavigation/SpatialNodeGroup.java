@@ -0,0 +1,446 @@
+package com.reactnativespatialnavigation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Group tree state and the logic that resolves which child of a group should get focus.
+ * Free of Android dependencies, SpatialGroup adds the native focus and JS events on top.
+ */
+public class SpatialNodeGroup<T extends SpatialNode> {
+  // Layout hints, children are laid out uniformly in reading order
+  public static final String LAYOUT_ROW = "row";
+  public static final String LAYOUT_COLUMN = "column";
+  public static final String LAYOUT_GRID = "grid";
+
+  protected final SpatialRegistry<T, ? extends SpatialNodeGroup<T>> registry;
+  protected final String id;
+  protected final String groupParentId;
+  protected final LinkedHashMap<String, String> groupChildIds = new LinkedHashMap<>();
+  protected boolean hasTVPreferredFocus;
+  protected String lastChildFocusedId;
+  protected final Integer preferredChildFocusIndex;
+  protected final String preferredChildFocusId;
+  protected final boolean shouldTrackChildren;
+  protected final LinkedHashMap<String, String> spatialChildIds = new LinkedHashMap<>();
+  protected final Map<String, String> nextGroupFocus;
+  protected @Nullable
+  String layoutType;
+  protected int columnCount = 1;
+  // Index of spatialChildIds in reading order, rebuilt lazily after children or their layouts change when there is a
+  // layout hint. Read on the UI thread while the native modules thread invalidates it, so it is published whole and
+  // tagged with the version it was built for
+  private volatile @Nullable
+  ChildIndex childIndex;
+  private volatile int childIndexVersion = 0;
+
+  public SpatialNodeGroup(
+    SpatialRegistry<T, ? extends SpatialNodeGroup<T>> registry,
+    String id,
+    @Nullable String groupParentId,
+    boolean hasTVPreferredFocus,
+    @Nullable Integer preferredChildFocusIndex,
+    @Nullable String preferredChildFocusId,
+    boolean shouldTrackChildren,
+    Map<String, String> nextGroupFocus
+  ) {
+    this.registry = registry;
+    this.id = id;
+    this.groupParentId = groupParentId;
+    this.hasTVPreferredFocus = hasTVPreferredFocus;
+    this.preferredChildFocusIndex = preferredChildFocusIndex;
+    this.preferredChildFocusId = preferredChildFocusId;
+    this.shouldTrackChildren = shouldTrackChildren;
+    this.nextGroupFocus = nextGroupFocus;
+    this.lastChildFocusedId = null;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public @Nullable
+  String getGroupParentId() {
+    return groupParentId;
+  }
+
+  public boolean hasTVPreferredFocus() {
+    return hasTVPreferredFocus;
+  }
+
+  public void setHasTVPreferredFocus(boolean shouldSet) {
+    this.hasTVPreferredFocus = shouldSet;
+  }
+
+  // Returns false if the hint is not supported, the group then keeps using the geometry search
+  public boolean setLayoutHint(@Nullable String layoutType, int columnCount) {
+    boolean isSupported = layoutType == null
+      || LAYOUT_ROW.equals(layoutType)
+      || LAYOUT_COLUMN.equals(layoutType)
+      || (LAYOUT_GRID.equals(layoutType) && columnCount > 0);
+
+    this.layoutType = isSupported ? layoutType : null;
+    this.columnCount = isSupported && LAYOUT_GRID.equals(layoutType) ? columnCount : 1;
+    return isSupported;
+  }
+
+  public @Nullable
+  String getLayoutType() {
+    return layoutType;
+  }
+
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  public Map<String, String> getNextGroupFocus() {
+    return nextGroupFocus;
+  }
+
+  public Map<String, String> getSpatialChildIds() {
+    return spatialChildIds;
+  }
+
+  public Map<String, String> getGroupChildIds() {
+    return groupChildIds;
+  }
+
+  // Returns false if the parent group is not registered (yet)
+  public boolean registerToParentGroup() {
+    SpatialNodeGroup<T> parentGroup = this.getParentGroup();
+
+    if (parentGroup == null) {
+      return false;
+    }
+
+    parentGroup.addChildGroup(this);
+    return true;
+  }
+
+  // Returns false if the parent group is not registered anymore
+  public boolean unregisterToParentGroup() {
+    SpatialNodeGroup<T> parentGroup = this.getParentGroup();
+
+    if (parentGroup == null) {
+      return false;
+    }
+
+    parentGroup.removeChildGroup(this.id);
+    return true;
+  }
+
+  // Whether the child that was just added at childIndex should get the preferred focus
+  protected boolean isPreferredChild(String childId, int childIndex) {
+    if (!hasTVPreferredFocus) {
+      return false;
+    }
+
+    boolean doesIndexMatch = preferredChildFocusIndex != null && childIndex == preferredChildFocusIndex;
+    boolean doesIdMatch = preferredChildFocusId != null && preferredChildFocusId.equals(childId);
+    boolean shouldDefaultToFirstChild = preferredChildFocusIndex == null && preferredChildFocusId == null && childIndex == 0;
+
+    return doesIndexMatch || doesIdMatch || shouldDefaultToFirstChild;
+  }
+
+  public synchronized void addChildGroup(final SpatialNodeGroup<T> spatialGroup) {
+    String childGroupId = spatialGroup.getId();
+    this.groupChildIds.put(childGroupId, childGroupId);
+
+    if (isPreferredChild(childGroupId, groupChildIds.size() - 1)) {
+      spatialGroup.setHasTVPreferredFocus(true);
+    }
+  }
+
+  public synchronized void removeChildGroup(final String childGroupId) {
+    this.groupChildIds.remove(childGroupId);
+  }
+
+  // Returns true if the added child should get the preferred focus
+  public synchronized boolean addChildSpatialObjectId(final T spatialObject) {
+    String childSpatialObjectId = spatialObject.getId();
+    this.spatialChildIds.put(childSpatialObjectId, childSpatialObjectId);
+    invalidateChildIndexes();
+
+    return isPreferredChild(childSpatialObjectId, spatialChildIds.size() - 1);
+  }
+
+  public synchronized void removeChildSpatialObjectId(final String childSpatialObjectId) {
+    this.spatialChildIds.remove(childSpatialObjectId);
+    invalidateChildIndexes();
+  }
+
+  // Called when the layout of a child changes, the index follows the layouts
+  public synchronized void invalidateChildIndexes() {
+    childIndexVersion++;
+    childIndex = null;
+  }
+
+  /**
+   * Id of the sibling that gets focus when moving from childId in direction, resolved by index arithmetic
+   * on the layout hint over the children sorted in reading order: by x in a row, by y in a column and top to
+   * bottom then left to right in a grid.
+   * Returns null without a hint, while a child has no layout yet or when moving past the edge of the group,
+   * where the geometry search has to find the neighbor. Utils.getIndexedNeighbors checks the result against
+   * the layouts, a child that doesn't follow the hint falls back to the geometry search.
+   */
+  public @Nullable
+  String getIndexedNeighborId(String childId, String direction) {
+    if (layoutType == null) {
+      return null;
+    }
+
+    // An index built for an older version may still get published by a racing build, it is never used
+    int version = childIndexVersion;
+    ChildIndex childIndex = this.childIndex;
+    if (childIndex == null || childIndex.version != version) {
+      List<String> sortedChildIds = sortChildIdsByLayout();
+      if (sortedChildIds == null) {
+        return null;
+      }
+
+      childIndex = new ChildIndex(version, sortedChildIds);
+      this.childIndex = childIndex;
+    }
+
+    List<String> orderedChildIds = childIndex.orderedChildIds;
+    Integer index = childIndex.childIndexes.get(childId);
+    if (index == null) {
+      return null;
+    }
+
+    // A row is a grid with a single row, a column a grid with a single column
+    int columns = LAYOUT_ROW.equals(layoutType) ? orderedChildIds.size() : columnCount;
+    int column = index % columns;
+    int neighborIndex;
+
+    switch (direction) {
+      case "up":
+        neighborIndex = index - columns;
+        break;
+      case "right":
+        neighborIndex = column < columns - 1 ? index + 1 : -1;
+        break;
+      case "down":
+        neighborIndex = index + columns;
+        break;
+      case "left":
+        neighborIndex = column > 0 ? index - 1 : -1;
+        break;
+      default:
+        return null;
+    }
+
+    if (neighborIndex < 0 || neighborIndex >= orderedChildIds.size()) {
+      return null;
+    }
+
+    return orderedChildIds.get(neighborIndex);
+  }
+
+  // Null while a child is missing or has no layout to sort by
+  private @Nullable
+  List<String> sortChildIdsByLayout() {
+    List<String> childIds;
+    synchronized (this) {
+      childIds = new ArrayList<>(spatialChildIds.values());
+    }
+
+    List<T> children = new ArrayList<>(childIds.size());
+    for (String childId : childIds) {
+      T child = registry.getSpatialObject(childId);
+      if (child == null || child.getLayout().isEmpty()) {
+        return null;
+      }
+      children.add(child);
+    }
+
+    // Stable, children at the same position keep registration order
+    Collections.sort(children, (a, b) -> {
+      Map<String, Integer> aLayout = a.getLayout();
+      Map<String, Integer> bLayout = b.getLayout();
+      int byY = LAYOUT_ROW.equals(layoutType) ? 0 : Integer.compare(aLayout.get("y0"), bLayout.get("y0"));
+      boolean isColumn = LAYOUT_COLUMN.equals(layoutType);
+      return byY != 0 || isColumn ? byY : Integer.compare(aLayout.get("x0"), bLayout.get("x0"));
+    });
+
+    List<String> orderedIds = new ArrayList<>(children.size());
+    for (T child : children) {
+      orderedIds.add(child.getId());
+    }
+
+    return orderedIds;
+  }
+
+  // Returns true if the last focused child of this group or one of its ancestors changed
+  public boolean onChildFocus(final String childId) {
+    boolean hasChanged = updateLastChildFocused(childId);
+
+    if (groupParentId != null) {
+      SpatialNodeGroup<T> parentGroup = this.getParentGroup();
+      if (parentGroup != null) {
+        hasChanged |= parentGroup.onChildFocus(id);
+      }
+    }
+
+    return hasChanged;
+  }
+
+  public boolean updateLastChildFocused(final String childId) {
+    if (!this.shouldTrackChildren || childId.equals(this.lastChildFocusedId)) {
+      return false;
+    }
+
+    this.lastChildFocusedId = childId;
+    return true;
+  }
+
+  public @Nullable
+  T getFirstChildToGetFocus() {
+    T preferredChildToFocus = getPreferredNextSpatialChildFocus();
+
+    if (preferredChildToFocus != null) {
+      return preferredChildToFocus;
+    }
+    if (spatialChildIds.size() > 0) {
+      String firstSpatialObjectId = spatialChildIds.values().iterator().next();
+      return registry.getSpatialObject(firstSpatialObjectId);
+    }
+
+    if (groupChildIds.size() > 0) {
+      String firstGroupId = groupChildIds.values().iterator().next();
+      SpatialNodeGroup<T> firstGroup = registry.getGroup(firstGroupId);
+      if (firstGroup != null) {
+        return firstGroup.getFirstChildToGetFocus();
+      }
+    }
+
+    return null;
+  }
+
+  private @Nullable
+  T getLastFocusedChild() {
+    // If group doesn't track last focus child
+    if (!this.shouldTrackChildren || lastChildFocusedId == null) {
+      return null;
+    }
+
+    // Check if last focused child is a SpatialObject
+    @Nullable T lastFocusSpatialObject = registry.getSpatialObject(lastChildFocusedId);
+    if (lastFocusSpatialObject != null) {
+      return lastFocusSpatialObject;
+    }
+
+    // Check if last focus child is a SpatialGroup
+    @Nullable SpatialNodeGroup<T> lastFocusSpatialGroup = registry.getGroup(lastChildFocusedId);
+    if (lastFocusSpatialGroup != null) {
+      return lastFocusSpatialGroup.getPreferredNextSpatialChildFocus();
+    }
+
+    return null;
+  }
+
+  private @Nullable
+  T getPreferredChildById() {
+    if (preferredChildFocusId == null) {
+      return null;
+    }
+
+    // Check if last child id is a SpatialObject
+    @Nullable T spatialObject = registry.getSpatialObject(preferredChildFocusId);
+    if (spatialObject != null) {
+      return spatialObject;
+    }
+
+    // Check if child id is a SpatialGroup
+    @Nullable SpatialNodeGroup<T> spatialGroup = registry.getGroup(preferredChildFocusId);
+    if (spatialGroup != null) {
+      return spatialGroup.getPreferredNextSpatialChildFocus();
+    }
+
+    return null;
+  }
+
+  private @Nullable
+  T getPreferredChildByIndex() {
+    if (preferredChildFocusIndex == null) {
+      return null;
+    }
+
+    // Check if last child index is a SpatialObject
+    if (!spatialChildIds.isEmpty() && preferredChildFocusIndex < spatialChildIds.size()) {
+      List<String> spatialChildList = new ArrayList<>(spatialChildIds.values());
+      String preferredSpatialChildId = spatialChildList.get(preferredChildFocusIndex);
+      return registry.getSpatialObject(preferredSpatialChildId);
+    }
+
+    // If not check if there are groups to focus on
+    if (!groupChildIds.isEmpty() && preferredChildFocusIndex < groupChildIds.size()) {
+      List<String> groupChildIdList = new ArrayList<>(groupChildIds.values());
+      String preferredGroupId = groupChildIdList.get(preferredChildFocusIndex);
+      SpatialNodeGroup<T> preferredGroup = registry.getGroup(preferredGroupId);
+
+      // The preferred group can be removed, or not have children yet, while the screen mounts or unmounts
+      if (preferredGroup == null) {
+        return null;
+      }
+
+      return preferredGroup.getPreferredNextSpatialChildFocus();
+    }
+
+    return null;
+  }
+
+  public @Nullable
+  T getPreferredNextSpatialChildFocus() {
+    // First check if there is a last focus child
+    T lastFocusSpatialObject = getLastFocusedChild();
+    if (lastFocusSpatialObject != null) {
+      return lastFocusSpatialObject;
+    }
+
+    // Check if preferredChildFocusId is defined and exist
+    T preferredSpatialObjectById = getPreferredChildById();
+    if (preferredSpatialObjectById != null) {
+      return preferredSpatialObjectById;
+    }
+
+    // Check if preferredChildFocusIndex is defined and exist
+    T preferredSpatialObjectByIndex = getPreferredChildByIndex();
+    if (preferredSpatialObjectByIndex != null) {
+      return preferredSpatialObjectByIndex;
+    }
+
+    return null;
+  }
+
+  protected @Nullable
+  SpatialNodeGroup<T> getParentGroup() {
+    if (this.groupParentId != null) {
+      return registry.getGroup(this.groupParentId);
+    }
+
+    return null;
+  }
+
+  private static class ChildIndex {
+    final int version;
+    final List<String> orderedChildIds;
+    final Map<String, Integer> childIndexes;
+
+    ChildIndex(int version, List<String> orderedChildIds) {
+      this.version = version;
+      this.orderedChildIds = Collections.unmodifiableList(orderedChildIds);
+      Map<String, Integer> childIndexes = new HashMap<>();
+      for (int i = 0; i < orderedChildIds.size(); i++) {
+        childIndexes.put(orderedChildIds.get(i), i);
+      }
+      this.childIndexes = Collections.unmodifiableMap(childIndexes);
+    }
+  }
+}
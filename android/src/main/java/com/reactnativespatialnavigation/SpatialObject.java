@@ -1,11 +1,13 @@
 package com.reactnativespatialnavigation;
 
 import android.graphics.Matrix;
+import android.graphics.Rect;
 import android.graphics.RectF;
 import android.os.Build;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewParent;
+import android.widget.HorizontalScrollView;
 import android.widget.ScrollView;
 
 import androidx.annotation.RequiresApi;
@@ -13,56 +15,132 @@ import androidx.annotation.RequiresApi;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.uimanager.NativeViewHierarchyManager;
 import com.facebook.react.uimanager.UIBlock;
 import com.facebook.react.uimanager.UIManagerModule;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 
-public class SpatialObject {
-  private final String TAG;
+public class SpatialObject implements SpatialNode {
+  private static final String TAG = Utils.generateTag(SpatialObject.class.getSimpleName());
+  public static final int NO_SCROLL_CONTAINER = 0;
   private final SpatialNavigationModule spatialNavigationModule;
   private final String id;
   private final String groupId;
   private final Map<String, Integer> layout = new HashMap<>();
   private final Integer nodeHandle;
-  private View view;
-  private Map<String, Boolean> nextFocusRestrictions = new HashMap<String, Boolean>() {{
-    put("disableSecondaryUp", false);
-    put("disableSecondaryRight", false);
-    put("disableSecondaryDown", false);
-    put("disableSecondaryLeft", false);
-  }};
+  // Navigation root of the group this object registered to
+  private final String navigationRootId;
+  // Views are held weakly so a SpatialObject that JS never removes can't pin its native view
+  private @Nullable
+  ViewReference viewReference;
+  // Replaced as a whole on the UI thread when a registration with the same id changes them, see update
+  private Map<String, Boolean> nextFocusRestrictions;
   private boolean isFocused = false;
   private final RectF mBoundingBox = new RectF();
+  private final int[] measuredBounds = new int[4];
+  // Identity of the innermost ScrollView or HorizontalScrollView around the view, NO_SCROLL_CONTAINER if there is
+  // none. Updated whenever the view is measured, objects sharing it scroll together, see getVisibleCandidates
+  private int scrollContainer = NO_SCROLL_CONTAINER;
+  // When transformed bounds of an animating view are written back, see SpatialLayoutRefresher
+  private String layoutRefreshPolicy;
   private boolean areListenersSet;
+  private boolean isRemoved = false;
+  // False until updateLayout measured the view, the layout can be seeded from a NavigationSnapshot before that
+  private boolean isLayoutMeasured = false;
+  // Result of the last next focus resolution and the navigation root version it is valid for
+  private @Nullable
+  Map<String, SpatialObject> cachedNextFocus;
+  private int cachedNextFocusVersion = -1;
 
 
   public SpatialObject(ReadableMap spatialObjectConfig, SpatialNavigationModule spatialNavigationModule) {
+    this(spatialObjectConfig, spatialNavigationModule, null);
+  }
+
+  // With the NativeViewHierarchyManager of a JS batch that already landed, the view is resolved through it rather than
+  // from a UIBlock, see SpatialRegistrationQueue
+  public SpatialObject(
+    ReadableMap spatialObjectConfig,
+    SpatialNavigationModule spatialNavigationModule,
+    @Nullable NativeViewHierarchyManager nativeViewHierarchyManager
+  ) {
     String id = spatialObjectConfig.getString("id");
     String groupId = spatialObjectConfig.getString("groupId");
 
     this.id = id;
 
-    this.TAG = Utils.generateTag(SpatialObject.class.getSimpleName() + ": " + this.id);
-
     this.spatialNavigationModule = spatialNavigationModule;
 
     this.groupId = groupId;
 
     this.nodeHandle = spatialObjectConfig.getInt("nodeHandle");
 
+    SpatialGroup group = spatialNavigationModule.getGroup(groupId);
+    this.navigationRootId = group != null ? group.getNavigationRootId() : NavigationRoot.DEFAULT_ID;
+
+    nextFocusRestrictions = readNextFocusRestrictions(spatialObjectConfig);
+    layoutRefreshPolicy = readLayoutRefreshPolicy(spatialObjectConfig);
+
+    areListenersSet = false;
+    this.setNativeView(nativeViewHierarchyManager);
+  }
+
+  private static Map<String, Boolean> readNextFocusRestrictions(ReadableMap spatialObjectConfig) {
     ReadableMap _focusRestrictions = spatialObjectConfig.getMap("nextFocusRestrictions");
+    Map<String, Boolean> nextFocusRestrictions = new HashMap<>();
     nextFocusRestrictions.put("disableSecondaryUp", _focusRestrictions.getBoolean("disableSecondaryUp"));
     nextFocusRestrictions.put("disableSecondaryRight", _focusRestrictions.getBoolean("disableSecondaryRight"));
     nextFocusRestrictions.put("disableSecondaryDown", _focusRestrictions.getBoolean("disableSecondaryDown"));
     nextFocusRestrictions.put("disableSecondaryLeft", _focusRestrictions.getBoolean("disableSecondaryLeft"));
+    return nextFocusRestrictions;
+  }
 
-    areListenersSet = false;
-    this.setNativeView();
+  private static String readLayoutRefreshPolicy(ReadableMap spatialObjectConfig) {
+    return spatialObjectConfig.hasKey("layoutRefreshPolicy")
+      ? spatialObjectConfig.getString("layoutRefreshPolicy")
+      : SpatialLayoutRefresher.POLICY_SETTLED;
+  }
+
+  /**
+   * Applies a registration with the same id in place, keeping the resolved view, layout and cached next focus.
+   * Returns false when the view or the group changed, the object has to be replaced then.
+   */
+  public boolean update(ReadableMap spatialObjectConfig) {
+    if (nodeHandle != spatialObjectConfig.getInt("nodeHandle") || !groupId.equals(spatialObjectConfig.getString("groupId"))) {
+      return false;
+    }
+
+    Map<String, Boolean> updatedRestrictions = readNextFocusRestrictions(spatialObjectConfig);
+    String updatedLayoutRefreshPolicy = readLayoutRefreshPolicy(spatialObjectConfig);
+    boolean haveRestrictionsChanged = !updatedRestrictions.equals(nextFocusRestrictions);
+    if (!haveRestrictionsChanged && updatedLayoutRefreshPolicy.equals(layoutRefreshPolicy)) {
+      return true;
+    }
+
+    // Both are read on the UI thread
+    UiThreadUtil.runOnUiThread(() -> {
+      layoutRefreshPolicy = updatedLayoutRefreshPolicy;
+      if (!haveRestrictionsChanged) {
+        return;
+      }
+
+      // Restrictions only shape the next focus of this object
+      nextFocusRestrictions = updatedRestrictions;
+      spatialNavigationModule.dropNextFocusTable(this);
+      clearCachedNextFocus();
+      if (isFocused) {
+        runNextFocusCalculations();
+      }
+    });
+
+    return true;
   }
 
   public String getId() {
@@ -73,6 +151,14 @@ public class SpatialObject {
     return this.groupId;
   }
 
+  public String getNavigationRootId() {
+    return this.navigationRootId;
+  }
+
+  public String getLayoutRefreshPolicy() {
+    return layoutRefreshPolicy;
+  }
+
   public Integer getNodeHandle() {
     return this.nodeHandle;
   }
@@ -85,34 +171,186 @@ public class SpatialObject {
     return layout;
   }
 
+  public @Nullable
+  View getView() {
+    return viewReference != null ? viewReference.get() : null;
+  }
+
+  public boolean isRemoved() {
+    return isRemoved;
+  }
+
+  public boolean isLayoutMeasured() {
+    return isLayoutMeasured;
+  }
+
+  // {x0, y0, width, height} from a NavigationSnapshot, replaced by the measured layout once the view reports in
+  public void seedLayout(int[] seededLayout) {
+    layout.put("height", seededLayout[3]);
+    layout.put("width", seededLayout[2]);
+    layout.put("x0", seededLayout[0]);
+    layout.put("x1", seededLayout[0] + seededLayout[2]);
+    layout.put("y0", seededLayout[1]);
+    layout.put("y1", seededLayout[1] + seededLayout[3]);
+
+    NavigationRoot<SpatialObject> navigationRoot = spatialNavigationModule.getNavigationRoot(navigationRootId);
+    navigationRoot.getIndex().update(this);
+    navigationRoot.invalidate();
+  }
+
+  public @Nullable
+  Map<String, SpatialObject> getCachedNextFocus(int version) {
+    return cachedNextFocusVersion == version ? cachedNextFocus : null;
+  }
+
+  // Last resolved next focus even if it is outdated, what the view's next focus ids were written from
+  public @Nullable
+  Map<String, SpatialObject> getLastNextFocus() {
+    return cachedNextFocus;
+  }
+
+  public void setCachedNextFocus(Map<String, SpatialObject> nextFocus, int version) {
+    cachedNextFocus = nextFocus;
+    cachedNextFocusVersion = version;
+  }
+
+  public void clearCachedNextFocus() {
+    cachedNextFocus = null;
+    cachedNextFocusVersion = -1;
+  }
+
+  public int getScrollContainer() {
+    return scrollContainer;
+  }
+
+  // Whether any part of the view is currently visible on screen
+  public boolean isOnScreen() {
+    View view = getView();
+    return view != null && view.isShown() && view.getGlobalVisibleRect(new Rect());
+  }
+
+  // Bytes shedLayout releases. clear() keeps the map's table and the keys are constants, only its entries and the
+  // values outside of the Integer cache are released.
+  public long estimateSheddableLayoutBytes() {
+    long bytes = 0;
+    for (Integer value : layout.values()) {
+      bytes += value < -128 || value > 127 ? 32 + 16 : 32;
+    }
+
+    return bytes;
+  }
+
+  // Drops the layout to save memory, restoreLayout measures it again. Returns the estimated bytes released.
+  public long shedLayout() {
+    if (layout.isEmpty()) {
+      return 0;
+    }
+
+    long releasedBytes = estimateSheddableLayoutBytes();
+    layout.clear();
+    isLayoutMeasured = false;
+    spatialNavigationModule.getNavigationRoot(navigationRootId).unindex(this);
+
+    return releasedBytes;
+  }
+
+  // Current transformed bounds {x, y, width, height} without storing them, false if the view is gone
+  public boolean sampleLayout(int[] outputBuffer) {
+    View view = getView();
+    if (view == null) {
+      return false;
+    }
+
+    computeBoundingBox(view, outputBuffer);
+    return true;
+  }
+
+  /**
+   * Stores the current transformed bounds like updateLayout, without recalculating the next focus of the
+   * focused view, SpatialLayoutRefresher does that once for every refresh of a frame. Returns whether they changed.
+   */
+  public boolean refreshLayout() {
+    View view = getView();
+    if (view == null || isRemoved || !measureLayout(view)) {
+      return false;
+    }
+
+    NavigationRoot<SpatialObject> navigationRoot = spatialNavigationModule.getNavigationRoot(navigationRootId);
+    navigationRoot.getIndex().update(this);
+    navigationRoot.invalidate();
+    SpatialGroup group = spatialNavigationModule.getGroup(groupId);
+    if (group != null) {
+      group.invalidateChildIndexes();
+    }
+
+    if (spatialNavigationModule.isRecording()) {
+      spatialNavigationModule.record(recorder -> recorder.recordLayout(this));
+    }
+
+    return true;
+  }
+
+  // Measures a layout that was shed, without the focus updates of updateLayout
+  public void restoreLayout() {
+    View view = getView();
+    if (view == null || isRemoved || isLayoutMeasured) {
+      return;
+    }
+
+    measureLayout(view);
+    spatialNavigationModule.getNavigationRoot(navigationRootId).getIndex().update(this);
+  }
+
   public void focus() {
+    if (viewReference == null) {
+      Log.w(TAG, " - Focus: native view not set: " + id);
+      return;
+    }
+
+    View view = getView();
     if (view == null) {
-      throw new java.lang.Error(TAG + " - Focus: native view not set");
+      Log.w(TAG, " - Focus: native view is gone: " + id);
+      spatialNavigationModule.retireSpatialObject(this);
+      return;
     }
 
-    // Register listeners
-    if (!areListenersSet) {
-      view.setOnFocusChangeListener(onFocusChangeListener);
-      view.addOnLayoutChangeListener(onLayoutChangeListener);
-      view.addOnAttachStateChangeListener(onAttachStateChangeListener);
-      areListenersSet = true;
+    setListeners(view);
+
+    UiThreadUtil.runOnUiThread(() -> requestNativeFocus(view));
+  }
+
+  // Synchronous version of focus, must be called on the UI thread. Returns false if the view is gone.
+  public boolean focusNow() {
+    View view = getView();
+    if (view == null || isRemoved) {
+      return false;
     }
 
-    UiThreadUtil.runOnUiThread(() -> {
-      view.setFocusable(true);
-      view.setFocusableInTouchMode(true);
-      view.requestFocus();
-    });
+    setListeners(view);
+    requestNativeFocus(view);
+    return true;
+  }
+
+  private void requestNativeFocus(View view) {
+    view.setFocusable(true);
+    view.setFocusableInTouchMode(true);
+    if (view.requestFocus()) {
+      spatialNavigationModule.getInitialFocusResolver().cancel(navigationRootId);
+    }
   }
 
   private void registerToGroup() {
     SpatialGroup group = this.spatialNavigationModule.getGroup(this.groupId);
 
+    // The group got removed before the view resolved, this object is orphaned
     if (group == null) {
-      throw new java.lang.Error(TAG + " - registerToGroup: parent with id not found " + this.groupId);
+      Log.w(TAG, " - registerToGroup: parent with id not found " + this.groupId + " for: " + id);
+      cleanUp();
+      return;
     }
 
     group.addChildSpatialObjectId(this);
+    spatialNavigationModule.getNavigationRoot(navigationRootId).invalidate();
   }
 
   public void unregisterToParentGroup() {
@@ -125,35 +363,57 @@ public class SpatialObject {
     }
   }
 
-  private void setNativeView() {
-    ReactContext context = this.spatialNavigationModule.getReactContext();
+  private void setNativeView(@Nullable NativeViewHierarchyManager landedViewHierarchyManager) {
+    long uiBlockQueuedAt = System.nanoTime();
+    if (landedViewHierarchyManager != null) {
+      UiThreadUtil.runOnUiThread(() -> resolveNativeView(landedViewHierarchyManager, uiBlockQueuedAt));
+      return;
+    }
 
+    ReactContext context = this.spatialNavigationModule.getReactContext();
     UIManagerModule uiManager = context.getNativeModule((UIManagerModule.class));
-    uiManager.addUIBlock((UIBlock) nativeViewHierarchyManager -> {
+    uiManager.addUIBlock((UIBlock) nativeViewHierarchyManager -> resolveNativeView(nativeViewHierarchyManager, uiBlockQueuedAt));
+  }
+
+  private void resolveNativeView(NativeViewHierarchyManager nativeViewHierarchyManager, long uiBlockQueuedAt) {
+    spatialNavigationModule.getMetrics().recordUIBlockResolutionDelay(System.nanoTime() - uiBlockQueuedAt);
+
+    // Removed before its view got resolved
+    if (isRemoved) {
+      return;
+    }
+
+    SpatialTrace.beginSection(SpatialTrace.RESOLVE_VIEW);
+    try {
       View nativeView = nativeViewHierarchyManager.resolveView(nodeHandle);
 
+      // Unmounted before its UIBlock ran
       if (nativeView == null) {
-        throw new Error(TAG + " - setNativeView: no view found with this tag");
+        Log.w(TAG, " - setNativeView: no view found with this tag: " + nodeHandle);
+        cleanUp();
+        return;
       }
 
-      view = nativeView;
+      viewReference = new ViewReference(nativeView, this, spatialNavigationModule.getCollectedViews());
 
-      configureNativeView();
+      configureNativeView(nativeView);
       registerToGroup();
-    });
+      if (isRemoved) {
+        return;
+      }
+
+      spatialNavigationModule.onSpatialObjectAttached(this);
+      spatialNavigationModule.getEventLog().write(SpatialEventLog.VIEW_RESOLVED, nodeHandle);
+      spatialNavigationModule.record(recorder -> recorder.recordAttachSpatialObject(id));
+    } finally {
+      SpatialTrace.endSection();
+    }
   }
 
-  private void configureNativeView() {
+  private void configureNativeView(View view) {
     setNativeViewNextFocusPros(nodeHandle, nodeHandle, nodeHandle, nodeHandle);
-    SpatialGroup group = spatialNavigationModule.getGroup(groupId);
 
-    // Register listeners
-    if (!areListenersSet) {
-      view.setOnFocusChangeListener(onFocusChangeListener);
-      view.addOnLayoutChangeListener(onLayoutChangeListener);
-      view.addOnAttachStateChangeListener(onAttachStateChangeListener);
-      areListenersSet = true;
-    }
+    setListeners(view);
 
     // If view was already focused on mount
     if (view.isFocused()) {
@@ -176,68 +436,73 @@ public class SpatialObject {
 //    }
   }
 
-  public void cleanUp() {
-    if (view != null) {
-      view.removeOnLayoutChangeListener(onLayoutChangeListener);
-      view.removeOnAttachStateChangeListener(onAttachStateChangeListener);
-      unregisterToParentGroup();
-      spatialNavigationModule.getSpatialObjects().remove(id);
+  // Listeners are shared by all SpatialObjects, see SpatialFocusObserver
+  private void setListeners(View view) {
+    if (!areListenersSet) {
+      spatialNavigationModule.getFocusObserver().observe(view);
+      areListenersSet = true;
     }
   }
 
-  private final View.OnFocusChangeListener onFocusChangeListener = new View.OnFocusChangeListener() {
-    @Override
-    public void onFocusChange(View v, boolean hasFocus) {
-      SpatialGroup group = spatialNavigationModule.getGroup(groupId);
-      if (hasFocus) {
-        isFocused = true;
+  public void cleanUp() {
+    isRemoved = true;
 
-        if (layout.isEmpty()) {
-          updateLayout();
-        }
+    View view = getView();
+    if (view != null && areListenersSet) {
+      spatialNavigationModule.getFocusObserver().unobserve(view);
+    }
 
-        if (group == null) {
-          throw new Error(TAG + " - configureNativeView: group not found: " + groupId);
-        }
+    if (viewReference != null) {
+      viewReference.clear();
+      viewReference = null;
+    }
 
-        group.onChildFocus(id);
+    areListenersSet = false;
+    isFocused = false;
+    unregisterToParentGroup();
+    spatialNavigationModule.unregisterSpatialObject(this);
+    spatialNavigationModule.getEventLog().write(SpatialEventLog.REMOVE_SPATIAL_OBJECT, nodeHandle);
+    spatialNavigationModule.record(recorder -> recorder.recordRemoveSpatialObject(id));
+  }
 
-        //todo: improve logic to check if next focused could be a ancestor relative
-        //Object prevFocusState = spatialNavigationModule.getFocusState();
+  public void onFocus() {
+    SpatialTrace.beginSection(SpatialTrace.ON_FOCUS);
+    SpatialGroup group = spatialNavigationModule.getGroup(groupId);
+    isFocused = true;
 
-        Log.d(TAG, "######$$$$ spatialNavigationModule.updateFocus");
-        spatialNavigationModule.updateFocus(id, groupId);
+    if (!isLayoutMeasured) {
+      updateLayout();
+    }
 
-        runNextFocusCalculations();
-      } else {
-        isFocused = false;
-      }
+    if (spatialNavigationModule.isRecording()) {
+      spatialNavigationModule.record(recorder -> recorder.recordFocus(id));
     }
-  };
 
-  private final View.OnLayoutChangeListener onLayoutChangeListener = new View.OnLayoutChangeListener() {
-    @Override
-    public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
-      Log.d(TAG, "addOnLayoutChangeListener");
+    if (group == null) {
+      Log.w(TAG, " - onFocus: group not found: " + groupId);
+    } else if (group.onChildFocus(id)) {
+      // Group jumps resolve to the last focused child of tracking groups
+      spatialNavigationModule.getNavigationRoot(navigationRootId).invalidate();
     }
-  };
 
-  private final View.OnAttachStateChangeListener onAttachStateChangeListener = new View.OnAttachStateChangeListener() {
-    @Override
-    public void onViewAttachedToWindow(View v) {
+    //todo: improve logic to check if next focused could be a ancestor relative
+    //Object prevFocusState = spatialNavigationModule.getFocusState();
 
-    }
+    spatialNavigationModule.getEventLog().write(SpatialEventLog.FOCUS, nodeHandle);
+    spatialNavigationModule.updateFocus(id, groupId);
 
-    @Override
-    public void onViewDetachedFromWindow(View v) {
-      Log.d(TAG, "###### onViewDetachedFromWindow: " + id);
-      spatialNavigationModule.logState("onViewDetachedFromWindow");
-    }
-  };
+    runNextFocusCalculations();
+    SpatialTrace.endSection();
+  }
 
+  public void onBlur() {
+    isFocused = false;
+  }
+
+  // {x, y, width, height} of view with its translation and the transforms of its ancestors applied, see mapRectFromViewToRootCoords
   private void computeBoundingBox(View view, int[] outputBuffer) {
     mBoundingBox.set(0, 0, view.getWidth(), view.getHeight());
-    mapRectFromViewToWindowCoords(view, mBoundingBox);
+    mapRectFromViewToRootCoords(view, mBoundingBox);
 
     outputBuffer[0] = Math.round(mBoundingBox.left);
     outputBuffer[1] = Math.round(mBoundingBox.top);
@@ -245,21 +510,23 @@ public class SpatialObject {
     outputBuffer[3] = Math.round(mBoundingBox.bottom - mBoundingBox.top);
   }
 
-  private void mapRectFromViewToWindowCoords(View view, RectF rect) {
-    Matrix matrix = view.getMatrix();
-    if (!matrix.isIdentity()) {
-      matrix.mapRect(rect);
-    }
-
-    rect.offset(view.getLeft(), view.getTop());
+  // Scroll offsets are left out, layouts stay put while scrolling, see getVisibleCandidates.
+  // Of the view's own transform only the translation counts: a focus scale would make the focused view overlap its
+  // neighbors, and the ahead tests of the neighbor search would skip them
+  private void mapRectFromViewToRootCoords(View view, RectF rect) {
+    rect.offset(view.getLeft() + view.getTranslationX(), view.getTop() + view.getTranslationY());
 
+    int innermostScrollContainer = NO_SCROLL_CONTAINER;
     ViewParent parent = view.getParent();
     while (parent instanceof View) {
       View parentView = (View) parent;
+      if (innermostScrollContainer == NO_SCROLL_CONTAINER
+        && (parentView instanceof ScrollView || parentView instanceof HorizontalScrollView)) {
+        // Identity rather than the view, views are only held weakly
+        innermostScrollContainer = System.identityHashCode(parentView);
+      }
 
-      rect.offset(-parentView.getScrollX(), -parentView.getScrollY());
-
-      matrix = parentView.getMatrix();
+      Matrix matrix = parentView.getMatrix();
       if (!matrix.isIdentity()) {
         matrix.mapRect(rect);
       }
@@ -268,45 +535,76 @@ public class SpatialObject {
 
       parent = parentView.getParent();
     }
+
+    scrollContainer = innermostScrollContainer;
   }
 
   public void updateLayout() {
-    ViewParent parent = view.getParent();
-    int height = view.getHeight();
-    int width = view.getWidth();
-    int x = view.getLeft();
-    int y = view.getTop();
-    while (parent instanceof View) {
-      View parentView = (View) parent;
+    View view = getView();
+    if (view == null) {
+      return;
+    }
 
-      x += parentView.getLeft();
-      y += parentView.getTop();
+    SpatialTrace.beginSection(SpatialTrace.UPDATE_LAYOUT);
+    long layoutStart = System.nanoTime();
 
-      parent = parentView.getParent();
+    boolean hasLayoutChanged = measureLayout(view);
+
+    if (hasLayoutChanged && !isRemoved) {
+      NavigationRoot<SpatialObject> navigationRoot = spatialNavigationModule.getNavigationRoot(navigationRootId);
+      navigationRoot.getIndex().update(this);
+      navigationRoot.invalidate();
+      SpatialGroup group = spatialNavigationModule.getGroup(groupId);
+      if (group != null) {
+        group.invalidateChildIndexes();
+      }
+      spatialNavigationModule.getInitialFocusResolver().onActivity(navigationRootId);
     }
 
-    layout.put("height", height);
-    layout.put("width", width);
-    layout.put("x0", x);
-    layout.put("x1", x + width);
-    layout.put("y0", y);
-    layout.put("y1", y + height);
+    if (spatialNavigationModule.isRecording()) {
+      spatialNavigationModule.record(recorder -> recorder.recordLayout(this));
+    }
 
-    Log.d(TAG, "###### updateLayout: " + layout);
+    spatialNavigationModule.getEventLog().write(SpatialEventLog.LAYOUT, nodeHandle, layoutStart, System.nanoTime() - layoutStart);
 
+    spatialNavigationModule.applyNextFocusTable(this);
     spatialNavigationModule.recalculateNextFocusNodeHandles();
 
-    spatialNavigationModule.logState("updateLayout");
-
     if (isFocused) {
       runNextFocusCalculations();
     }
+    SpatialTrace.endSection();
+  }
+
+  // Stores the position of view relative to the root view, returns whether it changed
+  private boolean measureLayout(View view) {
+    computeBoundingBox(view, measuredBounds);
+    int x = measuredBounds[0];
+    int y = measuredBounds[1];
+    int width = measuredBounds[2];
+    int height = measuredBounds[3];
+
+    boolean hasLayoutChanged = !Integer.valueOf(x).equals(layout.get("x0"))
+      || !Integer.valueOf(y).equals(layout.get("y0"))
+      || !Integer.valueOf(width).equals(layout.get("width"))
+      || !Integer.valueOf(height).equals(layout.get("height"));
+
+    layout.put("height", height);
+    layout.put("width", width);
+    layout.put("x0", x);
+    layout.put("x1", x + width);
+    layout.put("y0", y);
+    layout.put("y1", y + height);
+    isLayoutMeasured = true;
+
+    return hasLayoutChanged;
   }
 
   public void setNativeViewNextFocusPros(@Nullable Integer nextFocusUp, @Nullable Integer nextFocusRight, @Nullable Integer nextFocusDown, @Nullable Integer nextFocusLeft) {
     // This could happen if while doing runNextFocusCalculations, spatial button was removed
+    View view = getView();
     if (view == null) {
-      Log.e(TAG, " - setNativeViewNextFocusPros: native view not set");
+      Log.e(TAG, " - setNativeViewNextFocusPros: native view not set: " + id);
       return;
     }
 
@@ -329,24 +627,19 @@ public class SpatialObject {
   }
 
   private void runNextFocusCalculations() {
-    if (layout.isEmpty()) {
+    if (!isLayoutMeasured) {
       updateLayout();
     }
 
     spatialNavigationModule.getNextFocusNodeHandles(this);
   }
 
-  public void logState() {
-    Map<String, Object> logMap = new HashMap<String, Object>() {{
-      put("id", id);
-      put("groupId", groupId);
-      put("nodeHandle", nodeHandle);
-      put("layout", layout);
-      put("isFocused", isFocused);
-      put("nextFocusRestrictions", nextFocusRestrictions);
-    }};
+  static class ViewReference extends WeakReference<View> {
+    final SpatialObject spatialObject;
 
-    Log.d(TAG, "************ Logging SpatialObject state: " + this.id);
-    Log.d(TAG, "" + logMap);
+    ViewReference(View view, SpatialObject spatialObject, ReferenceQueue<View> queue) {
+      super(view, queue);
+      this.spatialObject = spatialObject;
+    }
   }
 }
@@ -0,0 +1,335 @@
+package com.reactnativespatialnavigation;
+
+import android.view.Choreographer;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.uimanager.NativeViewHierarchyManager;
+import com.facebook.react.uimanager.UIBlock;
+import com.facebook.react.uimanager.UIManagerModule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+/**
+ * Streaming ingest for screens that register thousands of spatial objects at once.
+ * Registrations are queued and added in chunks of at most frameBudgetNanos per frame, the ones closest in the group
+ * tree to where focus starts first: the focused group, else the group with hasTVPreferredFocus.
+ * At most capacity registrations are queued, the rest of a batch waits parked in arrival order and the batch is only
+ * acknowledged once all of it got queued, which holds back the next batch on the JS side. A batch that arrives while
+ * another one is parked and doesn't fit in capacity parked registrations is rejected.
+ * Registrations are only added once the JS batch they came with landed: a UIBlock of that batch hands over the
+ * NativeViewHierarchyManager their views get resolved with, on the UI thread.
+ * Queue operations run on the native modules thread, the UI thread only paces the chunks.
+ */
+public class SpatialRegistrationQueue implements Choreographer.FrameCallback {
+  private final SpatialNavigationModule spatialNavigationModule;
+  // Sorted so that the next registration to add is last
+  private final List<PendingRegistration> pendingRegistrations = new ArrayList<>();
+  private final Map<String, PendingRegistration> pendingById = new HashMap<>();
+  // Batches with registrations waiting for room in the queue, in the order they arrived
+  private final ArrayDeque<ParkedBatch> parkedBatches = new ArrayDeque<>();
+  // Registrations of pendingById that are parked rather than queued
+  private int parkedCount = 0;
+  private final AtomicBoolean isDrainScheduled = new AtomicBoolean(false);
+  private volatile int capacity = 1000;
+  private volatile long frameBudgetNanos = 4_000_000L;
+  private long nextSequence = 0;
+  private boolean isSorted = true;
+  private @Nullable
+  String sortedForGroupId;
+
+  public SpatialRegistrationQueue(SpatialNavigationModule spatialNavigationModule) {
+    this.spatialNavigationModule = spatialNavigationModule;
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = Math.max(1, capacity);
+  }
+
+  public void setFrameBudgetMs(double frameBudgetMs) {
+    this.frameBudgetNanos = (long) (frameBudgetMs * 1_000_000L);
+  }
+
+  // Queued and parked registrations
+  public int size() {
+    return pendingById.size();
+  }
+
+  public int getParkedCount() {
+    return parkedCount;
+  }
+
+  // Resolves promise with result once all registrations are queued, right away if they fit
+  public void enqueue(List<ReadableMap> registrations, Promise promise, Object result) {
+    if (!parkedBatches.isEmpty() && parkedCount + registrations.size() > capacity) {
+      promise.reject("QUEUE FULL", "Registration queue is full, " + parkedCount + " registrations are waiting");
+      return;
+    }
+
+    List<PendingRegistration> parkedRegistrations = new ArrayList<>(registrations.size());
+    for (ReadableMap spatialObjectParams : registrations) {
+      PendingRegistration registration = new PendingRegistration(spatialObjectParams, nextSequence++);
+      drop(pendingById.put(registration.id, registration));
+      parkedRegistrations.add(registration);
+      parkedCount++;
+    }
+    parkedBatches.add(new ParkedBatch(parkedRegistrations, promise, result));
+    admitParkedRegistrations();
+
+    // Runs after the views of this batch are mounted
+    UIManagerModule uiManager = spatialNavigationModule.getReactContext().getNativeModule(UIManagerModule.class);
+    uiManager.addUIBlock((UIBlock) nativeViewHierarchyManager -> {
+      for (PendingRegistration registration : parkedRegistrations) {
+        registration.nativeViewHierarchyManager = nativeViewHierarchyManager;
+      }
+      scheduleDrain();
+    });
+
+    int depth = size();
+    UiThreadUtil.runOnUiThread(() -> spatialNavigationModule.getMetrics().recordRegistrationsQueued(registrations.size(), depth));
+
+    scheduleDrain();
+  }
+
+  // Returns false if id is not waiting in the queue
+  public boolean remove(String id) {
+    PendingRegistration registration = pendingById.remove(id);
+    if (registration == null) {
+      return false;
+    }
+
+    drop(registration);
+    return true;
+  }
+
+  // Registered again or removed before it got added, the latest params win
+  private void drop(@Nullable PendingRegistration registration) {
+    if (registration == null) {
+      return;
+    }
+
+    registration.isDropped = true;
+    if (registration.isParked) {
+      parkedCount--;
+    }
+  }
+
+  // Drops the registrations of a group that got removed before they were added
+  public void removeGroup(String groupId) {
+    Iterator<PendingRegistration> iterator = pendingById.values().iterator();
+    while (iterator.hasNext()) {
+      PendingRegistration registration = iterator.next();
+      if (groupId.equals(registration.groupId)) {
+        drop(registration);
+        iterator.remove();
+      }
+    }
+  }
+
+  public void cancelDrain() {
+    Choreographer.getInstance().removeFrameCallback(this);
+    isDrainScheduled.set(false);
+  }
+
+  private void scheduleDrain() {
+    if (isDrainScheduled.compareAndSet(false, true)) {
+      UiThreadUtil.runOnUiThread(() -> Choreographer.getInstance().postFrameCallback(this));
+    }
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    spatialNavigationModule.getReactContext().runOnNativeModulesQueueThread(this::drain);
+  }
+
+  private void drain() {
+    isDrainScheduled.set(false);
+    long start = System.nanoTime();
+    sortIfNeeded();
+
+    int added = 0;
+    // Taken from the end, put back in reverse to keep the order
+    List<PendingRegistration> notLanded = new ArrayList<>();
+    while (!pendingRegistrations.isEmpty() && System.nanoTime() - start < frameBudgetNanos) {
+      PendingRegistration registration = pendingRegistrations.remove(pendingRegistrations.size() - 1);
+      if (registration.isDropped) {
+        continue;
+      }
+
+      NativeViewHierarchyManager nativeViewHierarchyManager = registration.nativeViewHierarchyManager;
+      if (nativeViewHierarchyManager == null) {
+        notLanded.add(registration);
+        continue;
+      }
+
+      pendingById.remove(registration.id);
+      spatialNavigationModule.addSpatialObject(registration.spatialObjectParams, nativeViewHierarchyManager);
+      added++;
+    }
+    for (int i = notLanded.size() - 1; i >= 0; i--) {
+      pendingRegistrations.add(notLanded.get(i));
+    }
+
+    long chunkTime = System.nanoTime() - start;
+    int chunkSize = added;
+    UiThreadUtil.runOnUiThread(() -> spatialNavigationModule.getMetrics().recordRegistrationChunk(chunkSize, chunkTime));
+
+    admitParkedRegistrations();
+    if (pendingById.isEmpty()) {
+      pendingRegistrations.clear();
+    } else if (hasLandedRegistrations()) {
+      // The others are drained once the UIBlock of their batch ran
+      scheduleDrain();
+    }
+  }
+
+  private boolean hasLandedRegistrations() {
+    for (PendingRegistration registration : pendingRegistrations) {
+      if (!registration.isDropped && registration.nativeViewHierarchyManager != null) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  // Moves parked registrations into the queue while it has room, acknowledging the batches that got all in
+  private void admitParkedRegistrations() {
+    while (!parkedBatches.isEmpty()) {
+      ParkedBatch parkedBatch = parkedBatches.peek();
+      while (parkedBatch.nextIndex < parkedBatch.registrations.size() && pendingById.size() - parkedCount < capacity) {
+        PendingRegistration registration = parkedBatch.registrations.get(parkedBatch.nextIndex++);
+        if (registration.isDropped) {
+          continue;
+        }
+
+        registration.isParked = false;
+        parkedCount--;
+        pendingRegistrations.add(registration);
+        isSorted = false;
+      }
+
+      if (parkedBatch.nextIndex < parkedBatch.registrations.size()) {
+        return;
+      }
+
+      parkedBatches.poll();
+      parkedBatch.promise.resolve(parkedBatch.result);
+    }
+  }
+
+  private void sortIfNeeded() {
+    String startGroupId = getStartGroupId();
+    if (isSorted && (startGroupId == null ? sortedForGroupId == null : startGroupId.equals(sortedForGroupId))) {
+      return;
+    }
+
+    Map<String, Integer> groupDistances = getGroupDistances(startGroupId);
+    for (PendingRegistration registration : pendingRegistrations) {
+      Integer distance = groupDistances.get(registration.groupId);
+      registration.groupDistance = distance != null ? distance : Integer.MAX_VALUE;
+    }
+
+    // Closest first then oldest first, reversed so the next one can be taken from the end
+    Collections.sort(pendingRegistrations, (a, b) -> a.groupDistance != b.groupDistance
+      ? Integer.compare(b.groupDistance, a.groupDistance)
+      : Long.compare(b.sequence, a.sequence));
+
+    isSorted = true;
+    sortedForGroupId = startGroupId;
+  }
+
+  private @Nullable
+  String getStartGroupId() {
+    SpatialObject focused = spatialNavigationModule.getFocusedSpatialObject();
+    if (focused != null) {
+      return focused.getGroupId();
+    }
+
+    for (SpatialGroup group : spatialNavigationModule.getRegistry().getGroups().values()) {
+      if (group.hasTVPreferredFocus()) {
+        return group.getId();
+      }
+    }
+
+    return null;
+  }
+
+  // Number of edges between startGroupId and every group of its group tree
+  private Map<String, Integer> getGroupDistances(@Nullable String startGroupId) {
+    Map<String, Integer> distances = new HashMap<>();
+    if (startGroupId == null) {
+      return distances;
+    }
+
+    ArrayDeque<String> queue = new ArrayDeque<>();
+    distances.put(startGroupId, 0);
+    queue.add(startGroupId);
+    while (!queue.isEmpty()) {
+      String groupId = queue.poll();
+      SpatialGroup group = spatialNavigationModule.getGroup(groupId);
+      if (group == null) {
+        continue;
+      }
+
+      int distance = distances.get(groupId) + 1;
+      List<String> neighborIds = new ArrayList<>(group.getGroupChildIds().keySet());
+      if (group.getGroupParentId() != null) {
+        neighborIds.add(group.getGroupParentId());
+      }
+
+      for (String neighborId : neighborIds) {
+        if (!distances.containsKey(neighborId)) {
+          distances.put(neighborId, distance);
+          queue.add(neighborId);
+        }
+      }
+    }
+
+    return distances;
+  }
+
+  private static class PendingRegistration {
+    final ReadableMap spatialObjectParams;
+    final String id;
+    final String groupId;
+    final long sequence;
+    int groupDistance = Integer.MAX_VALUE;
+    boolean isParked = true;
+    boolean isDropped = false;
+    // Set on the UI thread once the JS batch of this registration landed
+    volatile @Nullable
+    NativeViewHierarchyManager nativeViewHierarchyManager;
+
+    PendingRegistration(ReadableMap spatialObjectParams, long sequence) {
+      this.spatialObjectParams = spatialObjectParams;
+      this.id = spatialObjectParams.getString("id");
+      this.groupId = spatialObjectParams.getString("groupId");
+      this.sequence = sequence;
+    }
+  }
+
+  private static class ParkedBatch {
+    final List<PendingRegistration> registrations;
+    final Promise promise;
+    final Object result;
+    // First registration not queued yet
+    int nextIndex = 0;
+
+    ParkedBatch(List<PendingRegistration> registrations, Promise promise, Object result) {
+      this.registrations = registrations;
+      this.promise = promise;
+      this.result = result;
+    }
+  }
+}
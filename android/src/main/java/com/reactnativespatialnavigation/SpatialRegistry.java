@@ -0,0 +1,108 @@
+package com.reactnativespatialnavigation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Holds the registered groups and spatial objects. Free of Android dependencies.
+ * Groups are registered on the native modules thread and read on the UI thread. The group map is copied on write
+ * so readers iterate a snapshot that never changes under them, in registration order.
+ */
+public class SpatialRegistry<T extends SpatialNode, G extends SpatialNodeGroup<T>> {
+  private volatile Map<String, G> groups = Collections.emptyMap();
+  private final ConcurrentHashMap<String, T> spatialObjects = new ConcurrentHashMap<>();
+
+  public Map<String, G> getGroups() {
+    return groups;
+  }
+
+  public Map<String, T> getSpatialObjects() {
+    return spatialObjects;
+  }
+
+  public @Nullable
+  G getGroup(String groupId) {
+    return groups.get(groupId);
+  }
+
+  public @Nullable
+  T getSpatialObject(String spatialObjectId) {
+    return spatialObjects.get(spatialObjectId);
+  }
+
+  public synchronized void addGroup(G group) {
+    LinkedHashMap<String, G> nextGroups = new LinkedHashMap<>(groups);
+    nextGroups.put(group.getId(), group);
+    groups = Collections.unmodifiableMap(nextGroups);
+  }
+
+  public synchronized void removeGroup(String groupId) {
+    if (!groups.containsKey(groupId)) {
+      return;
+    }
+
+    LinkedHashMap<String, G> nextGroups = new LinkedHashMap<>(groups);
+    nextGroups.remove(groupId);
+    groups = Collections.unmodifiableMap(nextGroups);
+  }
+
+  public void addSpatialObject(T spatialObject) {
+    spatialObjects.put(spatialObject.getId(), spatialObject);
+  }
+
+  // Only removes the entry if it still belongs to this spatialObject
+  public void removeSpatialObject(T spatialObject) {
+    spatialObjects.remove(spatialObject.getId(), spatialObject);
+  }
+
+  /**
+   * Describes every inconsistency between the group tree and the registered spatial objects, empty if there is none.
+   * Meant for soak runs and debugging, it walks the whole registry.
+   */
+  public List<String> findInvariantViolations() {
+    List<String> violations = new ArrayList<>();
+    Map<String, G> groups = this.groups;
+
+    for (G group : groups.values()) {
+      // Children are added on the UI thread and removed on the native modules thread, under the group's lock
+      List<String> childIds;
+      List<String> childGroupIds;
+      synchronized (group) {
+        childIds = new ArrayList<>(group.getSpatialChildIds().keySet());
+        childGroupIds = new ArrayList<>(group.getGroupChildIds().keySet());
+      }
+
+      for (String childId : childIds) {
+        T child = spatialObjects.get(childId);
+        if (child == null) {
+          violations.add("group " + group.getId() + " has removed spatial object " + childId);
+        } else if (!group.getId().equals(child.getGroupId())) {
+          violations.add("group " + group.getId() + " has spatial object " + childId + " of group " + child.getGroupId());
+        }
+      }
+
+      for (String childGroupId : childGroupIds) {
+        G childGroup = groups.get(childGroupId);
+        if (childGroup == null) {
+          violations.add("group " + group.getId() + " has removed group " + childGroupId);
+        } else if (!group.getId().equals(childGroup.getGroupParentId())) {
+          violations.add("group " + group.getId() + " has group " + childGroupId + " of parent " + childGroup.getGroupParentId());
+        }
+      }
+    }
+
+    for (T spatialObject : spatialObjects.values()) {
+      if (!groups.containsKey(spatialObject.getGroupId())) {
+        violations.add("spatial object " + spatialObject.getId() + " belongs to removed group " + spatialObject.getGroupId());
+      }
+    }
+
+    return violations;
+  }
+}
@@ -0,0 +1,63 @@
+package com.reactnativespatialnavigation;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * android.os.Trace sections around the focus pipeline, shown in Systrace/Perfetto captures.
+ * Disabled by default, toggled through the enableTracing option of init().
+ */
+public class SpatialTrace {
+  public static final String GET_NEXT_FOCUS_NODE_HANDLES = "SpatialNavigation.getNextFocusNodeHandles";
+  public static final String CALCULATE_NEAREST_NEIGHBOR = "SpatialNavigation.calculateNearestNeighbor";
+  public static final String OVERRIDE_NEAREST_NEIGHBOR = "SpatialNavigation.overrideNearestNeighborIfNeeded";
+  public static final String SET_NEXT_FOCUS_PROPS = "SpatialNavigation.setNativeViewNextFocusPros";
+  public static final String PROPERTY_CHANGE = "SpatialNavigation.propertyChange";
+  public static final String UPDATE_LAYOUT = "SpatialNavigation.updateLayout";
+  public static final String ON_FOCUS = "SpatialNavigation.onFocus";
+  public static final String RESOLVE_VIEW = "SpatialNavigation.resolveView";
+  // Async section from a focus change until the next focus ids of the focused view are written
+  public static final String FOCUS_TO_NEXT_FOCUS_WRITTEN = "SpatialNavigation.focusToNextFocusWritten";
+  public static final String COUNTER_SPATIAL_OBJECTS = "SpatialNavigation.spatialObjects";
+  public static final String COUNTER_CANDIDATES_SCANNED = "SpatialNavigation.candidatesScanned";
+
+  private static volatile boolean isEnabled = false;
+
+  public static void setEnabled(boolean enabled) {
+    isEnabled = enabled;
+  }
+
+  public static boolean isEnabled() {
+    return isEnabled;
+  }
+
+  public static void beginSection(String sectionName) {
+    if (isEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      Trace.beginSection(sectionName);
+    }
+  }
+
+  public static void endSection() {
+    if (isEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      Trace.endSection();
+    }
+  }
+
+  public static void beginAsyncSection(String sectionName, int cookie) {
+    if (isEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+      Trace.beginAsyncSection(sectionName, cookie);
+    }
+  }
+
+  public static void endAsyncSection(String sectionName, int cookie) {
+    if (isEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+      Trace.endAsyncSection(sectionName, cookie);
+    }
+  }
+
+  public static void setCounter(String counterName, long counterValue) {
+    if (isEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+      Trace.setCounter(counterName, counterValue);
+    }
+  }
+}
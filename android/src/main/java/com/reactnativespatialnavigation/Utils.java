@@ -1,357 +1,259 @@
 package com.reactnativespatialnavigation;
 
-import android.util.Log;
-
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
-import javax.annotation.Nullable;
-
+/**
+ * Spatial neighbor search. Only depends on SpatialNode and SpatialNodeGroup so it can run on a plain JVM.
+ */
 public class Utils {
+  public static final String[] DIRECTIONS = {"up", "right", "down", "left"};
+  // Only resolved when diagonal navigation is enabled, each one is the quadrant between its two directions
+  public static final String[] DIAGONAL_DIRECTIONS = {"upRight", "downRight", "downLeft", "upLeft"};
+  private static final String[] RESTRICTIONS = {"disableSecondaryUp", "disableSecondaryRight", "disableSecondaryDown", "disableSecondaryLeft"};
 
   public static String generateTag(String string) {
     return "##### " + string + " #####";
   }
 
-  public static Map<String, SpatialObject> getNearestNeighbor(SpatialObject focusedElement, Map<String, SpatialObject> spatialObjects, Double nearestNeighborThreshold) {
-
-    Map<String, Map<String, Map<String, SpatialObject>>> prioritizedSpatialDirection = distributeCollectionSpatially(focusedElement, spatialObjects, nearestNeighborThreshold);
-
-    Map<String, SpatialObject> nearestNeighbor = calculateNearestNeighbor(focusedElement, prioritizedSpatialDirection);
-
-    if (false) {
-      Log.d("#### nearestUP:", nearestNeighbor.get("up") != null ? nearestNeighbor.get("up").getId() : "null");
-      Log.d("#### nearestRight:", nearestNeighbor.get("right") != null ? nearestNeighbor.get("right").getId() : "null");
-      Log.d("#### nearestDown:", nearestNeighbor.get("down") != null ? nearestNeighbor.get("down").getId() : "null");
-      Log.d("#### nearestLeft:", nearestNeighbor.get("left") != null ? nearestNeighbor.get("left").getId() : "null");
-      Log.d("#### nearestLeft:", "*********** end log");
+  // Rough retained size of a HashMap with entryCount entries without its keys and values, on a 64-bit runtime
+  // with compressed references
+  public static long estimateHashMapBytes(int entryCount) {
+    int capacity = 16;
+    while (capacity * 0.75 < entryCount) {
+      capacity <<= 1;
     }
 
-    return nearestNeighbor;
+    return 48 + 16 + 4L * capacity + 32L * entryCount;
   }
 
-  private static Map<String, Map<String, Map<String, SpatialObject>>> distributeCollectionSpatially(SpatialObject focusedElement, Map<String, SpatialObject> spatialObjects, Double nearestNeighborThreshold) {
-    final String TAG = "distributeCollection";
-    Map<String, Map<String, SpatialObject>> primary = new HashMap<String, Map<String, SpatialObject>>() {{
-      put("up", new HashMap<>());
-      put("right", new HashMap<>());
-      put("down", new HashMap<>());
-      put("left", new HashMap<>());
-    }};
-    Map<String, Map<String, SpatialObject>> secondary = new HashMap<String, Map<String, SpatialObject>>() {{
-      put("up", new HashMap<>());
-      put("right", new HashMap<>());
-      put("down", new HashMap<>());
-      put("left", new HashMap<>());
-    }};
-
-    final String focusedId = focusedElement.getId();
-    Map<String, Integer> focusedElementLayout = focusedElement.getLayout();
+  public static <T extends SpatialNode> Map<String, T> getNearestNeighbor(T focusedElement, Map<String, T> spatialObjects, Double nearestNeighborThreshold) {
+    return getNearestNeighbor(focusedElement, spatialObjects, nearestNeighborThreshold, false);
+  }
 
-    if (focusedElementLayout.isEmpty()) {
-      Log.d(TAG, " focused element layout is empty: " + focusedElement.getId());
+  /**
+   * Nearest neighbor of focusedElement in every direction, null where there is none, in a single pass over spatialObjects.
+   *
+   * Every direction is evaluated the same way, in coordinates where the direction points towards increasing
+   * values: elements completely ahead of focusedElement are candidates, primary if they overlap it enough on the
+   * cross axis and secondary otherwise. The closest primary candidate on the main axis wins. Without primary
+   * candidates, and unless the focused element disables it, the secondary candidate closest on the cross axis wins,
+   * then the one closest on the main axis.
+   * Diagonal neighbors are the elements ahead in both directions with the smallest sum of both gaps.
+   */
+  public static <T extends SpatialNode> Map<String, T> getNearestNeighbor(T focusedElement, Map<String, T> spatialObjects, Double nearestNeighborThreshold, boolean includeDiagonals) {
+    Map<String, T> nearestNeighbors = new HashMap<>();
+    Map<String, Integer> focusedLayout = focusedElement.getLayout();
+
+    if (focusedLayout.isEmpty()) {
+      for (String direction : DIRECTIONS) {
+        nearestNeighbors.put(direction, null);
+      }
+      if (includeDiagonals) {
+        for (String direction : DIAGONAL_DIRECTIONS) {
+          nearestNeighbors.put(direction, null);
+        }
+      }
 
-      return new HashMap<String, Map<String, Map<String, SpatialObject>>>() {{
-        put("primary", primary);
-        put("secondary", secondary);
-      }};
+      return nearestNeighbors;
     }
 
+    final String focusedId = focusedElement.getId();
+    final double threshold = nearestNeighborThreshold;
+    final int fx0 = focusedLayout.get("x0");
+    final int fx1 = focusedLayout.get("x1");
+    final int fy0 = focusedLayout.get("y0");
+    final int fy1 = focusedLayout.get("y1");
+
+    List<T> primary = new ArrayList<>(Collections.<T>nCopies(4, null));
+    int[] primaryNearEdges = new int[4];
+    List<T> secondary = new ArrayList<>(Collections.<T>nCopies(4, null));
+    int[] secondaryNearEdges = new int[4];
+    int[] secondaryCrossGaps = new int[4];
+    List<T> diagonals = new ArrayList<>(Collections.<T>nCopies(4, null));
+    int[] diagonalDistances = new int[4];
+    int[] elementNearEdges = new int[4];
+
+    for (T element : spatialObjects.values()) {
+      Map<String, Integer> elementLayout = element.getLayout();
+
+      // Elements without a layout object can't be placed spatially yet
+      if (elementLayout.isEmpty() || focusedId.equals(element.getId())) {
+        continue;
+      }
 
-//    Log.d(TAG, "spatialObjects.entrySet :" + spatialObjects);
-
-    for (Map.Entry<String, SpatialObject> entry : spatialObjects.entrySet()) {
-      final SpatialObject element = entry.getValue();
-      final String elementId = element.getId();
-      final Map<String, Integer> elementLayout = entry.getValue().getLayout();
-
-
-      if (elementLayout.isEmpty()) {
-        Log.w(TAG, "[WARNING][distributeCollectionSpatially] - Element found without layout object: " + elementId);
-      } else if (!focusedId.equals(elementId)) {
-        final boolean isUp = elementLayout.get("y1") <= focusedElementLayout.get("y0");
-        final boolean isRight = elementLayout.get("x0") >= focusedElementLayout.get("x1");
-        final boolean isDown = elementLayout.get("y0") >= focusedElementLayout.get("y1");
-        final boolean isLeft = elementLayout.get("x1") <= focusedElementLayout.get("x0");
-
-        if (isUp) {
-          if (shouldPrioritizeVertically(focusedElementLayout, elementLayout, nearestNeighborThreshold)) {
-            primary.get("up").put(elementId, element);
-          } else {
-            secondary.get("up").put(elementId, element);
-          }
+      final int x0 = elementLayout.get("x0");
+      final int x1 = elementLayout.get("x1");
+      final int y0 = elementLayout.get("y0");
+      final int y1 = elementLayout.get("y1");
+
+      // Near edge of the element on the main axis of up, right, down and left, negated where the direction points
+      // towards decreasing values. The element is ahead when its near edge is past the focused element's far edge.
+      elementNearEdges[0] = -y1;
+      elementNearEdges[1] = x0;
+      elementNearEdges[2] = y0;
+      elementNearEdges[3] = -x1;
+      final boolean isUp = y1 <= fy0;
+      final boolean isRight = x0 >= fx1;
+      final boolean isDown = y0 >= fy1;
+      final boolean isLeft = x1 <= fx0;
+
+      for (int direction = 0; direction < 4; direction++) {
+        boolean isVertical = direction % 2 == 0;
+        boolean isAhead = direction == 0 ? isUp : direction == 1 ? isRight : direction == 2 ? isDown : isLeft;
+        if (!isAhead) {
+          continue;
         }
 
-        if (isRight) {
-          if (shouldPrioritizeHorizontally(focusedElementLayout, elementLayout, nearestNeighborThreshold)) {
-            primary.get("right").put(elementId, element);
-          } else {
-            secondary.get("right").put(elementId, element);
+        int nearEdge = elementNearEdges[direction];
+        // Cross axis of up and down is x, of right and left y
+        int c0 = isVertical ? x0 : y0;
+        int c1 = isVertical ? x1 : y1;
+        int fc0 = isVertical ? fx0 : fy0;
+        int fc1 = isVertical ? fx1 : fy1;
+
+        if (shouldPrioritize(fc0, fc1, c0, c1, threshold)) {
+          if (primary.get(direction) == null || nearEdge < primaryNearEdges[direction]) {
+            primary.set(direction, element);
+            primaryNearEdges[direction] = nearEdge;
+          }
+        } else {
+          int crossGap = c0 <= fc0 ? fc0 - c1 : c0 - fc1;
+          // Closest on the cross axis, then on the main axis, the first one of equals stays
+          if (secondary.get(direction) == null
+            || crossGap < secondaryCrossGaps[direction]
+            || crossGap == secondaryCrossGaps[direction] && nearEdge < secondaryNearEdges[direction]) {
+            secondary.set(direction, element);
+            secondaryNearEdges[direction] = nearEdge;
+            secondaryCrossGaps[direction] = crossGap;
           }
         }
+      }
 
-        if (isDown) {
-          if (shouldPrioritizeVertically(focusedElementLayout, elementLayout, nearestNeighborThreshold)) {
-            primary.get("down").put(elementId, element);
-          } else {
-            secondary.get("down").put(elementId, element);
+      if (includeDiagonals) {
+        for (int diagonal = 0; diagonal < 4; diagonal++) {
+          // upRight, downRight, downLeft and upLeft, each is the quadrant between a vertical and a horizontal direction
+          int vertical = diagonal == 0 || diagonal == 3 ? 0 : 2;
+          int horizontal = diagonal < 2 ? 1 : 3;
+          boolean isAhead = (vertical == 0 ? isUp : isDown) && (horizontal == 1 ? isRight : isLeft);
+          if (!isAhead) {
+            continue;
           }
-        }
 
-        if (isLeft) {
-          if (shouldPrioritizeHorizontally(focusedElementLayout, elementLayout, nearestNeighborThreshold)) {
-            primary.get("left").put(elementId, element);
-          } else {
-            secondary.get("left").put(elementId, element);
+          int verticalGap = vertical == 0 ? fy0 - y1 : y0 - fy1;
+          int horizontalGap = horizontal == 1 ? x0 - fx1 : fx0 - x1;
+          int distance = verticalGap + horizontalGap;
+          if (diagonals.get(diagonal) == null || distance < diagonalDistances[diagonal]) {
+            diagonals.set(diagonal, element);
+            diagonalDistances[diagonal] = distance;
           }
         }
       }
     }
 
-    return new HashMap<String, Map<String, Map<String, SpatialObject>>>() {{
-      put("primary", primary);
-      put("secondary", secondary);
-    }};
-  }
-
-  private static boolean shouldPrioritizeVertically(Map<String, Integer> focusedElementLayout, Map<String, Integer> elementLayout, Double nearestNeighborThreshold) {
-    boolean isInside = elementLayout.get("x0") >= focusedElementLayout.get("x1") &&
-      elementLayout.get("x1") <= focusedElementLayout.get("x1");
+    Map<String, Boolean> nextFocusRestrictions = focusedElement.getNextFocusRestrictions();
+    for (int direction = 0; direction < 4; direction++) {
+      boolean onlyPrimary = Boolean.TRUE.equals(nextFocusRestrictions.get(RESTRICTIONS[direction]));
+      T nearest = primary.get(direction) != null || onlyPrimary ? primary.get(direction) : secondary.get(direction);
+      nearestNeighbors.put(DIRECTIONS[direction], nearest);
+    }
 
-    boolean isMoreThanThreshold = elementLayout.get("x0") < focusedElementLayout.get("x1") &&
-      elementLayout.get("x1") > focusedElementLayout.get("x0") &&
-      Math.max(elementLayout.get("x0"), focusedElementLayout.get("x0")) +
-        Math.min(elementLayout.get("x1"), focusedElementLayout.get("x1")) >=
-        focusedElementLayout.get("x0") + focusedElementLayout.get("x1") * nearestNeighborThreshold;
+    if (includeDiagonals) {
+      for (int diagonal = 0; diagonal < 4; diagonal++) {
+        nearestNeighbors.put(DIAGONAL_DIRECTIONS[diagonal], diagonals.get(diagonal));
+      }
+    }
 
-    return isInside || isMoreThanThreshold;
+    return nearestNeighbors;
   }
 
-  private static boolean shouldPrioritizeHorizontally(Map<String, Integer> focusedElementLayout, Map<String, Integer> elementLayout, Double nearestNeighborThreshold) {
-    boolean isInside = elementLayout.get("y0") >= focusedElementLayout.get("y1") && elementLayout.get("y1") <= focusedElementLayout.get("y1");
+  /*
+    Whether an element ahead overlaps the focused element enough on the cross axis [c0, c1] to be a primary
+    candidate. fc0 and fc1 are the cross axis edges of the focused element.
+  */
+  private static boolean shouldPrioritize(int fc0, int fc1, int c0, int c1, double nearestNeighborThreshold) {
+    boolean isInside = c0 >= fc1 && c1 <= fc1;
 
-    boolean isMoreThanThreshold =
-      elementLayout.get("y0") < focusedElementLayout.get("y1") &&
-        elementLayout.get("y1") > focusedElementLayout.get("y0") &&
-        Math.max(elementLayout.get("y0"), focusedElementLayout.get("y0")) +
-          Math.min(elementLayout.get("y1"), focusedElementLayout.get("y1")) >=
-          focusedElementLayout.get("y0") + focusedElementLayout.get("y1") * nearestNeighborThreshold;
+    boolean isMoreThanThreshold = c0 < fc1 &&
+      c1 > fc0 &&
+      Math.max(c0, fc0) + Math.min(c1, fc1) >= fc0 + fc1 * nearestNeighborThreshold;
 
     return isInside || isMoreThanThreshold;
   }
 
-  private static Map<String, SpatialObject> calculateNearestNeighbor(SpatialObject focusedElement, Map<String, Map<String, Map<String, SpatialObject>>> prioritizedSpatialDirection) {
-    final Map<String, Integer> focusedElementLayout = focusedElement.getLayout();
-    final Map<String, Boolean> nextFocusRestrictions = focusedElement.getNextFocusRestrictions();
-    Map<String, Map<String, SpatialObject>> primary = prioritizedSpatialDirection.get("primary");
-    Map<String, Map<String, SpatialObject>> secondary = prioritizedSpatialDirection.get("secondary");
-
-    return new HashMap<String, SpatialObject>() {{
-      put("up", getNearestUpNeighBor(focusedElementLayout, primary.get("up"), secondary.get("up"), nextFocusRestrictions.get("disableSecondaryUp")));
-      put("right", getNearestRightNeighBor(focusedElementLayout, primary.get("right"), secondary.get("right"), nextFocusRestrictions.get("disableSecondaryRight")));
-      put("down", getNearestDownNeighBor(focusedElementLayout, primary.get("down"), secondary.get("down"), nextFocusRestrictions.get("disableSecondaryDown")));
-      put("left", getNearestLeftNeighBor(focusedElementLayout, primary.get("left"), secondary.get("left"), nextFocusRestrictions.get("disableSecondaryLeft")));
-    }};
-  }
-
-  private @Nullable
-  static SpatialObject getNearestUpNeighBor(Map<String, Integer> focusedElementLayout, Map<String, SpatialObject> primary, Map<String, SpatialObject> secondary, boolean onlyPrimary) {
-    SpatialObject nearestUp = null;
-
-    // If there are SpatialObject stored in the primary map
-    // Or if props defined to only look at primary focus
-    if (!primary.isEmpty() || onlyPrimary) {
-      for (Map.Entry<String, SpatialObject> entry : primary.entrySet()) {
-        SpatialObject element = entry.getValue();
-        if (nearestUp == null || element.getLayout().get("y1") - nearestUp.getLayout().get("y1") > 0) {
-          nearestUp = element;
-        }
-      }
-      // If there are no SpatialObject stored in the primary map
-      // And it is allowed to look at the secondary
-    } else {
-      for (Map.Entry<String, SpatialObject> entry : secondary.entrySet()) {
-        SpatialObject element = entry.getValue();
-
-        if (nearestUp == null) {
-          nearestUp = element;
-        } else {
-          Map<String, Integer> nearestUpLayout = nearestUp.getLayout();
-          Map<String, Integer> elementLayout = element.getLayout();
-
-          boolean isEl1Left = nearestUpLayout.get("x0") <= focusedElementLayout.get("x0");
-          boolean isEL2Left = elementLayout.get("x0") <= focusedElementLayout.get("x0");
-
-          Integer el1DistanceX = isEl1Left
-            ? Math.abs(focusedElementLayout.get("x0") - nearestUpLayout.get("x1"))
-            : Math.abs(nearestUpLayout.get("x0") - focusedElementLayout.get("x1"));
-
-          Integer el2DistanceX = isEL2Left
-            ? focusedElementLayout.get("x0") - elementLayout.get("x1")
-            : elementLayout.get("x0") - focusedElementLayout.get("x1");
-
-          if (el1DistanceX - el2DistanceX > 0 || elementLayout.get("y1") - nearestUpLayout.get("y1") > 0) {
-            nearestUp = element;
-          }
-        }
-      }
+  /**
+   * Neighbors of focusedElement inside its group resolved through the group's layout hint.
+   * A grid whose rows don't line up, or a child placed out of the hinted flow, can make the index point somewhere
+   * else than the screen, so a hinted neighbor is only kept when its layout is completely ahead of focusedElement in
+   * the direction and overlaps it on the cross axis.
+   * Directions that lead out of the group, or that can't be resolved or verified this way, are left out for the
+   * geometry search.
+   */
+  public static <T extends SpatialNode> Map<String, T> getIndexedNeighbors(T focusedElement, Map<String, T> spatialObjects, Map<String, ? extends SpatialNodeGroup<T>> groups) {
+    Map<String, T> indexedNeighbors = new HashMap<>();
+    SpatialNodeGroup<T> focusedGroup = groups.get(focusedElement.getGroupId());
+
+    if (focusedGroup == null || focusedGroup.getLayoutType() == null) {
+      return indexedNeighbors;
     }
 
-    return nearestUp;
-  }
+    for (String direction : DIRECTIONS) {
+      String neighborId = focusedGroup.getIndexedNeighborId(focusedElement.getId(), direction);
+      T neighbor = neighborId != null ? spatialObjects.get(neighborId) : null;
 
-  private @Nullable
-  static SpatialObject getNearestRightNeighBor(Map<String, Integer> focusedElementLayout, Map<String, SpatialObject> primary, Map<String, SpatialObject> secondary, boolean onlyPrimary) {
-    SpatialObject nearestRight = null;
-
-    // If there are SpatialObject stored in the primary map
-    // Or if props defined to only look at primary focus
-    if (!primary.isEmpty() || onlyPrimary) {
-      for (Map.Entry<String, SpatialObject> entry : primary.entrySet()) {
-        SpatialObject element = entry.getValue();
-        if (nearestRight == null || nearestRight.getLayout().get("x0") - element.getLayout().get("x0") > 0) {
-          nearestRight = element;
-        }
-      }
-      // If there are no SpatialObject stored in the primary map
-      // And it is allowed to look at the secondary
-    } else {
-      for (Map.Entry<String, SpatialObject> entry : secondary.entrySet()) {
-        SpatialObject element = entry.getValue();
-
-        if (nearestRight == null) {
-          nearestRight = element;
-        } else {
-          Map<String, Integer> nearestRightLayout = nearestRight.getLayout();
-          Map<String, Integer> elementLayout = element.getLayout();
-
-          boolean isEl1Above = nearestRightLayout.get("y0") <= focusedElementLayout.get("y0");
-          boolean isEL2Above = elementLayout.get("y0") <= focusedElementLayout.get("y0");
-
-          Integer el1DistanceX = isEl1Above
-            ? focusedElementLayout.get("y0") - nearestRightLayout.get("y1")
-            : nearestRightLayout.get("y0") - focusedElementLayout.get("y1");
-
-          Integer el2DistanceX = isEL2Above
-            ? focusedElementLayout.get("y0") - elementLayout.get("y1")
-            : elementLayout.get("y0") - focusedElementLayout.get("y1");
-
-          if (el1DistanceX - el2DistanceX > 0 || nearestRightLayout.get("y1") - elementLayout.get("y1") > 0) {
-            nearestRight = element;
-          }
-        }
+      if (neighbor != null && isAheadAndOverlapping(focusedElement.getLayout(), neighbor.getLayout(), direction)) {
+        indexedNeighbors.put(direction, neighbor);
       }
     }
 
-    return nearestRight;
+    return indexedNeighbors;
   }
 
-  private @Nullable
-  static SpatialObject getNearestDownNeighBor(Map<String, Integer> focusedElementLayout, Map<String, SpatialObject> primary, Map<String, SpatialObject> secondary, boolean onlyPrimary) {
-    SpatialObject nearestDown = null;
-
-    // If there are SpatialObject stored in the primary map
-    // Or if props defined to only look at primary focus
-    if (!primary.isEmpty() || onlyPrimary) {
-      for (Map.Entry<String, SpatialObject> entry : primary.entrySet()) {
-        SpatialObject element = entry.getValue();
-        if (nearestDown == null || nearestDown.getLayout().get("y0") - element.getLayout().get("y0") > 0) {
-          nearestDown = element;
-        }
-      }
-      // If there are no SpatialObject stored in the primary map
-      // And it is allowed to look at the secondary
-    } else {
-      for (Map.Entry<String, SpatialObject> entry : secondary.entrySet()) {
-        SpatialObject element = entry.getValue();
-
-        if (nearestDown == null) {
-          nearestDown = element;
-        } else {
-          Map<String, Integer> nearestDownLayout = nearestDown.getLayout();
-          Map<String, Integer> elementLayout = element.getLayout();
-
-          boolean isEl1Left = nearestDownLayout.get("x0") <= focusedElementLayout.get("x0");
-          boolean isEL2Left = elementLayout.get("x0") <= focusedElementLayout.get("x0");
-
-          Integer el1DistanceX = isEl1Left
-            ? Math.abs(focusedElementLayout.get("x0") - nearestDownLayout.get("x1"))
-            : Math.abs(nearestDownLayout.get("x0") - focusedElementLayout.get("x1"));
-
-          Integer el2DistanceX = isEL2Left
-            ? focusedElementLayout.get("x0") - elementLayout.get("x1")
-            : elementLayout.get("x0") - focusedElementLayout.get("x1");
-
-          if (el1DistanceX - el2DistanceX > 0 || nearestDownLayout.get("y0") - elementLayout.get("y0") > 0) {
-            nearestDown = element;
-          }
-        }
-      }
+  // Whether the element is completely ahead of the focused element in direction and overlaps it on the cross axis
+  private static boolean isAheadAndOverlapping(Map<String, Integer> focusedLayout, Map<String, Integer> elementLayout, String direction) {
+    if (focusedLayout.isEmpty() || elementLayout.isEmpty()) {
+      return false;
     }
 
-    return nearestDown;
-  }
-
-  private @Nullable
-  static SpatialObject getNearestLeftNeighBor(Map<String, Integer> focusedElementLayout, Map<String, SpatialObject> primary, Map<String, SpatialObject> secondary, boolean onlyPrimary) {
-    SpatialObject nearestLeft = null;
-
-    // If there are SpatialObject stored in the primary map
-    // Or if props defined to only look at primary focus
-    if (!primary.isEmpty() || onlyPrimary) {
-      for (Map.Entry<String, SpatialObject> entry : primary.entrySet()) {
-        SpatialObject element = entry.getValue();
-        if (nearestLeft == null || element.getLayout().get("x1") - nearestLeft.getLayout().get("x1") > 0) {
-          nearestLeft = element;
-        }
-      }
-      // If there are no SpatialObject stored in the primary map
-      // And it is allowed to look at the secondary
-    } else {
-      for (Map.Entry<String, SpatialObject> entry : secondary.entrySet()) {
-        SpatialObject element = entry.getValue();
-
-        if (nearestLeft == null) {
-          nearestLeft = element;
-        } else {
-          Map<String, Integer> nearestLeftLayout = nearestLeft.getLayout();
-          Map<String, Integer> elementLayout = element.getLayout();
-
-          boolean isEl1Above = nearestLeftLayout.get("y0") <= focusedElementLayout.get("y0");
-          boolean isEL2Above = elementLayout.get("y0") <= focusedElementLayout.get("y0");
-
-          Integer el1DistanceX = isEl1Above
-            ? focusedElementLayout.get("y0") - nearestLeftLayout.get("y1")
-            : nearestLeftLayout.get("y0") - focusedElementLayout.get("y1");
-
-          Integer el2DistanceX = isEL2Above
-            ? focusedElementLayout.get("y0") - elementLayout.get("y1")
-            : elementLayout.get("y0") - focusedElementLayout.get("y1");
-
-          if (el1DistanceX - el2DistanceX > 0 || elementLayout.get("x1") - focusedElementLayout.get("x1") > 0) {
-            nearestLeft = element;
-          }
-        }
-      }
+    final int fx0 = focusedLayout.get("x0");
+    final int fx1 = focusedLayout.get("x1");
+    final int fy0 = focusedLayout.get("y0");
+    final int fy1 = focusedLayout.get("y1");
+    final int x0 = elementLayout.get("x0");
+    final int x1 = elementLayout.get("x1");
+    final int y0 = elementLayout.get("y0");
+    final int y1 = elementLayout.get("y1");
+
+    switch (direction) {
+      case "up":
+        return y1 <= fy0 && x0 < fx1 && x1 > fx0;
+      case "right":
+        return x0 >= fx1 && y0 < fy1 && y1 > fy0;
+      case "down":
+        return y0 >= fy1 && x0 < fx1 && x1 > fx0;
+      case "left":
+        return x1 <= fx0 && y0 < fy1 && y1 > fy0;
+      default:
+        return false;
     }
-
-    return nearestLeft;
   }
 
-  public static Map<String, SpatialObject> overrideNearestNeighborIfNeeded(Map<String, SpatialObject> nearestNeighbors, SpatialObject focusedElement, Map<String, SpatialGroup> groups) {
-    Map<String, SpatialObject> overriddenValues = new HashMap<>();
-    SpatialGroup focusedGroup = groups.get(focusedElement.getGroupId());
-
-    if (focusedGroup == null) {
-      throw new java.lang.Error("overrideNearestNeighborIfNeeded" + " - focusedGroup not found: " + focusedElement.getGroupId());
-    }
+  public static <T extends SpatialNode> Map<String, T> overrideNearestNeighborIfNeeded(Map<String, T> nearestNeighbors, T focusedElement, Map<String, ? extends SpatialNodeGroup<T>> groups) {
+    Map<String, T> overriddenValues = new HashMap<>();
+    SpatialNodeGroup<T> focusedGroup = groups.get(focusedElement.getGroupId());
 
-    Map<String, String> focusedGroupNextGroupFocus = focusedGroup.getNextGroupFocus();
-    for (Map.Entry<String, SpatialObject> entry : nearestNeighbors.entrySet()) {
+    // The focused group can be removed while a calculation for one of its children is still queued
+    Map<String, String> focusedGroupNextGroupFocus = focusedGroup != null
+      ? focusedGroup.getNextGroupFocus()
+      : new HashMap<String, String>();
+    for (Map.Entry<String, T> entry : nearestNeighbors.entrySet()) {
       final String key = entry.getKey();
-      final SpatialObject element = entry.getValue();
-      SpatialObject nextFocusElement = null;
+      final T element = entry.getValue();
+      T nextFocusElement = null;
 
       // If null - there is spatially nothing to focus on remain on current focusedElement
       if (element == null) {
@@ -361,18 +263,16 @@ public class Utils {
         nextFocusElement = element;
         // If Next focusElement belongs to a different group that the one currently focused
       } else {
-        SpatialGroup elementGroup = groups.get(element.getGroupId());
+        SpatialNodeGroup<T> elementGroup = groups.get(element.getGroupId());
 
+        // Removed group whose children are not cleaned up yet
         if (elementGroup == null) {
-          throw new java.lang.Error("overrideNearestNeighborIfNeeded" + " - elementGroup  not found: " + element.getGroupId());
-        }
-
-        // If the group has a prefer group that it want to focus on in the -key- direction
-        if (focusedGroupNextGroupFocus.get(key) != null) {
-          SpatialGroup group = groups.get(focusedGroupNextGroupFocus.get(key));
+          nextFocusElement = element;
+          // If the group has a prefer group that it want to focus on in the -key- direction
+        } else if (focusedGroupNextGroupFocus.get(key) != null) {
+          SpatialNodeGroup<T> group = groups.get(focusedGroupNextGroupFocus.get(key));
           if (group == null) {
             nextFocusElement = element;
-            Log.d("SPATIALUTIL",  "GROUP IS NULL - element is: " + element.getId());
           } else {
             nextFocusElement = group.getFirstChildToGetFocus();
           }
@@ -394,13 +294,6 @@ public class Utils {
       overriddenValues.put(key, nextFocusElement);
     }
 
-    if (false) {
-      Log.d("&&&& nextUp:",  overriddenValues.get("up").getId());
-      Log.d("&&&& nextRight:", overriddenValues.get("right").getId());
-      Log.d("&&&& nextDown:", overriddenValues.get("down").getId());
-      Log.d("&&&& nextLeft:", overriddenValues.get("left").getId());
-    }
-
     return overriddenValues;
   }
 }
@@ -0,0 +1,89 @@
+package com.reactnativespatialnavigation;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Navigation snapshots: written off the UI thread and read back, corrupted files are rejected and discarded.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NavigationSnapshotTest {
+  private static final String SCREEN_KEY = "home";
+  private static final long WRITE_TIMEOUT_MS = 5000;
+
+  private SpatialTestEnvironment environment;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+    environment.registerGroup(SpatialTestEnvironment.groupParams("row", null));
+
+    int nodeHandle = environment.nextNodeHandle();
+    environment.mountView(environment.container, nodeHandle, 0, 0, 200, 140);
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("button", "row", nodeHandle));
+    environment.drain();
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void loadsSavedSnapshot() {
+    Promise savePromise = mock(Promise.class);
+    environment.module.saveNavigationSnapshot(SCREEN_KEY, savePromise);
+    environment.drain();
+    verify(savePromise, timeout(WRITE_TIMEOUT_MS)).resolve(getSnapshotFile().getAbsolutePath());
+
+    Promise loadPromise = mock(Promise.class);
+    environment.module.loadNavigationSnapshot(SCREEN_KEY, loadPromise);
+
+    ArgumentCaptor<ReadableMap> result = ArgumentCaptor.forClass(ReadableMap.class);
+    verify(loadPromise).resolve(result.capture());
+    assertEquals(1, result.getValue().getInt("groups"));
+    assertEquals(1, result.getValue().getInt("spatialObjects"));
+  }
+
+  @Test
+  public void rejectsStringLengthsPastTheEndOfTheFile() throws IOException {
+    File file = getSnapshotFile();
+    file.getParentFile().mkdirs();
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+      output.writeInt(NavigationSnapshot.MAGIC);
+      output.writeInt(NavigationSnapshot.VERSION);
+      output.writeInt(1);
+      output.writeInt(Integer.MAX_VALUE - 8);
+    }
+
+    Promise loadPromise = mock(Promise.class);
+    environment.module.loadNavigationSnapshot(SCREEN_KEY, loadPromise);
+
+    verify(loadPromise).reject(eq("SNAPSHOT FAILED"), any(IOException.class));
+    assertFalse(file.exists());
+  }
+
+  private File getSnapshotFile() {
+    return new File(new File(environment.reactContext.getFilesDir(), "spatial-navigation-snapshots"), SCREEN_KEY + ".snsnap");
+  }
+}
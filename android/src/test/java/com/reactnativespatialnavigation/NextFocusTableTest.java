@@ -0,0 +1,79 @@
+package com.reactnativespatialnavigation;
+
+import android.util.Base64;
+import android.view.View;
+
+import com.facebook.react.bridge.Promise;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Next focus tables of fixed layout screens: tiles at the edge of the layout have no target in some directions and
+ * still resolve from the table.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NextFocusTableTest {
+  private SpatialTestEnvironment environment;
+  private SpatialObject left;
+  private SpatialObject right;
+  private View leftView;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+    environment.registerGroup(SpatialTestEnvironment.groupParams("row", null));
+
+    int leftNodeHandle = environment.nextNodeHandle();
+    int rightNodeHandle = environment.nextNodeHandle();
+    leftView = environment.mountView(environment.container, leftNodeHandle, 0, 0, 200, 140);
+    environment.mountView(environment.container, rightNodeHandle, 220, 0, 200, 140);
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("left", "row", leftNodeHandle));
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("right", "row", rightNodeHandle));
+    environment.drain();
+
+    left = environment.module.getSpatialObject("left");
+    right = environment.module.getSpatialObject("right");
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void resolvesEdgeTilesFromTheTable() {
+    NextFocusTable nextFocusTable = new NextFocusTable();
+    nextFocusTable.put(left, Collections.singletonMap("right", right));
+    nextFocusTable.put(right, Collections.singletonMap("left", left));
+    environment.module.loadNextFocusTable("row", Base64.encodeToString(nextFocusTable.toByteArray(), Base64.NO_WRAP), mock(Promise.class));
+    environment.drain();
+
+    Map<String, SpatialObject> nextFocus = environment.module.resolveNextFocus(left);
+
+    assertSame(right, nextFocus.get("right"));
+    assertSame(left, nextFocus.get("up"));
+    assertSame(left, nextFocus.get("left"));
+    assertEquals(right.getNodeHandle().intValue(), leftView.getNextFocusRightId());
+    assertEquals(left.getNodeHandle().intValue(), leftView.getNextFocusUpId());
+    assertEquals(1L, getNextFocusTableMetric("hits"));
+    assertEquals(0L, getNextFocusTableMetric("misses"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private long getNextFocusTableMetric(String name) {
+    Map<String, Object> nextFocusTableMetrics =
+      (Map<String, Object>) environment.module.getMetrics().snapshot().get("nextFocusTable");
+    return ((Number) nextFocusTableMetrics.get(name)).longValue();
+  }
+}
@@ -0,0 +1,71 @@
+package com.reactnativespatialnavigation;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.Promise;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Layouts shed by a memory trim: queries of the spatial index measure them again first, off-screen objects stay
+ * reachable.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialCacheSheddingTest {
+  private SpatialTestEnvironment environment;
+  // One page to the right of the focused object
+  private int offScreenX;
+  private SpatialObject offScreen;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+    environment.registerGroup(SpatialTestEnvironment.groupParams("row", null));
+    offScreenX = environment.container.getRootView().getWidth();
+
+    int onScreenNodeHandle = environment.nextNodeHandle();
+    int offScreenNodeHandle = environment.nextNodeHandle();
+    environment.mountView(environment.container, onScreenNodeHandle, 0, 0, 200, 140);
+    environment.mountView(environment.container, offScreenNodeHandle, offScreenX, 0, 200, 140);
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("onScreen", "row", onScreenNodeHandle));
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("offScreen", "row", offScreenNodeHandle));
+    environment.drain();
+
+    offScreen = environment.module.getSpatialObject("offScreen");
+    environment.module.setFocusToSpatialObject("onScreen");
+    environment.drain();
+
+    environment.module.shedCaches(SpatialMemoryTrimmer.TIER_OFF_SCREEN_LAYOUTS);
+    assertTrue(offScreen.getLayout().isEmpty());
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void focusNearestInRectRestoresShedLayouts() {
+    Promise promise = mock(Promise.class);
+    environment.module.focusNearestInRect(JavaOnlyMap.of("x", offScreenX, "y", 0, "width", 200, "height", 140), promise);
+    environment.drain();
+
+    verify(promise).resolve("offScreen");
+  }
+
+  @Test
+  public void moveFocusByPageRestoresShedLayouts() {
+    Promise promise = mock(Promise.class);
+    environment.module.moveFocusByPage("right", promise);
+    environment.drain();
+
+    verify(promise).resolve("offScreen");
+  }
+}
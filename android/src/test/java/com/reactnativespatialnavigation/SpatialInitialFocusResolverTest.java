@@ -0,0 +1,107 @@
+package com.reactnativespatialnavigation;
+
+import android.view.KeyEvent;
+import android.view.View;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Initial focus of the preferred children of groups with hasTVPreferredFocus: one per navigation root, and none once
+ * focus was requested or a D-pad key went down in the root while it waited for the screen to settle.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialInitialFocusResolverTest {
+  private SpatialTestEnvironment environment;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+    environment.registerGroup(SpatialTestEnvironment.groupParams("screen", null));
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void focusesOnePreferredChildPerNavigationRoot() {
+    registerRow("top", 0, true);
+    View bottomPreferredView = registerRow("bottom", 160, true);
+
+    settle();
+
+    assertSame(bottomPreferredView, environment.findFocusedView());
+    assertEquals(1L, getInitialFocusCount());
+  }
+
+  @Test
+  public void keepsFocusRequestedBeforeSettling() {
+    registerRow("top", 0, true);
+    View bottomView = registerRow("bottom", 160, false);
+    registerWithoutFrames();
+
+    environment.module.setFocusToSpatialObject("bottom-0");
+    settle();
+
+    assertSame(bottomView, environment.findFocusedView());
+    assertEquals(0L, getInitialFocusCount());
+  }
+
+  @Test
+  public void keepsFocusMovedByKeyBeforeSettling() {
+    registerRow("top", 0, true);
+    View bottomView = registerRow("bottom", 160, false);
+    registerWithoutFrames();
+
+    // Focused by Android rather than the module, only the key shows the user is navigating
+    bottomView.requestFocus();
+    bottomView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_DPAD_LEFT));
+    bottomView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_DPAD_LEFT));
+    settle();
+
+    assertSame(bottomView, environment.findFocusedView());
+    assertEquals(0L, getInitialFocusCount());
+  }
+
+  // Group under screen with one button at y, returns the view of the button
+  private View registerRow(String groupId, int y, boolean hasTVPreferredFocus) {
+    JavaOnlyMap groupParams = SpatialTestEnvironment.groupParams(groupId, "screen");
+    groupParams.putBoolean("hasTVPreferredFocus", hasTVPreferredFocus);
+    environment.registerGroup(groupParams);
+
+    int nodeHandle = environment.nextNodeHandle();
+    View view = environment.mountView(environment.container, nodeHandle, 0, y, 200, 140);
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams(groupId + "-0", groupId, nodeHandle));
+    return view;
+  }
+
+  // The preferred child is scheduled once its UIBlock ran, the main looper and its frames don't run yet
+  private void registerWithoutFrames() {
+    environment.runQueuedWork();
+  }
+
+  private void settle() {
+    for (int i = 0; i < 10; i++) {
+      environment.drain();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private long getInitialFocusCount() {
+    Map<String, Object> initialFocusSettleFrames =
+      (Map<String, Object>) environment.module.getMetrics().snapshot().get("initialFocusSettleFrames");
+    return ((Number) initialFocusSettleFrames.get("count")).longValue();
+  }
+}
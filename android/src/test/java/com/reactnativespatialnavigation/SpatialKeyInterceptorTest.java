@@ -0,0 +1,96 @@
+package com.reactnativespatialnavigation;
+
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.Window;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+/**
+ * D-pad key downs resolved at the window: the ones that move focus are consumed, and React Native's TV event handler
+ * still gets their onHWKeyEvent.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialKeyInterceptorTest {
+  private SpatialTestEnvironment environment;
+  private View leftView;
+  private View rightView;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+    environment.module.init(JavaOnlyMap.of("enableKeyInterception", true), mock(Promise.class));
+    environment.registerGroup(SpatialTestEnvironment.groupParams("row", null));
+
+    int leftNodeHandle = environment.nextNodeHandle();
+    int rightNodeHandle = environment.nextNodeHandle();
+    leftView = environment.mountView(environment.container, leftNodeHandle, 0, 0, 200, 140);
+    rightView = environment.mountView(environment.container, rightNodeHandle, 220, 0, 200, 140);
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("left", "row", leftNodeHandle));
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("right", "row", rightNodeHandle));
+    environment.drain();
+
+    leftView.requestFocus();
+    environment.drain();
+    environment.reactContext.recordEvents = true;
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void emitsHWKeyEventForKeyDownsThatMoveFocus() {
+    pressKey(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_DPAD_RIGHT);
+
+    assertSame(rightView, environment.findFocusedView());
+    List<ReadableMap> hwKeyEvents = getHWKeyEvents();
+    assertEquals(1, hwKeyEvents.size());
+    assertEquals("right", hwKeyEvents.get(0).getString("eventType"));
+    assertEquals(KeyEvent.ACTION_DOWN, hwKeyEvents.get(0).getInt("eventKeyAction"));
+    assertEquals(leftView.getId(), hwKeyEvents.get(0).getInt("tag"));
+  }
+
+  // The root view reports these itself, they are dispatched as usual
+  @Test
+  public void leavesKeyUpsAndKeyDownsThatDontMoveFocusToTheRootView() {
+    pressKey(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_DPAD_LEFT);
+    pressKey(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_DPAD_LEFT);
+
+    assertSame(leftView, environment.findFocusedView());
+    assertEquals(0, getHWKeyEvents().size());
+  }
+
+  private void pressKey(int action, int keyCode) {
+    Window.Callback window = environment.activity.getWindow().getCallback();
+    window.dispatchKeyEvent(new KeyEvent(action, keyCode));
+    environment.drain();
+  }
+
+  private List<ReadableMap> getHWKeyEvents() {
+    List<ReadableMap> hwKeyEvents = new ArrayList<>();
+    for (Object[] event : environment.reactContext.emittedEvents) {
+      if ("onHWKeyEvent".equals(event[0])) {
+        hwKeyEvents.add((ReadableMap) event[1]);
+      }
+    }
+
+    return hwKeyEvents;
+  }
+}
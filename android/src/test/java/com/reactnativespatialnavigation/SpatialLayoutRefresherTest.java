@@ -0,0 +1,77 @@
+package com.reactnativespatialnavigation;
+
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Layouts written back after animations: the focus scale of a tile stays out of its layout, its translation and the
+ * transforms of its ancestors go in.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialLayoutRefresherTest {
+  // Under 5% of the width, a 1.1x focus scale would overlap the next tile
+  private static final int GAP = 6;
+
+  private SpatialTestEnvironment environment;
+  private View leftView;
+  private View rightView;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+    environment.registerGroup(SpatialTestEnvironment.groupParams("row", null));
+
+    int leftNodeHandle = environment.nextNodeHandle();
+    int rightNodeHandle = environment.nextNodeHandle();
+    leftView = environment.mountView(environment.container, leftNodeHandle, 0, 0, 200, 140);
+    rightView = environment.mountView(environment.container, rightNodeHandle, 200 + GAP, 0, 200, 140);
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("left", "row", leftNodeHandle));
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("right", "row", rightNodeHandle));
+    environment.drain();
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void leavesFocusScaleOutOfTheLayout() {
+    SpatialObject left = environment.module.getSpatialObject("left");
+    leftView.setScaleX(1.1f);
+    leftView.setScaleY(1.1f);
+    refresh(left);
+
+    assertEquals(0, (int) left.getLayout().get("x0"));
+    assertEquals(200, (int) left.getLayout().get("x1"));
+    assertSame(
+      environment.module.getSpatialObject("right"),
+      environment.module.getKeyHandler().resolveTarget(left, "right")
+    );
+  }
+
+  @Test
+  public void followsTranslation() {
+    SpatialObject right = environment.module.getSpatialObject("right");
+    rightView.setTranslationX(50);
+    refresh(right);
+
+    assertEquals(200 + GAP + 50, (int) right.getLayout().get("x0"));
+    assertEquals(200, (int) right.getLayout().get("width"));
+  }
+
+  private void refresh(SpatialObject spatialObject) {
+    environment.module.getLayoutRefresher().track(spatialObject);
+    for (int i = 0; i < 4; i++) {
+      environment.drain();
+    }
+  }
+}
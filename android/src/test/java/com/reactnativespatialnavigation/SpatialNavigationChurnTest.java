@@ -0,0 +1,304 @@
+package com.reactnativespatialnavigation;
+
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.Window;
+import android.widget.FrameLayout;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Randomized screen churn against the module: screens of rows of buttons mount and unmount in random orders,
+ * buttons re-render and get replaced, views unmount before their UIBlock runs, focus and D-pad keys move around.
+ * The registry is checked against a model of what JS registered after every step.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialNavigationChurnTest {
+  private static final long SEED = 20240517L;
+  private static final int[] DPAD_KEYS = {
+    KeyEvent.KEYCODE_DPAD_UP, KeyEvent.KEYCODE_DPAD_RIGHT, KeyEvent.KEYCODE_DPAD_DOWN, KeyEvent.KEYCODE_DPAD_LEFT
+  };
+
+  private SpatialTestEnvironment environment;
+  private Random random;
+  private final List<Screen> screens = new ArrayList<>();
+  private int screenCount = 0;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+    random = new Random(SEED);
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void keepsRegistryConsistentUnderRandomChurn() {
+    for (int step = 0; step < 2000; step++) {
+      runRandomStep();
+      environment.drain();
+      assertConsistent("step " + step);
+    }
+
+    unmountAll();
+    environment.drain();
+    assertConsistent("after unmounting everything");
+    assertTrue(environment.module.getSpatialObjects().isEmpty());
+    assertTrue(environment.module.getGroups().isEmpty());
+  }
+
+  @Test
+  public void plateausInMemoryAcrossChurnCycles() {
+    long[] usedHeap = new long[12];
+
+    for (int cycle = 0; cycle < usedHeap.length; cycle++) {
+      for (int step = 0; step < 300; step++) {
+        runRandomStep();
+        environment.drain();
+      }
+
+      unmountAll();
+      environment.drain();
+      assertConsistent("cycle " + cycle);
+      usedHeap[cycle] = SpatialTestEnvironment.measureUsedHeap();
+    }
+
+    // The first cycles warm up class loading and the fixed size buffers
+    long growth = usedHeap[usedHeap.length - 1] - usedHeap[2];
+    assertTrue(
+      "heap grew by " + growth + " bytes over " + (usedHeap.length - 3) + " cycles: " + Arrays.toString(usedHeap),
+      growth < 256 * 1024
+    );
+  }
+
+  private void runRandomStep() {
+    int action = random.nextInt(100);
+
+    if (screens.isEmpty() || action < 20) {
+      mountScreen();
+    } else if (action < 35) {
+      unmountScreen(screens.remove(random.nextInt(screens.size())));
+    } else if (action < 50) {
+      reRenderButton();
+    } else if (action < 60) {
+      replaceButtonView();
+    } else if (action < 65) {
+      mountButtonWithoutView();
+    } else if (action < 85) {
+      focusRandomButton();
+    } else {
+      pressRandomDpadKey();
+    }
+  }
+
+  private void mountScreen() {
+    Screen screen = new Screen("screen-" + screenCount++);
+    screen.container = new FrameLayout(environment.activity);
+    environment.container.addView(screen.container, new FrameLayout.LayoutParams(1920, 1080));
+
+    environment.registerGroup(SpatialTestEnvironment.groupParams(screen.id, null));
+    int rowCount = 1 + random.nextInt(4);
+    for (int row = 0; row < rowCount; row++) {
+      String rowId = screen.id + "-row-" + row;
+      screen.rowIds.add(rowId);
+      environment.registerGroup(SpatialTestEnvironment.groupParams(rowId, screen.id));
+
+      int buttonCount = 1 + random.nextInt(8);
+      for (int column = 0; column < buttonCount; column++) {
+        Button button = new Button(rowId + "-button-" + column, rowId, environment.nextNodeHandle());
+        environment.mountView(screen.container, button.nodeHandle, column * 220, row * 160, 200, 140);
+        screen.buttons.put(button.id, button);
+        environment.registerSpatialObject(button.params());
+      }
+    }
+
+    screens.add(screen);
+  }
+
+  // Effect cleanups run in any order, and a group can go before its children are removed
+  private void unmountScreen(Screen screen) {
+    List<Runnable> removals = new ArrayList<>();
+    boolean shouldRemoveButtons = random.nextBoolean();
+    for (Button button : screen.buttons.values()) {
+      if (shouldRemoveButtons) {
+        removals.add(() -> environment.removeSpatialObject(button.id));
+      }
+    }
+    for (String rowId : screen.rowIds) {
+      removals.add(() -> environment.removeGroup(rowId));
+    }
+    Collections.shuffle(removals, random);
+    removals.add(random.nextInt(removals.size() + 1), () -> environment.removeGroup(screen.id));
+
+    for (Runnable removal : removals) {
+      removal.run();
+    }
+
+    for (Button button : screen.buttons.values()) {
+      environment.unmountView(button.nodeHandle);
+    }
+    environment.container.removeView(screen.container);
+  }
+
+  // Same id and view registered again in the same batch as its removal, sometimes with other restrictions
+  private void reRenderButton() {
+    Button button = randomButton();
+    if (button == null) {
+      return;
+    }
+
+    button.disableSecondaryUp = random.nextBoolean() != button.disableSecondaryUp;
+    environment.removeSpatialObject(button.id);
+    environment.registerSpatialObject(button.params());
+  }
+
+  // Same id with a new native view, the registered object has to be replaced
+  private void replaceButtonView() {
+    Button button = randomButton();
+    if (button == null) {
+      return;
+    }
+
+    Screen screen = findScreen(button);
+    View view = environment.getView(button.nodeHandle);
+    FrameLayout.LayoutParams layoutParams = (FrameLayout.LayoutParams) view.getLayoutParams();
+    environment.unmountView(button.nodeHandle);
+    button.nodeHandle = environment.nextNodeHandle();
+    environment.mountView(screen.container, button.nodeHandle, layoutParams.leftMargin, layoutParams.topMargin, 200, 140);
+
+    environment.removeSpatialObject(button.id);
+    environment.registerSpatialObject(button.params());
+  }
+
+  // Registered, but the view unmounts before its UIBlock resolves it
+  private void mountButtonWithoutView() {
+    Screen screen = screens.get(random.nextInt(screens.size()));
+    String rowId = screen.rowIds.get(random.nextInt(screen.rowIds.size()));
+    Button button = new Button(rowId + "-unmounted-" + environment.nextNodeHandle(), rowId, environment.nextNodeHandle());
+    environment.registerSpatialObject(button.params());
+  }
+
+  private void focusRandomButton() {
+    Button button = randomButton();
+    if (button != null) {
+      environment.getView(button.nodeHandle).requestFocus();
+    }
+  }
+
+  // Through the window like an input event, so the key interceptor sees it when installed
+  private void pressRandomDpadKey() {
+    if (environment.findFocusedView() == null) {
+      return;
+    }
+
+    int keyCode = DPAD_KEYS[random.nextInt(DPAD_KEYS.length)];
+    Window.Callback window = environment.activity.getWindow().getCallback();
+    window.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, keyCode));
+    window.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_UP, keyCode));
+  }
+
+  private void unmountAll() {
+    while (!screens.isEmpty()) {
+      unmountScreen(screens.remove(screens.size() - 1));
+    }
+  }
+
+  private Button randomButton() {
+    List<Button> buttons = new ArrayList<>();
+    for (Screen screen : screens) {
+      buttons.addAll(screen.buttons.values());
+    }
+
+    return buttons.isEmpty() ? null : buttons.get(random.nextInt(buttons.size()));
+  }
+
+  private Screen findScreen(Button button) {
+    for (Screen screen : screens) {
+      if (screen.buttons.containsKey(button.id)) {
+        return screen;
+      }
+    }
+
+    throw new IllegalStateException("No screen for " + button.id);
+  }
+
+  private void assertConsistent(String when) {
+    SpatialNavigationModule module = environment.module;
+    assertEquals(when, Collections.emptyList(), module.getRegistry().findInvariantViolations());
+
+    Set<String> expectedIds = new HashSet<>();
+    Set<String> expectedGroupIds = new HashSet<>();
+    View focusedView = environment.findFocusedView();
+    for (Screen screen : screens) {
+      expectedGroupIds.add(screen.id);
+      expectedGroupIds.addAll(screen.rowIds);
+      for (Button button : screen.buttons.values()) {
+        expectedIds.add(button.id);
+
+        SpatialObject spatialObject = module.getSpatialObject(button.id);
+        assertSame(when + ": " + button.id, spatialObject, module.getSpatialObjectByNodeHandle(button.nodeHandle));
+        assertSame(when + ": " + button.id, environment.getView(button.nodeHandle), spatialObject.getView());
+        assertTrue(when + ": " + button.id, module.getGroup(button.groupId).getSpatialChildIds().containsKey(button.id));
+
+        // Focus reaches the module through setFocusSpatialObjectId and the groups' propertyChange
+        if (focusedView != null && focusedView == spatialObject.getView()) {
+          assertSame(when + ": focus", spatialObject, module.getFocusedSpatialObject());
+        }
+      }
+    }
+
+    assertEquals(when, expectedIds, module.getSpatialObjects().keySet());
+    assertEquals(when, expectedGroupIds, module.getGroups().keySet());
+  }
+
+  private static class Screen {
+    final String id;
+    final List<String> rowIds = new ArrayList<>();
+    final Map<String, Button> buttons = new HashMap<>();
+    FrameLayout container;
+
+    Screen(String id) {
+      this.id = id;
+    }
+  }
+
+  private static class Button {
+    final String id;
+    final String groupId;
+    int nodeHandle;
+    boolean disableSecondaryUp = false;
+
+    Button(String id, String groupId, int nodeHandle) {
+      this.id = id;
+      this.groupId = groupId;
+      this.nodeHandle = nodeHandle;
+    }
+
+    JavaOnlyMap params() {
+      return SpatialTestEnvironment.spatialObjectParams(id, groupId, nodeHandle, disableSecondaryUp);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.reactnativespatialnavigation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Heap retained by the module per registered button. Views and groups are in place before the baseline, so the
+ * difference is what registering adds on top of the native view: the SpatialObject, its listeners, its layout and
+ * its entries in the module lookups.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialObjectMemoryTest {
+  private static final int BUTTON_COUNT = 5000;
+  private static final int BUTTONS_PER_ROW = 10;
+  // The smallest round is kept, one off allocations of the runtime land in a single round
+  private static final int ROUNDS = 3;
+  private static final long MAX_BYTES_PER_BUTTON = 2560;
+
+  private SpatialTestEnvironment environment;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void retainsBoundedBytesPerRegisteredButton() {
+    environment.registerGroup(SpatialTestEnvironment.groupParams("screen", null));
+    for (int i = 0; i < BUTTON_COUNT; i += BUTTONS_PER_ROW) {
+      environment.registerGroup(SpatialTestEnvironment.groupParams(rowId(i), "screen"));
+    }
+
+    long bytesPerButton = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      // Fresh views every round, what a view keeps after its first registration is part of the cost
+      int[] nodeHandles = new int[BUTTON_COUNT];
+      for (int i = 0; i < BUTTON_COUNT; i++) {
+        nodeHandles[i] = environment.nextNodeHandle();
+        int column = i % BUTTONS_PER_ROW;
+        environment.mountView(environment.container, nodeHandles[i], column * 220, (i / BUTTONS_PER_ROW) * 160, 200, 140);
+      }
+      environment.drain();
+
+      long baseline = SpatialTestEnvironment.measureUsedHeap();
+      for (int i = 0; i < BUTTON_COUNT; i++) {
+        environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams(buttonId(round, i), rowId(i), nodeHandles[i]));
+      }
+      environment.drain();
+      long registered = SpatialTestEnvironment.measureUsedHeap();
+
+      assertEquals(BUTTON_COUNT, environment.module.getSpatialObjects().size());
+      bytesPerButton = Math.min(bytesPerButton, (registered - baseline) / BUTTON_COUNT);
+
+      for (int i = 0; i < BUTTON_COUNT; i++) {
+        environment.removeSpatialObject(buttonId(round, i));
+        environment.unmountView(nodeHandles[i]);
+      }
+      environment.drain();
+    }
+
+    assertTrue(bytesPerButton + " bytes per registered button", bytesPerButton < MAX_BYTES_PER_BUTTON);
+  }
+
+  private static String buttonId(int round, int buttonIndex) {
+    return "button-" + round + "-" + buttonIndex;
+  }
+
+  private static String rowId(int buttonIndex) {
+    return "row-" + buttonIndex / BUTTONS_PER_ROW;
+  }
+}
@@ -0,0 +1,105 @@
+package com.reactnativespatialnavigation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Registers and unregisters 100k buttons with unique ids in batches. Every other batch JS never removes its buttons,
+ * their views unmount and get collected, and the next registrations have to retire them through the reference queue
+ * of the weakly held views. The heap has to come back to where it was after the first batches.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialObjectSoakTest {
+  private static final int BATCH_COUNT = 100;
+  private static final int BUTTONS_PER_BATCH = 1000;
+  private static final int ROW_COUNT = 10;
+  // Batches run before the baseline, the lookups and the runtime take a few batches to reach their working size
+  private static final int WARM_UP_BATCHES = 10;
+  private static final long MAX_HEAP_GROWTH = 256 * 1024;
+
+  private SpatialTestEnvironment environment;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void returnsToBaselineAfterRegisteringAndRemoving100kButtons() {
+    environment.registerGroup(SpatialTestEnvironment.groupParams("screen", null));
+    for (int row = 0; row < ROW_COUNT; row++) {
+      environment.registerGroup(SpatialTestEnvironment.groupParams("row-" + row, "screen"));
+    }
+
+    long baseline = 0;
+
+    for (int batch = 0; batch < BATCH_COUNT; batch++) {
+      if (batch == WARM_UP_BATCHES) {
+        baseline = SpatialTestEnvironment.measureUsedHeap();
+      }
+
+      // The first registration retires what the previous batch left behind
+      int[] nodeHandles = mountAndRegisterBatch(batch);
+      assertEquals("batch " + batch, BUTTONS_PER_BATCH, environment.module.getSpatialObjects().size());
+
+      boolean isRemovedByJS = batch % 2 == 1;
+      for (int i = 0; i < BUTTONS_PER_BATCH; i++) {
+        if (isRemovedByJS) {
+          environment.removeSpatialObject(buttonId(batch, i));
+        }
+        environment.unmountView(nodeHandles[i]);
+      }
+      environment.drain();
+
+      if (isRemovedByJS) {
+        assertTrue("batch " + batch, environment.module.getSpatialObjects().isEmpty());
+      } else {
+        // Still registered until their views are collected and the queue is polled
+        assertEquals("batch " + batch, BUTTONS_PER_BATCH, environment.module.getSpatialObjects().size());
+        SpatialTestEnvironment.collectGarbage();
+      }
+    }
+
+    int buttonCount = BATCH_COUNT * BUTTONS_PER_BATCH;
+    long growth = SpatialTestEnvironment.measureUsedHeap() - baseline;
+
+    assertTrue(environment.module.getSpatialObjects().isEmpty());
+    assertEquals(Collections.emptyList(), environment.module.getRegistry().findInvariantViolations());
+    for (int row = 0; row < ROW_COUNT; row++) {
+      assertTrue(environment.module.getGroup("row-" + row).getSpatialChildIds().isEmpty());
+    }
+    assertTrue("heap grew by " + growth + " bytes over " + buttonCount + " buttons", growth < MAX_HEAP_GROWTH);
+  }
+
+  private int[] mountAndRegisterBatch(int batch) {
+    int[] nodeHandles = new int[BUTTONS_PER_BATCH];
+    int buttonsPerRow = BUTTONS_PER_BATCH / ROW_COUNT;
+
+    for (int i = 0; i < BUTTONS_PER_BATCH; i++) {
+      nodeHandles[i] = environment.nextNodeHandle();
+      int row = i / buttonsPerRow;
+      environment.mountView(environment.container, nodeHandles[i], (i % buttonsPerRow) * 220, row * 160, 200, 140);
+      environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams(buttonId(batch, i), "row-" + row, nodeHandles[i]));
+    }
+    environment.drain();
+
+    return nodeHandles;
+  }
+
+  private static String buttonId(int batch, int buttonIndex) {
+    return "button-" + batch + "-" + buttonIndex;
+  }
+}
@@ -0,0 +1,154 @@
+package com.reactnativespatialnavigation;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.Promise;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Streaming registration with a small queue: batches beyond the capacity park until there is room, and are
+ * acknowledged only once all of them got queued.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialRegistrationQueueTest {
+  private static final int CAPACITY = 10;
+
+  private SpatialTestEnvironment environment;
+  private SpatialRegistrationQueue registrationQueue;
+  private int nextButton = 0;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+    // A budget no frame reaches, every frame adds all that is queued
+    environment.module.init(JavaOnlyMap.of(
+      "enableStreamingRegistration", true,
+      "registrationQueueCapacity", CAPACITY,
+      "registrationFrameBudgetMs", 1000.0
+    ), mock(Promise.class));
+    environment.registerGroup(SpatialTestEnvironment.groupParams("row", null));
+    registrationQueue = environment.module.getRegistrationQueue();
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void parksRegistrationsBeyondCapacity() {
+    Promise promise = mock(Promise.class);
+    environment.module.registerSpatialObjects(mountButtons(25), promise);
+
+    assertEquals(25, registrationQueue.size());
+    assertEquals(15, registrationQueue.getParkedCount());
+    verify(promise, never()).resolve(any());
+
+    drainQueue();
+
+    verify(promise).resolve(25);
+    assertEquals(0, registrationQueue.getParkedCount());
+    assertEquals(25, environment.module.getSpatialObjects().size());
+  }
+
+  // Drained outside of JS batches, the views resolve without the module completing a batch of its own
+  @Test
+  public void resolvesViewsOfDrainedRegistrations() {
+    environment.module.registerSpatialObjects(mountButtons(CAPACITY), mock(Promise.class));
+    drainQueue();
+
+    for (SpatialObject spatialObject : environment.module.getSpatialObjects().values()) {
+      assertNotNull(spatialObject.getView());
+    }
+    assertEquals(0, environment.batchCompleteCount);
+  }
+
+  @Test
+  public void acknowledgesBatchesThatFitRightAway() {
+    Promise promise = mock(Promise.class);
+    environment.module.registerSpatialObjects(mountButtons(CAPACITY), promise);
+
+    verify(promise).resolve(CAPACITY);
+    assertEquals(0, registrationQueue.getParkedCount());
+  }
+
+  @Test
+  public void rejectsBatchesThatOverflowWhileAnotherIsParked() {
+    Promise parkedPromise = mock(Promise.class);
+    Promise fittingPromise = mock(Promise.class);
+    Promise overflowingPromise = mock(Promise.class);
+
+    environment.module.registerSpatialObjects(mountButtons(15), parkedPromise);
+    environment.module.registerSpatialObjects(mountButtons(5), fittingPromise);
+    environment.module.registerSpatialObjects(mountButtons(1), overflowingPromise);
+
+    assertEquals(CAPACITY, registrationQueue.getParkedCount());
+    verify(overflowingPromise).reject(eq("QUEUE FULL"), anyString());
+
+    drainQueue();
+
+    verify(parkedPromise).resolve(15);
+    verify(fittingPromise).resolve(5);
+    verify(overflowingPromise, never()).resolve(any());
+    assertEquals(20, environment.module.getSpatialObjects().size());
+  }
+
+  @Test
+  public void dropsParkedRegistrationsOnRemoval() {
+    Promise promise = mock(Promise.class);
+    environment.module.registerSpatialObjects(mountButtons(25), promise);
+    environment.removeSpatialObject("button-20");
+    environment.removeSpatialObject("button-5");
+
+    assertEquals(23, registrationQueue.size());
+    assertEquals(14, registrationQueue.getParkedCount());
+
+    drainQueue();
+
+    verify(promise).resolve(25);
+    assertNull(environment.module.getSpatialObject("button-20"));
+    assertNull(environment.module.getSpatialObject("button-5"));
+    assertEquals(23, environment.module.getSpatialObjects().size());
+  }
+
+  private JavaOnlyArray mountButtons(int count) {
+    List<Object> params = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      params.add(SpatialTestEnvironment.spatialObjectParams("button-" + nextButton++, "row", mountButton()));
+    }
+
+    return JavaOnlyArray.from(params);
+  }
+
+  private int mountButton() {
+    int nodeHandle = environment.nextNodeHandle();
+    environment.mountView(environment.container, nodeHandle, (nodeHandle % 8) * 220, (nodeHandle / 8) * 160, 200, 140);
+    return nodeHandle;
+  }
+
+  private void drainQueue() {
+    for (int i = 0; i < 10 && registrationQueue.size() > 0; i++) {
+      environment.drain();
+    }
+    environment.drain();
+    assertEquals(0, registrationQueue.size());
+  }
+}
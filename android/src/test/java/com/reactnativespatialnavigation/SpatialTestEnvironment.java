@@ -0,0 +1,296 @@
+package com.reactnativespatialnavigation;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.JavaScriptModule;
+import com.facebook.react.bridge.NativeModule;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.uimanager.NativeViewHierarchyManager;
+import com.facebook.react.uimanager.UIBlock;
+import com.facebook.react.uimanager.UIManagerModule;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLog;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Runs a SpatialNavigationModule under Robolectric without a React instance.
+ * Views are plain Views in an activity, with their id set to their nodeHandle like React Native does. The native
+ * modules thread and the UI thread are both the test thread: module methods are called directly like the bridge
+ * would, work queued for the native modules thread, UIBlocks and the main looper run in drain().
+ * Call close() when done, Arguments is mocked to return Java only maps while it is open.
+ */
+class SpatialTestEnvironment implements AutoCloseable {
+  private static final long FRAME_MS = 16;
+
+  final Activity activity;
+  final FrameLayout container;
+  final TestReactContext reactContext;
+  final SpatialNavigationModule module;
+  private final MockedStatic<Arguments> arguments;
+  // nodeHandle -> mounted view, what NativeViewHierarchyManager resolves
+  private final Map<Integer, View> mountedViews = new HashMap<>();
+  private final List<UIBlock> uiBlocks = new ArrayList<>();
+  // Queued from the native modules queue outside of a JS batch, React Native only dispatches them with the next batch
+  private final List<UIBlock> outOfBatchUIBlocks = new ArrayList<>();
+  int batchCompleteCount = 0;
+  // Stub only mocks, recorded invocations would retain what the module passes them
+  private final NativeViewHierarchyManager nativeViewHierarchyManager = mock(NativeViewHierarchyManager.class, withSettings().stubOnly());
+  private final Promise promise = mock(Promise.class, withSettings().stubOnly());
+  private int nextNodeHandle = 1;
+
+  SpatialTestEnvironment() {
+    arguments = Mockito.mockStatic(Arguments.class, withSettings().stubOnly());
+    arguments.when(Arguments::createMap).thenAnswer(invocation -> new JavaOnlyMap());
+    arguments.when(Arguments::createArray).thenAnswer(invocation -> new JavaOnlyArray());
+
+    // D-pad devices are never in touch mode, views only take focus outside of it
+    InstrumentationRegistry.getInstrumentation().setInTouchMode(false);
+    activity = Robolectric.buildActivity(Activity.class).setup().get();
+    container = new FrameLayout(activity);
+    activity.setContentView(container);
+
+    UIManagerModule uiManager = mock(UIManagerModule.class, withSettings().stubOnly());
+    doAnswer(invocation -> addUIBlock(invocation.getArgument(0))).when(uiManager).addUIBlock(any(UIBlock.class));
+    doAnswer(invocation -> {
+      batchCompleteCount++;
+      uiBlocks.addAll(outOfBatchUIBlocks);
+      outOfBatchUIBlocks.clear();
+      return null;
+    }).when(uiManager).onBatchComplete();
+    when(nativeViewHierarchyManager.resolveView(anyInt())).thenAnswer(invocation -> mountedViews.get((int) invocation.getArgument(0)));
+
+    reactContext = new TestReactContext(activity, uiManager);
+    module = new SpatialNavigationModule(reactContext);
+  }
+
+  private boolean addUIBlock(UIBlock uiBlock) {
+    return reactContext.isRunningNativeModulesQueue ? outOfBatchUIBlocks.add(uiBlock) : uiBlocks.add(uiBlock);
+  }
+
+  @Override
+  public void close() {
+    module.onCatalystInstanceDestroy();
+    drain();
+    arguments.close();
+  }
+
+  // Runs everything queued for the native modules thread and the UI thread, then lets a few frames pass
+  void drain() {
+    for (int frame = 0; frame < 4; frame++) {
+      runQueuedWork();
+      ShadowLooper.idleMainLooper(FRAME_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  // Runs what is queued for the native modules thread and the UIBlocks, without the main looper
+  void runQueuedWork() {
+    reactContext.runNativeModulesQueue();
+
+    List<UIBlock> pendingUIBlocks = new ArrayList<>(uiBlocks);
+    uiBlocks.clear();
+    for (UIBlock uiBlock : pendingUIBlocks) {
+      uiBlock.execute(nativeViewHierarchyManager);
+    }
+  }
+
+  // Smallest used heap over a few collections, for comparisons between points of the same run.
+  // Robolectric keeps every log line, and tags carry group ids, so they are dropped first.
+  static long measureUsedHeap() {
+    ShadowLog.clear();
+    Runtime runtime = Runtime.getRuntime();
+    long usedHeap = Long.MAX_VALUE;
+
+    for (int i = 0; i < 5; i++) {
+      collectGarbage();
+      usedHeap = Math.min(usedHeap, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    return usedHeap;
+  }
+
+  // Finalizers and the reference handler run on their own threads, they get a moment to release and enqueue
+  static void collectGarbage() {
+    System.gc();
+    System.runFinalization();
+    try {
+      Thread.sleep(20);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  int nextNodeHandle() {
+    return nextNodeHandle++;
+  }
+
+  // Adds a focusable view laid out at x, y to parent, resolvable through nodeHandle
+  View mountView(ViewGroup parent, int nodeHandle, int x, int y, int width, int height) {
+    View view = new View(activity);
+    view.setId(nodeHandle);
+    view.setFocusable(true);
+
+    FrameLayout.LayoutParams layoutParams = new FrameLayout.LayoutParams(width, height);
+    layoutParams.leftMargin = x;
+    layoutParams.topMargin = y;
+    parent.addView(view, layoutParams);
+    mountedViews.put(nodeHandle, view);
+
+    return view;
+  }
+
+  // Removes the view like a native unmount, without telling the module
+  void unmountView(int nodeHandle) {
+    View view = mountedViews.remove(nodeHandle);
+    if (view != null && view.getParent() instanceof ViewGroup) {
+      ((ViewGroup) view.getParent()).removeView(view);
+    }
+  }
+
+  @Nullable
+  View getView(int nodeHandle) {
+    return mountedViews.get(nodeHandle);
+  }
+
+  @Nullable
+  View findFocusedView() {
+    return container.findFocus();
+  }
+
+  int getMountedViewCount() {
+    return mountedViews.size();
+  }
+
+  static JavaOnlyMap groupParams(String id, @Nullable String groupParentId) {
+    JavaOnlyMap params = JavaOnlyMap.of("id", id, "hasTVPreferredFocus", false);
+    if (groupParentId != null) {
+      params.putString("groupParentId", groupParentId);
+    }
+
+    return params;
+  }
+
+  static JavaOnlyMap spatialObjectParams(String id, String groupId, int nodeHandle) {
+    return spatialObjectParams(id, groupId, nodeHandle, false);
+  }
+
+  static JavaOnlyMap spatialObjectParams(String id, String groupId, int nodeHandle, boolean disableSecondaryUp) {
+    return JavaOnlyMap.of(
+      "id", id,
+      "groupId", groupId,
+      "nodeHandle", nodeHandle,
+      "nextFocusRestrictions", JavaOnlyMap.of(
+        "disableSecondaryUp", disableSecondaryUp,
+        "disableSecondaryRight", false,
+        "disableSecondaryDown", false,
+        "disableSecondaryLeft", false
+      )
+    );
+  }
+
+  void registerGroup(ReadableMap params) {
+    module.registerGroup(params, promise);
+  }
+
+  void removeGroup(String groupId) {
+    module.removeGroup(groupId, promise);
+  }
+
+  void registerSpatialObject(ReadableMap params) {
+    module.registerSpatialObject(params, promise);
+  }
+
+  void removeSpatialObject(String spatialObjectId) {
+    module.removeSpatialObject(spatialObjectId, promise);
+  }
+
+  /**
+   * Stands in for the React instance: hands out the UIManagerModule mock and an event emitter that only keeps events
+   * while recordEvents is set, and queues work for the native modules thread until runNativeModulesQueue.
+   */
+  static class TestReactContext extends ReactApplicationContext {
+    private final Activity activity;
+    private final UIManagerModule uiManager;
+    private final DeviceEventManagerModule.RCTDeviceEventEmitter eventEmitter =
+      mock(DeviceEventManagerModule.RCTDeviceEventEmitter.class, withSettings().stubOnly());
+    private final ArrayDeque<Runnable> nativeModulesQueue = new ArrayDeque<>();
+    // Event names and params in emit order
+    final List<Object[]> emittedEvents = new ArrayList<>();
+    boolean recordEvents = false;
+    boolean isRunningNativeModulesQueue = false;
+
+    TestReactContext(Activity activity, UIManagerModule uiManager) {
+      super(activity);
+      this.activity = activity;
+      this.uiManager = uiManager;
+      doAnswer(invocation -> {
+        if (recordEvents) {
+          emittedEvents.add(invocation.getArguments());
+        }
+        return null;
+      }).when(eventEmitter).emit(anyString(), any());
+    }
+
+    @Override
+    public <T extends NativeModule> T getNativeModule(Class<T> nativeModuleInterface) {
+      return nativeModuleInterface.cast(uiManager);
+    }
+
+    @Override
+    public <T extends JavaScriptModule> T getJSModule(Class<T> jsInterface) {
+      return jsInterface.cast(eventEmitter);
+    }
+
+    @Override
+    public Activity getCurrentActivity() {
+      return activity;
+    }
+
+    @Override
+    public void runOnNativeModulesQueueThread(Runnable runnable) {
+      nativeModulesQueue.add(runnable);
+    }
+
+    void runNativeModulesQueue() {
+      isRunningNativeModulesQueue = true;
+      try {
+        Runnable runnable;
+        while ((runnable = nativeModulesQueue.poll()) != null) {
+          runnable.run();
+        }
+      } finally {
+        isRunningNativeModulesQueue = false;
+      }
+    }
+  }
+}
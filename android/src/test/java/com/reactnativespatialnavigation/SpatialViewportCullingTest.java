@@ -0,0 +1,87 @@
+package com.reactnativespatialnavigation;
+
+import android.widget.FrameLayout;
+import android.widget.ScrollView;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.Promise;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Viewport culling next to a scrolled list: the viewport follows the scroll offsets of the focused object's list,
+ * objects outside of that list are never culled with them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialViewportCullingTest {
+  private static final int ITEM_COUNT = 20;
+  private static final int ITEM_HEIGHT = 160;
+  private static final int SCROLL_Y = 1000;
+
+  private SpatialTestEnvironment environment;
+
+  @Before
+  public void setUp() {
+    environment = new SpatialTestEnvironment();
+    environment.module.init(JavaOnlyMap.of("enableViewportCulling", true), mock(Promise.class));
+    environment.registerGroup(SpatialTestEnvironment.groupParams("screen", null));
+
+    // Menu on the left and a side button on the right of the list, neither of them scrolls
+    int menuNodeHandle = environment.nextNodeHandle();
+    environment.mountView(environment.container, menuNodeHandle, 0, 0, 200, 140);
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("menu", "screen", menuNodeHandle));
+    int sideNodeHandle = environment.nextNodeHandle();
+    environment.mountView(environment.container, sideNodeHandle, 700, SCROLL_Y, 200, 140);
+    environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("side", "screen", sideNodeHandle));
+
+    ScrollView list = new ScrollView(environment.activity);
+    FrameLayout.LayoutParams listLayoutParams = new FrameLayout.LayoutParams(300, 470);
+    listLayoutParams.leftMargin = 300;
+    environment.container.addView(list, listLayoutParams);
+    FrameLayout content = new FrameLayout(environment.activity);
+    list.addView(content, new FrameLayout.LayoutParams(300, ITEM_COUNT * ITEM_HEIGHT));
+
+    for (int i = 0; i < ITEM_COUNT; i++) {
+      int nodeHandle = environment.nextNodeHandle();
+      environment.mountView(content, nodeHandle, 0, i * ITEM_HEIGHT, 300, 140);
+      environment.registerSpatialObject(SpatialTestEnvironment.spatialObjectParams("item-" + i, "screen", nodeHandle));
+    }
+    environment.drain();
+
+    list.scrollTo(0, SCROLL_Y);
+    environment.drain();
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void keepsObjectsOutsideOfTheFocusedList() {
+    SpatialObject focused = environment.module.getSpatialObject("item-" + (SCROLL_Y / ITEM_HEIGHT + 1));
+
+    Map<String, SpatialObject> nextFocus = environment.module.resolveNextFocus(focused);
+
+    assertSame(environment.module.getSpatialObject("menu"), nextFocus.get("left"));
+    assertSame(environment.module.getSpatialObject("side"), nextFocus.get("right"));
+    assertEquals(0L, getViewportCullingMetric("fallbacks"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private long getViewportCullingMetric(String name) {
+    Map<String, Object> viewportCullingMetrics =
+      (Map<String, Object>) environment.module.getMetrics().snapshot().get("viewportCulling");
+    return ((Number) viewportCullingMetrics.get(name)).longValue();
+  }
+}
@@ -0,0 +1,173 @@
+/*
+  Runs the JS neighbor search over a layout fixture and compares the result with the
+  native engine, see EngineParityBenchmark.java for the fixture format.
+
+  Build the JS engine first with `yarn prepare`, then:
+    node scripts/engine-parity.js --grid 10x20 > fixture.txt
+    (cd android && gradle :jmh:engineParity -Pfixture=../fixture.txt -Presults=../native.txt)
+    node scripts/engine-parity.js fixture.txt native.txt [iterations]
+
+  Exits with 1 when the engines resolve a different neighbor for any spatial object.
+*/
+const fs = require('fs');
+const path = require('path');
+
+const DIRECTIONS = ['up', 'right', 'down', 'left'];
+const args = process.argv.slice(2);
+
+if (args[0] === '--grid') {
+  printGrid(args[1]);
+} else if (args.length > 0) {
+  run(args[0], args[1], args[2] ? parseInt(args[2], 10) : 10);
+} else {
+  console.error(
+    'Usage: engine-parity.js <fixture file> [native results file] [iterations]\n' +
+      '       engine-parity.js --grid <rows>x<columns>'
+  );
+  process.exitCode = 1;
+}
+
+// Writes a fixture of equally sized cards with a gap, like a grid screen on a 1080p TV
+function printGrid(size) {
+  const [rows, columns] = size.split('x').map((value) => parseInt(value, 10));
+  const lines = ['threshold 0.3'];
+
+  for (let row = 0; row < rows; row++) {
+    for (let column = 0; column < columns; column++) {
+      lines.push(`card-${row}-${column} ${column * 220} ${row * 330} 200 300`);
+    }
+  }
+
+  console.log(lines.join('\n'));
+}
+
+function readFixture(fixturePath) {
+  const fixture = { threshold: 0.3, collection: [] };
+
+  fs.readFileSync(fixturePath, 'utf-8')
+    .split('\n')
+    .forEach((line) => {
+      const fields = line.trim().split(/\s+/);
+      if (!fields[0] || fields[0].startsWith('#')) {
+        return;
+      }
+
+      if (fields[0] === 'threshold') {
+        fixture.threshold = parseFloat(fields[1]);
+        return;
+      }
+
+      const [x, y, width, height] = fields.slice(1, 5).map(Number);
+      const restrictions = fields[5] ? parseInt(fields[5], 10) : 0;
+      fixture.collection.push({
+        id: fields[0],
+        groupId: 'fixture',
+        layout: {
+          height,
+          width,
+          x0: x,
+          x1: x + width,
+          y0: y,
+          y1: y + height,
+        },
+        nextFocusRestrictions: {
+          disableSecondaryUp: (restrictions & 1) !== 0,
+          disableSecondaryRight: (restrictions & 2) !== 0,
+          disableSecondaryDown: (restrictions & 4) !== 0,
+          disableSecondaryLeft: (restrictions & 8) !== 0,
+        },
+      });
+    });
+
+  return fixture;
+}
+
+function readNativeResults(resultsPath) {
+  const results = {};
+
+  fs.readFileSync(resultsPath, 'utf-8')
+    .split('\n')
+    .filter((line) => line.trim())
+    .forEach((line) => {
+      const [id, ...targetIds] = line.trim().split(/\s+/);
+      results[id] = targetIds.map((targetId) =>
+        targetId === '-' ? undefined : targetId
+      );
+    });
+
+  return results;
+}
+
+function run(fixturePath, resultsPath, iterations) {
+  const { getNearestNeighbor } = require(path.resolve(
+    __dirname,
+    '../lib/commonjs/helpers'
+  ));
+  const { threshold, collection } = readFixture(fixturePath);
+  const latencies = [];
+  const results = {};
+
+  collection.forEach((focusedElement) => {
+    let nextFocus;
+    for (let i = 0; i < iterations; i++) {
+      const start = process.hrtime.bigint();
+      nextFocus = getNearestNeighbor(focusedElement, collection, threshold);
+      latencies.push(Number(process.hrtime.bigint() - start) / 1000);
+    }
+
+    results[focusedElement.id] = [
+      nextFocus.nextFocusUp,
+      nextFocus.nextFocusRight,
+      nextFocus.nextFocusDown,
+      nextFocus.nextFocusLeft,
+    ].map((target) => target && target.id);
+  });
+
+  latencies.sort((a, b) => a - b);
+  const percentile = (p) =>
+    latencies[Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1)];
+  const mean = latencies.reduce((sum, value) => sum + value, 0) / latencies.length;
+
+  console.log('engine   objects  queries   mean(us)  p50(us)   p99(us)   max(us)');
+  console.log(
+    [
+      'js'.padEnd(8),
+      String(collection.length).padEnd(8),
+      String(latencies.length).padEnd(9),
+      mean.toFixed(1).padEnd(9),
+      percentile(0.5).toFixed(1).padEnd(9),
+      percentile(0.99).toFixed(1).padEnd(9),
+      latencies[latencies.length - 1].toFixed(1),
+    ].join(' ')
+  );
+
+  if (!resultsPath) {
+    return;
+  }
+
+  const nativeResults = readNativeResults(resultsPath);
+  let mismatches = 0;
+
+  collection.forEach(({ id }) => {
+    const nativeTargetIds = nativeResults[id];
+    if (!nativeTargetIds) {
+      mismatches++;
+      console.log(`MISMATCH ${id}: missing from native results`);
+      return;
+    }
+
+    DIRECTIONS.forEach((direction, index) => {
+      if (results[id][index] !== nativeTargetIds[index]) {
+        mismatches++;
+        console.log(
+          `MISMATCH ${id} ${direction}: js ${results[id][index] || '-'} native ${
+            nativeTargetIds[index] || '-'
+          }`
+        );
+      }
+    });
+  });
+
+  console.log(`${mismatches} mismatches`);
+  process.exitCode = mismatches > 0 ? 1 : 0;
+}
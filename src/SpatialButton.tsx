@@ -20,6 +20,7 @@ export const SpatialButton: React.FC<SpatialButtonProps> = memo(
       children,
       hasTVPreferredFocus = false,
       id,
+      layoutRefreshPolicy,
       onBlur,
       onFocus,
       onPress,
@@ -42,6 +43,7 @@ export const SpatialButton: React.FC<SpatialButtonProps> = memo(
         id: elementId,
         groupId,
         nodehandle: findNodeHandle(elementRef.current),
+        layoutRefreshPolicy,
         nextFocusRestrictions: {
           disableSecondaryUp,
           disableSecondaryRight,
@@ -32,6 +32,8 @@ export const SpatialGroup: React.FC<SpatialGroupProps> = (props) => {
     children,
     hasTVPreferredFocus = false,
     id,
+    layoutHint,
+    navigationRootId,
     nextFocusUpGroup,
     nextFocusDownGroup,
     nextFocusRightGroup,
@@ -91,6 +93,8 @@ export const SpatialGroup: React.FC<SpatialGroupProps> = (props) => {
       groupParentId: parentGroupContext?.groupId,
       groupChildIds: [],
       hasTVPreferredFocus,
+      layoutHint,
+      navigationRootId,
       nextFocusUpGroup,
       nextFocusDownGroup,
       nextFocusRightGroup,
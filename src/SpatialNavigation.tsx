@@ -1,6 +1,7 @@
 import * as React from 'react';
 
 import { SpatialApi } from './core';
+import type { NativeInitOptions } from './nativeApi';
 import { SpatialGroup } from './SpatialGroup';
 
 const { useEffect } = React;
@@ -9,11 +10,16 @@ const { useEffect } = React;
 ================================================================== */
 export function SpatialNavigationProvider({
   children,
+  options,
 }: {
   children: React.ReactNode | React.ReactNode[];
+  // Passed to SpatialApi.init, the JS engine ignores them
+  options?: NativeInitOptions;
 }) {
+  // Options are plain values, compared by value so an inline object doesn't init on every render
+  const optionsKey = JSON.stringify(options ?? {});
   useEffect(() => {
-    SpatialApi.init();
-  }, []);
+    SpatialApi.init(JSON.parse(optionsKey));
+  }, [optionsKey]);
   return <SpatialGroup id="GLOBAL">{children}</SpatialGroup>;
 }
@@ -1,8 +1,29 @@
 import { Platform } from 'react-native';
 
+import type { SpatialNavigationApi as NativeSpatialNavigationApi } from
+  './coreNative';
+
 const { SpatialNavigationApi } = Platform.select({
   ios: require('./coreJS'),
   android: require('./coreNative'),
 });
 
-export const SpatialApi = new SpatialNavigationApi();
+// Methods both engines have with the same signature, the JS engine rejects them
+type NativeOnlyMethods =
+  | 'moveFocusByPage'
+  | 'focusNearestInRect'
+  | 'getNeighbors'
+  | 'pushNavigationRoot'
+  | 'popNavigationRoot'
+  | 'saveNavigationSnapshot'
+  | 'loadNavigationSnapshot'
+  | 'exportNextFocusTable'
+  | 'loadNextFocusTable'
+  | 'getMetrics'
+  | 'getInvariantViolations'
+  | 'addLikelyNextFocusListener';
+
+// The engines differ in the signatures of the other methods, those stay untyped
+export const SpatialApi: Pick<NativeSpatialNavigationApi, NativeOnlyMethods> & {
+  [method: string]: any;
+} = new SpatialNavigationApi();
@@ -6,6 +6,14 @@ import throttle from 'lodash.throttle';
 /* Helpers
 ================================================================== */
 import { getNearestNeighbor, getRect } from './helpers';
+import type {
+  NativeDirection,
+  NativeInitOptions,
+  NativeLikelyNextFocusEvent,
+  NativeMetrics,
+  NativeNeighbors,
+  NativeRect,
+} from './nativeApi';
 /* Types
 ================================================================== */
 import type {
@@ -37,7 +45,8 @@ export class SpatialNavigationApi {
   private state: SpatialState = defaultState;
 
   // Init function - todo: add threshold props
-  init = () => {};
+  // eslint-disable-next-line @typescript-eslint/no-unused-vars
+  init = (_options: NativeInitOptions = {}) => {};
 
   /// rename to groups
   get groups(): { [groupId: string]: SpatialGroupObject } {
@@ -397,6 +406,57 @@ export class SpatialNavigationApi {
     }
   };
 
+  /*
+    Only the native engine implements these, they reject here.
+    See coreNative.ts for what they do.
+  */
+  moveFocusByPage = (_direction: NativeDirection): Promise<SpatialId | null> =>
+    this.rejectNativeOnly('moveFocusByPage');
+
+  focusNearestInRect = (_rect: NativeRect): Promise<SpatialId | null> =>
+    this.rejectNativeOnly('focusNearestInRect');
+
+  getNeighbors = (
+    _ids: SpatialId[]
+  ): Promise<{ [id: string]: NativeNeighbors | null }> =>
+    this.rejectNativeOnly('getNeighbors');
+
+  pushNavigationRoot = (_navigationRootId: string): Promise<string> =>
+    this.rejectNativeOnly('pushNavigationRoot');
+
+  popNavigationRoot = (): Promise<string> =>
+    this.rejectNativeOnly('popNavigationRoot');
+
+  saveNavigationSnapshot = (_screenKey: string): Promise<string> =>
+    this.rejectNativeOnly('saveNavigationSnapshot');
+
+  loadNavigationSnapshot = (
+    _screenKey: string
+  ): Promise<{ groups: number; spatialObjects: number } | null> =>
+    this.rejectNativeOnly('loadNavigationSnapshot');
+
+  exportNextFocusTable = (_groupId: SpatialId): Promise<string> =>
+    this.rejectNativeOnly('exportNextFocusTable');
+
+  loadNextFocusTable = (_groupId: SpatialId, _table: string): Promise<number> =>
+    this.rejectNativeOnly('loadNextFocusTable');
+
+  getMetrics = (): Promise<NativeMetrics> =>
+    this.rejectNativeOnly('getMetrics');
+
+  getInvariantViolations = (): Promise<string[]> =>
+    this.rejectNativeOnly('getInvariantViolations');
+
+  // Nothing emits spatialLikelyNextFocus here, the listener is never called
+  addLikelyNextFocusListener = (
+    _listener: (event: NativeLikelyNextFocusEvent) => void
+  ): (() => void) => () => {};
+
+  private rejectNativeOnly = (method: string): Promise<never> =>
+    Promise.reject(
+      new Error(`${method} is only available with the native engine`)
+    );
+
   /*
     If group has predefined preferredChildFocusIndex or preferredChildFocusId,
     use these values to return the correct object that will get focused first.
@@ -1,4 +1,13 @@
+import { DeviceEventEmitter } from 'react-native';
+
 import nativeApi from './nativeApi';
+import type {
+  NativeDirection,
+  NativeInitOptions,
+  NativeLikelyNextFocusEvent,
+  NativeRect,
+  NativeRegisterSpatialObject,
+} from './nativeApi';
 
 import type {
   SpatialGroupObject,
@@ -20,11 +29,24 @@ export const defaultState: SpatialState = {
   useNativeCode: true,
 };
 
+// Spatial objects per registerSpatialObjects call when streaming registration is enabled
+const REGISTRATION_BATCH_SIZE = 100;
+
 export class SpatialNavigationApi {
   private state: SpatialState = defaultState;
+  private isStreamingRegistration = false;
+  // Registrations not sent yet, the next batch is only sent once native accepted the previous one
+  private pendingRegistrations: NativeRegisterSpatialObject[] = [];
+  private isFlushingRegistrations = false;
 
   // Init function - todo: add threshold props
-  init = () => {};
+  init = (options: NativeInitOptions = {}) => {
+    // Like native, options that are left out keep their value, a remounted provider doesn't reset them
+    if (options.enableStreamingRegistration !== undefined) {
+      this.isStreamingRegistration = options.enableStreamingRegistration;
+    }
+    nativeApi.init(options);
+  };
 
   // Returns a boolean if the SpatialNavigation is being calculated
   // By native code
@@ -52,6 +74,9 @@ export class SpatialNavigationApi {
     If the group was registered to a parent group, this function wil also remove it there
   */
   removeGroup = (groupId: SpatialId) => {
+    this.pendingRegistrations = this.pendingRegistrations.filter(
+      (registration) => registration.groupId !== groupId
+    );
     nativeApi.removeGroup(groupId);
   };
 
@@ -64,21 +89,64 @@ export class SpatialNavigationApi {
     id,
     nodehandle,
     nextFocusRestrictions,
+    layoutRefreshPolicy,
   }: Omit<SpatialObject, 'layout'>): (() => void) => {
-    nativeApi.registerSpatialObject({
+    const registration = {
       id,
       groupId,
       nodeHandle: nodehandle,
       nextFocusRestrictions,
-    });
+      layoutRefreshPolicy,
+    };
+
+    if (this.isStreamingRegistration) {
+      this.pendingRegistrations.push(registration);
+      this.flushRegistrations();
+    } else {
+      nativeApi.registerSpatialObject(registration);
+    }
 
     return () => this.removeSpatialButton(id);
   };
 
+  /*
+    Sends the pending registrations in batches while a screen mounts, waiting for native
+    to accept each batch before sending the next one.
+  */
+  private flushRegistrations = async () => {
+    if (this.isFlushingRegistrations) {
+      return;
+    }
+
+    this.isFlushingRegistrations = true;
+    try {
+      // Lets the buttons that mount in the same commit join the first batch
+      await Promise.resolve();
+
+      while (this.pendingRegistrations.length > 0) {
+        const batch = this.pendingRegistrations.splice(
+          0,
+          REGISTRATION_BATCH_SIZE
+        );
+        await nativeApi.registerSpatialObjects(batch);
+      }
+    } finally {
+      this.isFlushingRegistrations = false;
+    }
+  };
+
   /*
     Function that delete/remove a spatialButton to the spatialNavigation state.
   */
   removeSpatialButton = (elementId: SpatialId) => {
+    const pendingIndex = this.pendingRegistrations.findIndex(
+      (registration) => registration.id === elementId
+    );
+    if (pendingIndex !== -1) {
+      this.pendingRegistrations.splice(pendingIndex, 1);
+      return;
+    }
+
     nativeApi.removeSpatialObject(elementId);
   };
 
@@ -140,6 +208,69 @@ export class SpatialNavigationApi {
     // So it doesn't break the app
   };
 
+  /*
+    Moves focus a root view width or height towards direction, or to the spatial object
+    nearest to rect. Both resolve the id that has focus afterwards.
+  */
+  moveFocusByPage = (direction: NativeDirection) =>
+    nativeApi.moveFocusByPage(direction);
+
+  focusNearestInRect = (rect: NativeRect) => nativeApi.focusNearestInRect(rect);
+
+  /*
+    Resolves the next focus ids of each of ids, null for ids that are not registered
+  */
+  getNeighbors = (ids: SpatialId[]) => nativeApi.getNeighbors(ids);
+
+  /*
+    Scopes navigation to the groups of navigationRootId, for modals and drawers.
+    Both resolve the id of the navigation root that is active afterwards.
+  */
+  pushNavigationRoot = (navigationRootId: string) =>
+    nativeApi.pushNavigationRoot(navigationRootId);
+
+  popNavigationRoot = () => nativeApi.popNavigationRoot();
+
+  /*
+    Persists the group tree, layouts and focus for screenKey. Load it before the screen
+    registers its groups to get focus back where it was.
+  */
+  saveNavigationSnapshot = (screenKey: string) =>
+    nativeApi.saveNavigationSnapshot(screenKey);
+
+  loadNavigationSnapshot = (screenKey: string) =>
+    nativeApi.loadNavigationSnapshot(screenKey);
+
+  /*
+    Next focus table of a group and its descendants, base64 encoded. Once loaded, their
+    spatial objects use it instead of the neighbor search while their layout matches.
+  */
+  exportNextFocusTable = (groupId: SpatialId) =>
+    nativeApi.exportNextFocusTable(groupId);
+
+  loadNextFocusTable = (groupId: SpatialId, table: string) =>
+    nativeApi.loadNextFocusTable(groupId, table);
+
+  getMetrics = () => nativeApi.getMetrics();
+
+  // Resolves an empty array when the group tree and the spatial objects are consistent
+  getInvariantViolations = () => nativeApi.getInvariantViolations();
+
+  /*
+    Listens to spatialLikelyNextFocus, emitted when enableLikelyNextFocusEvents is set.
+    It returns a function to remove the listener.
+  */
+  addLikelyNextFocusListener = (
+    listener: (event: NativeLikelyNextFocusEvent) => void
+  ): (() => void) => {
+    const subscription = DeviceEventEmitter.addListener(
+      'spatialLikelyNextFocus',
+      listener
+    );
+
+    return () => subscription.remove();
+  };
+
   private logInfo = (...args: any[]) => {
     if (this.state.logEvents) {
       console.info(...args);
@@ -283,16 +283,17 @@ function getNearestUpNeighBor(
     const isEL2Left = el.layout!.x0 <= focusedLayout!.x0;
 
     const el1DistanceX = isEl1Left
-      ? Math.abs(focusedLayout!.x0 - nearestUp.layout!.x1)
-      : Math.abs(nearestUp.layout!.x0 - focusedLayout!.x1);
+      ? focusedLayout!.x0 - nearestUp.layout!.x1
+      : nearestUp.layout!.x0 - focusedLayout!.x1;
 
     const el2DistanceX = isEL2Left
       ? focusedLayout!.x0 - el.layout!.x1
       : el.layout!.x0 - focusedLayout!.x1;
 
     if (
-      el1DistanceX - el2DistanceX > 0 ||
-      el.layout!.y1 - nearestUp.layout!.y1 > 0
+      el2DistanceX < el1DistanceX ||
+      (el2DistanceX === el1DistanceX &&
+        el.layout!.y1 > nearestUp.layout!.y1)
     ) {
       nearestUp = el;
     }
@@ -336,8 +337,9 @@ function getNearestRightNeighBor(
       : el.layout!.y0 - focusedLayout!.y1;
 
     if (
-      el1Distance - el2Distance > 0 ||
-      nearestRight.layout!.y1 - el.layout!.y1 > 0
+      el2Distance < el1Distance ||
+      (el2Distance === el1Distance &&
+        el.layout!.x0 < nearestRight.layout!.x0)
     ) {
       nearestRight = el;
     }
@@ -381,8 +383,9 @@ function getNearestDownNeighBor(
       : el.layout!.x0 - focusedLayout!.x1;
 
     if (
-      el1DistanceX - el2DistanceX > 0 ||
-      nearestDown.layout!.y0 - el.layout!.y0 > 0
+      el2DistanceX < el1DistanceX ||
+      (el2DistanceX === el1DistanceX &&
+        el.layout!.y0 < nearestDown.layout!.y0)
     ) {
       nearestDown = el;
     }
@@ -426,8 +429,9 @@ function getNearestLeftNeighBor(
       : el.layout!.y0 - focusedLayout!.y1;
 
     if (
-      el1Distance - el2Distance > 0 ||
-      el.layout!.x1 - nearestLeft.layout!.x1 > 0
+      el2Distance < el1Distance ||
+      (el2Distance === el1Distance &&
+        el.layout!.x1 > nearestLeft.layout!.x1)
     ) {
       nearestLeft = el;
     }
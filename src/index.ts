@@ -5,3 +5,13 @@ export { SpatialButton } from './SpatialButton';
 export { SpatialGroup, SpatialNavigationGroupContext } from './SpatialGroup';
 export { SpatialNavigationProvider } from './SpatialNavigation';
 export * from './types';
+export type {
+  NativeCacheTiers,
+  NativeDirection,
+  NativeInitOptions,
+  NativeLatencyMetric,
+  NativeLikelyNextFocusEvent,
+  NativeMetrics,
+  NativeNeighbors,
+  NativeRect,
+} from './nativeApi';
@@ -1,6 +1,12 @@
 import { NativeModules } from 'react-native';
 
-import type { NextFocusGroup, NextFocusRestrictions, SpatialId } from './types';
+import type {
+  LayoutRefreshPolicy,
+  NextFocusGroup,
+  NextFocusRestrictions,
+  SpatialGroupLayoutHint,
+  SpatialId,
+} from './types';
 
 interface NativeRegisterGroup extends NextFocusGroup {
   id: SpatialId;
@@ -9,25 +15,210 @@ interface NativeRegisterGroup extends NextFocusGroup {
   preferredChildFocusIndex?: number;
   preferredChildFocusId?: SpatialId;
   shouldTrackChildren?: boolean;
+  layoutHint?: SpatialGroupLayoutHint;
+  navigationRootId?: string;
 }
 
-interface NativeRegisterSpatialObject {
+export interface NativeRegisterSpatialObject {
   id: SpatialId;
   groupId: SpatialId;
   nodeHandle: number;
   nextFocusRestrictions: NextFocusRestrictions;
+  layoutRefreshPolicy?: LayoutRefreshPolicy;
+}
+
+export interface NativeInitOptions {
+  // Adds android.os.Trace sections around the focus pipeline
+  enableTracing?: boolean;
+  // Moves focus at most once per frame while a D-pad key is held
+  enableFastTraversal?: boolean;
+  // Searches the viewport of the focused view first, off-screen objects only when nothing visible qualifies
+  enableViewportCulling?: boolean;
+  // Pixels around the viewport that still count as visible, defaults to 100
+  viewportMargin?: number;
+  // Same as nearestNeigborThreshold of the JS engine, defaults to 0.3
+  nearestNeighborThreshold?: number;
+  // Moves focus diagonally on the diagonal D-pad keys of game pads
+  enableDiagonalNavigation?: boolean;
+  // Emits spatialLikelyNextFocus after every focus change, see NativeLikelyNextFocusEvent
+  enableLikelyNextFocusEvents?: boolean;
+  // Frames without registrations or layout updates before the preferred child of a group with
+  // hasTVPreferredFocus gets focused, defaults to 3, 0 focuses it as soon as it registers
+  initialFocusSettleFrames?: number;
+  // Moves focus on D-pad key downs at the activity's window, before the focused view gets the key.
+  // Key downs that move focus are not dispatched further, useTVEventHandler still gets them but native
+  // key listeners of views don't
+  enableKeyInterception?: boolean;
+  // Buffers spatial button registrations and sends them in batches, native adds them in frame budgeted
+  // chunks starting with the ones closest to the group focus starts in
+  enableStreamingRegistration?: boolean;
+  // Registrations queued at most, the rest of a batch waits and holds back the next batch, defaults to 1000.
+  // A batch sent while another one waits is rejected when the waiting registrations would exceed it
+  registrationQueueCapacity?: number;
+  // Milliseconds per frame spent adding queued registrations, defaults to 4
+  registrationFrameBudgetMs?: number;
+}
+
+// In the coordinates of the native layouts, pixels from the root view's origin
+export interface NativeRect {
+  x: number;
+  y: number;
+  width: number;
+  height: number;
+}
+
+export type NativeDirection = 'up' | 'right' | 'down' | 'left';
+
+// Next focus ids per direction, diagonals only when enableDiagonalNavigation is set
+export interface NativeNeighbors {
+  up: SpatialId | null;
+  right: SpatialId | null;
+  down: SpatialId | null;
+  left: SpatialId | null;
+  upRight?: SpatialId | null;
+  downRight?: SpatialId | null;
+  downLeft?: SpatialId | null;
+  upLeft?: SpatialId | null;
+}
+
+// Payload of the spatialLikelyNextFocus event, targets are ordered from most to least likely
+export interface NativeLikelyNextFocusEvent {
+  id: SpatialId;
+  targets: {
+    id: SpatialId;
+    direction: string;
+    probability: number;
+  }[];
+}
+
+export interface NativeLatencyMetric {
+  count: number;
+  mean: number;
+  p50: number;
+  p90: number;
+  p99: number;
+  max: number;
+}
+
+export interface NativeMetrics {
+  neighborSearchTime: NativeLatencyMetric;
+  candidatesScanned: NativeLatencyMetric;
+  uiBlockResolutionDelay: NativeLatencyMetric;
+  focusToNextFocusWritten: NativeLatencyMetric;
+  recalculations: {
+    count: number;
+    perSecond: number;
+    peakPerSecond: number;
+  };
+  fastTraversal: {
+    steps: number;
+    commits: number;
+  };
+  nextFocusTable: {
+    hits: number;
+    misses: number;
+  };
+  viewportCulling: {
+    searches: number;
+    fallbacks: number;
+    culledCandidates: NativeLatencyMetric;
+  };
+  // Caches shed on onTrimMemory, least valuable tier first
+  memory: {
+    // Estimated bytes shedding each tier would release, offScreenLayouts is refreshed at most every 5 seconds
+    bytes: NativeCacheTiers;
+    // Trim requests that shed up to each tier
+    trims: NativeCacheTiers;
+    trimmedBytes: number;
+  };
+  // Transformed bounds of animating views, read per frame and written back per layoutRefreshPolicy
+  layoutRefresh: {
+    samples: number;
+    commits: number;
+  };
+  streamingRegistration: {
+    queued: number;
+    maxQueueDepth: number;
+    chunkTime: NativeLatencyMetric;
+    chunkSize: NativeLatencyMetric;
+  };
+  // Frames each initial focus waited for its screen to settle
+  initialFocusSettleFrames: NativeLatencyMetric;
+  // Registrations of ids that were already registered, reused ones kept their native state
+  upserts: {
+    reused: number;
+    replaced: number;
+  };
+  // D-pad key downs seen by the key interceptor, passThroughs did not move focus and got dispatched as usual
+  keyInterception: {
+    moves: number;
+    passThroughs: number;
+  };
+}
+
+export interface NativeCacheTiers {
+  speculative: number;
+  offRootTables: number;
+  offScreenLayouts: number;
+}
+
+interface NativeTraceRecord {
+  type: string;
+  // nodeHandle of a spatial object or slot of a group
+  slot: number;
+  // milliseconds
+  timestamp: number;
+  duration: number;
+}
+
+interface NativeTrace {
+  records: NativeTraceRecord[];
+  spatialObjectSlots: { [slot: string]: SpatialId };
+  groupSlots: { [slot: string]: SpatialId };
 }
 
 type SpatialNavigationType = {
-  init(): Promise<string>;
+  init(options: NativeInitOptions): Promise<string>;
   registerGroup(groupObject: NativeRegisterGroup): Promise<SpatialId>;
   removeGroup(groupId: SpatialId): Promise<SpatialId>;
   registerSpatialObject(
     nodeHandle: NativeRegisterSpatialObject
   ): Promise<SpatialId>;
+  // Resolves the number of spatial objects once all are queued, later while the registration queue is full.
+  // Rejects with QUEUE FULL when another batch still waits and this one doesn't fit, see registrationQueueCapacity
+  registerSpatialObjects(
+    spatialObjects: NativeRegisterSpatialObject[]
+  ): Promise<number>;
   removeSpatialObject(spatialObjectId: SpatialId): Promise<SpatialId>;
   setFocusToGroup(groupId: SpatialId): Promise<SpatialId>;
   setFocusToSpatialObject(spatialObjectId: SpatialId): void;
+  getMetrics(): Promise<NativeMetrics>;
+  dumpTrace(): Promise<NativeTrace>;
+  // Resolves an empty array when the group tree and the spatial objects are consistent
+  getInvariantViolations(): Promise<string[]>;
+  // Resolves the path of the binary recording, see NavigationReplayer.java
+  startRecording(recordingName: string): Promise<string>;
+  stopRecording(): Promise<string>;
+  // Resolve the id of the spatial object that has focus afterwards
+  moveFocusByPage(direction: NativeDirection): Promise<SpatialId | null>;
+  focusNearestInRect(rect: NativeRect): Promise<SpatialId | null>;
+  // Resolves null for ids that are not registered
+  getNeighbors(
+    ids: SpatialId[]
+  ): Promise<{ [id: string]: NativeNeighbors | null }>;
+  // Resolve the id of the navigation root that is active afterwards
+  pushNavigationRoot(navigationRootId: string): Promise<string>;
+  popNavigationRoot(): Promise<string>;
+  // Resolves the path of the snapshot
+  saveNavigationSnapshot(screenKey: string): Promise<string>;
+  // Call before the screen registers its groups, resolves null if there is no snapshot for screenKey
+  loadNavigationSnapshot(
+    screenKey: string
+  ): Promise<{ groups: number; spatialObjects: number } | null>;
+  // Resolves a base64 encoded next focus table for the group and its descendants
+  exportNextFocusTable(groupId: SpatialId): Promise<string>;
+  // Resolves the number of spatial objects in the table
+  loadNextFocusTable(groupId: SpatialId, table: string): Promise<number>;
 };
 
 const { SpatialNavigation } = NativeModules;
@@ -51,9 +51,18 @@ export interface SpatialGroupContextState {
   isFocused: boolean;
 }
 
+// Children laid out uniformly, lets native resolve neighbors inside the group by index over their layouts
+export type SpatialGroupLayoutHint =
+  | { type: 'row' }
+  | { type: 'column' }
+  | { type: 'grid'; columns: number };
+
 export interface SpatialGroupProps extends Partial<NextFocusGroup> {
   hasTVPreferredFocus?: boolean;
   id: SpatialId;
+  layoutHint?: SpatialGroupLayoutHint;
+  // Isolated navigation scope, e.g. a modal, inherited from the parent group when not set
+  navigationRootId?: string;
   onBlur?: () => void;
   onFocus?: () => void;
   preferredChildFocusIndex?: number;
@@ -67,6 +76,8 @@ export interface SpatialGroupObject extends NextFocusGroup {
   groupParentId: SpatialId | undefined;
   groupChildIds: SpatialId[];
   hasTVPreferredFocus: boolean;
+  layoutHint?: SpatialGroupLayoutHint;
+  navigationRootId?: string;
   onBlur: () => void;
   onFocus: () => void;
   preferredChildFocusIndex?: number;
@@ -82,8 +93,15 @@ export interface SpatialObject {
   layout?: SpatialLayoutObject;
   nodehandle: number;
   nextFocusRestrictions: NextFocusRestrictions;
+  layoutRefreshPolicy?: LayoutRefreshPolicy;
 }
 
+/*
+  When the bounds of an animating (scaled, translated) view are used for navigation:
+  'frame' follows them every frame, 'settled' (default) once the animation stopped
+*/
+export type LayoutRefreshPolicy = 'frame' | 'settled';
+
 export interface SpatialLayoutObject {
   height: number;
   width: number;
@@ -100,6 +118,7 @@ export interface SpatialButtonProps
   children?: React.ReactNode | React.ReactNode[];
   hasTVPreferredFocus?: boolean;
   id?: string | number;
+  layoutRefreshPolicy?: LayoutRefreshPolicy;
   onBlur?: () => void;
   onFocus?: () => void;
   onPress?: () => void;